@@ -0,0 +1,64 @@
+package com.aagproservices.jenkins.gitlabsteps.service;
+
+import okhttp3.Request;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.ws.rs.HttpMethod;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Cost of building a request: URL assembly (including the encoding of nested group paths) and query parameters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RequestBuildingBenchmark {
+
+    private static final String GITLAB_URL = "https://gitlab.example.com";
+
+    @Param({"group", "group/subgroup/team"})
+    private String project;
+
+    private ContentService service;
+    private Map<String, String> queryParams;
+
+    @Setup
+    public void setUp() {
+        service = new ContentService();
+        queryParams = new LinkedHashMap<>();
+        queryParams.put("search", "^release-");
+        queryParams.put("order_by", "updated");
+        queryParams.put("sort", "desc");
+        queryParams.put("per_page", "100");
+    }
+
+    @Benchmark
+    public Request buildRequest() {
+        return service.buildRequest(GITLAB_URL, "token", project, "service-a", "repository/tags",
+                HttpMethod.POST, null, Collections.emptyMap());
+    }
+
+    @Benchmark
+    public Request buildRequestWithQuery() {
+        return service.buildRequest(GITLAB_URL, "token", project, "service-a", "repository/tags",
+                HttpMethod.GET, null, queryParams);
+    }
+}
@@ -0,0 +1,123 @@
+package com.aagproservices.jenkins.gitlabsteps.service;
+
+import com.aagproservices.jenkins.gitlabsteps.api.Tag;
+import okhttp3.Request;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.ws.rs.HttpMethod;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Round trip of a request against an in-process server, dominated by the deserialization of the response: an object
+ * with the given number of attributes and a list with the given number of tags.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ResponseParsingBenchmark {
+
+    private static final int TIMEOUT = 60;
+
+    @Param({"10", "1000", "50000"})
+    private int elements;
+
+    private MockWebServer server;
+    private ContentService service;
+    private Request objectRequest;
+    private Request arrayRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Buffer object = objectBody(elements);
+        Buffer array = arrayBody(elements);
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(final RecordedRequest request) {
+                String path = request.getPath();
+                if (path.endsWith("/projects/group%2Fservice-a")) {
+                    return new MockResponse().setBody("{\"id\":42}");
+                }
+                return new MockResponse().setBody((path.contains("/tags/") ? object : array).clone());
+            }
+        });
+        server.start();
+
+        String gitlabUrl = server.url("/").toString();
+        service = new ContentService();
+        objectRequest = service.buildRequest(gitlabUrl, "token", "group", "service-a", "repository/tags/v1",
+                HttpMethod.GET, null, null);
+        arrayRequest = service.buildRequest(gitlabUrl, "token", "group", "service-a", "repository/tags",
+                HttpMethod.GET, null, null);
+    }
+
+    /**
+     * Makes every request go to the server instead of being answered by the response cache.
+     */
+    @Setup(Level.Invocation)
+    public void clearCache() {
+        ResponseCache.getInstance().reset();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        server.shutdown();
+        ProjectIdResolver.getInstance().reset();
+    }
+
+    @Benchmark
+    public Tag parseObject() {
+        return service.executeRequest(objectRequest, Tag.class, TIMEOUT, false, false);
+    }
+
+    @Benchmark
+    public List<Tag> parseArray() {
+        return service.collect(service.paginate(arrayRequest, Tag.class, 0, TIMEOUT, false, false));
+    }
+
+    private static Buffer objectBody(final int attributes) {
+        Buffer body = new Buffer().writeUtf8("{\"name\":\"v1\",\"message\":\"Release\",\"target\":\"0123456789abcdef\"");
+        for (int i = 0; i < attributes; i++) {
+            body.writeUtf8(",\"attribute").writeUtf8(Integer.toString(i)).writeUtf8("\":\"value ")
+                    .writeUtf8(Integer.toString(i)).writeUtf8("\"");
+        }
+        return body.writeUtf8("}");
+    }
+
+    private static Buffer arrayBody(final int tags) {
+        Buffer body = new Buffer().writeUtf8("[");
+        for (int i = 0; i < tags; i++) {
+            if (i > 0) {
+                body.writeUtf8(",");
+            }
+            body.writeUtf8("{\"name\":\"v").writeUtf8(Integer.toString(i))
+                    .writeUtf8("\",\"message\":\"Release\",\"target\":\"0123456789abcdef\",\"commit\":{\"id\":\"0123456789abcdef\"")
+                    .writeUtf8(",\"short_id\":\"01234567\",\"title\":\"Bump version\"},\"protected\":false}");
+        }
+        return body.writeUtf8("]");
+    }
+}
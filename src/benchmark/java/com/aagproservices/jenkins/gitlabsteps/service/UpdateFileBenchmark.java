@@ -0,0 +1,109 @@
+package com.aagproservices.jenkins.gitlabsteps.service;
+
+import com.aagproservices.jenkins.gitlabsteps.api.FileUpdate;
+import hudson.FilePath;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Updating a file of the given size: the HEAD request telling whether it exists and the upload of its base64 encoded
+ * content, which is streamed from the workspace. The server discards the uploaded body, so the allocations measured
+ * are the ones of the client.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx256m")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UpdateFileBenchmark {
+
+    private static final int TIMEOUT = 120;
+
+    /**
+     * 1 KB, 1 MB and 50 MB.
+     */
+    @Param({"1024", "1048576", "52428800"})
+    private int fileSize;
+
+    private MockWebServer server;
+    private ContentService service;
+    private String gitlabUrl;
+    private File workspace;
+    private FileUpdate fileUpdate;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        workspace = Files.createTempDirectory("gitlab-steps-benchmark").toFile();
+        byte[] chunk = new byte[8192];
+        new Random(fileSize).nextBytes(chunk);
+        try (OutputStream out = Files.newOutputStream(new File(workspace, "payload.bin").toPath())) {
+            for (int written = 0; written < fileSize; written += chunk.length) {
+                out.write(chunk, 0, Math.min(chunk.length, fileSize - written));
+            }
+        }
+
+        server = new MockWebServer();
+        server.setBodyLimit(0);
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(final RecordedRequest request) {
+                if (request.getPath().endsWith("/projects/group%2Fservice-a")) {
+                    return new MockResponse().setBody("{\"id\":42}");
+                }
+                if ("HEAD".equals(request.getMethod())) {
+                    return new MockResponse().setResponseCode(404);
+                }
+                return new MockResponse().setResponseCode(201)
+                        .setBody("{\"file_path\":\"payload.bin\",\"branch\":\"main\"}");
+            }
+        });
+        server.start();
+
+        gitlabUrl = server.url("/").toString();
+        service = new ContentService();
+        fileUpdate = new FileUpdate();
+        fileUpdate.setFile("payload.bin");
+        fileUpdate.setBranch("main");
+        fileUpdate.setMessage("Update payload");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        server.shutdown();
+        ProjectIdResolver.getInstance().reset();
+        File payload = new File(workspace, "payload.bin");
+        Files.deleteIfExists(payload.toPath());
+        Files.deleteIfExists(workspace.toPath());
+    }
+
+    @Benchmark
+    public FileUpdate updateFile() throws InterruptedException {
+        return service.updateFile(gitlabUrl, "token", "group", "service-a", fileUpdate, new FilePath(workspace),
+                false, TIMEOUT, false, false);
+    }
+}
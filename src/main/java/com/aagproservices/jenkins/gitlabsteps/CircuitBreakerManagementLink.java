@@ -0,0 +1,70 @@
+package com.aagproservices.jenkins.gitlabsteps;
+
+import com.aagproservices.jenkins.gitlabsteps.service.CircuitBreaker;
+import com.aagproservices.jenkins.gitlabsteps.service.CircuitBreakerRegistry;
+import hudson.Extension;
+import hudson.model.ManagementLink;
+import jenkins.model.Jenkins;
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.interceptor.RequirePOST;
+
+import java.util.List;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Page under "Manage Jenkins" showing the state of the circuit breakers of the Gitlab hosts, which administrators
+ * may close again by hand.
+ */
+@Extension
+public class CircuitBreakerManagementLink extends ManagementLink {
+
+    @Override
+    public String getIconFileName() {
+        return "monitor.png";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Gitlab Circuit Breakers";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "gitlab-circuit-breakers";
+    }
+
+    @Override
+    public String getDescription() {
+        return "State of the circuit breakers guarding the requests of the Gitlab steps";
+    }
+
+    /**
+     * Returns the circuit breakers of all the Gitlab hosts requests were sent to.
+     *
+     * @return The circuit breakers.
+     */
+    public List<CircuitBreaker> getBreakers() {
+        return CircuitBreakerRegistry.getInstance().getAll();
+    }
+
+    /**
+     * Closes the circuit breaker of the given host, or all of them.
+     *
+     * @param host The host, blank for all hosts.
+     * @return Redirect to the page.
+     */
+    @RequirePOST
+    public HttpResponse doReset(@QueryParameter final String host) {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        if (StringUtils.isBlank(host)) {
+            CircuitBreakerRegistry.getInstance().reset();
+        } else {
+            CircuitBreakerRegistry.getInstance().reset(host);
+        }
+        return HttpResponses.redirectToDot();
+    }
+}
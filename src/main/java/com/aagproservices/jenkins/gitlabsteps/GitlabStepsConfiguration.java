@@ -0,0 +1,297 @@
+package com.aagproservices.jenkins.gitlabsteps;
+
+import com.aagproservices.jenkins.gitlabsteps.service.CircuitBreakerRegistry;
+import com.aagproservices.jenkins.gitlabsteps.service.GitlabClientRegistry;
+import com.aagproservices.jenkins.gitlabsteps.service.ProjectIdResolver;
+import com.aagproservices.jenkins.gitlabsteps.service.RateLimitScheduler;
+import com.aagproservices.jenkins.gitlabsteps.service.ResponseCache;
+import hudson.Extension;
+import hudson.util.Secret;
+import jenkins.model.GlobalConfiguration;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONObject;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.StaplerRequest;
+
+import javax.annotation.Nonnull;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Global (Jenkins-wide) settings of the plugin which are shared by all the steps.
+ */
+@Extension
+public class GitlabStepsConfiguration extends GlobalConfiguration {
+
+    public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 20;
+    public static final int DEFAULT_KEEP_ALIVE_SECONDS = 300;
+    public static final int DEFAULT_MAX_REQUESTS = 64;
+    public static final int DEFAULT_MAX_REQUESTS_PER_HOST = 16;
+    public static final int DEFAULT_CACHE_MAX_ENTRIES = 200;
+    public static final int DEFAULT_CACHE_TTL_SECONDS = 10;
+    public static final int DEFAULT_CACHE_MAX_ENTRY_BYTES = 256 * 1024;
+    public static final int DEFAULT_RATE_LIMIT_PER_SECOND = 0;
+    public static final int DEFAULT_CIRCUIT_BREAKER_THRESHOLD = 50;
+    public static final int DEFAULT_CIRCUIT_BREAKER_WINDOW_SIZE = 20;
+    public static final int DEFAULT_CIRCUIT_BREAKER_COOL_DOWN_SECONDS = 30;
+    public static final int DEFAULT_PIPELINE_POLL_SECONDS = 10;
+
+    private int maxIdleConnections = DEFAULT_MAX_IDLE_CONNECTIONS;
+    private int keepAliveSeconds = DEFAULT_KEEP_ALIVE_SECONDS;
+    private int maxRequests = DEFAULT_MAX_REQUESTS;
+    private int maxRequestsPerHost = DEFAULT_MAX_REQUESTS_PER_HOST;
+    private int cacheMaxEntries = DEFAULT_CACHE_MAX_ENTRIES;
+    private int cacheTtlSeconds = DEFAULT_CACHE_TTL_SECONDS;
+    private int cacheMaxEntryBytes = DEFAULT_CACHE_MAX_ENTRY_BYTES;
+    private int rateLimitPerSecond = DEFAULT_RATE_LIMIT_PER_SECOND;
+    private int circuitBreakerThreshold = DEFAULT_CIRCUIT_BREAKER_THRESHOLD;
+    private int circuitBreakerWindowSize = DEFAULT_CIRCUIT_BREAKER_WINDOW_SIZE;
+    private int circuitBreakerCoolDownSeconds = DEFAULT_CIRCUIT_BREAKER_COOL_DOWN_SECONDS;
+    private int pipelinePollSeconds = DEFAULT_PIPELINE_POLL_SECONDS;
+    private Secret webhookSecret;
+
+    /**
+     * Constructor used by Jenkins, loads the persisted settings.
+     */
+    public GitlabStepsConfiguration() {
+        this(true);
+    }
+
+    private GitlabStepsConfiguration(final boolean load) {
+        if (load) {
+            load();
+        }
+    }
+
+    /**
+     * Returns the global configuration. Outside of a running Jenkins (e.g. in benchmarks) an instance holding the
+     * default values is returned.
+     *
+     * @return The global configuration.
+     */
+    @Nonnull
+    public static GitlabStepsConfiguration get() {
+        GitlabStepsConfiguration configuration = null;
+        if (Jenkins.getInstanceOrNull() != null) {
+            configuration = GlobalConfiguration.all().get(GitlabStepsConfiguration.class);
+        }
+        return configuration == null ? defaults() : configuration;
+    }
+
+    /**
+     * Returns an instance holding the default values, which is neither loaded from nor saved to disk, e.g. to test
+     * the services with other settings.
+     *
+     * @return A new instance.
+     */
+    @Nonnull
+    public static GitlabStepsConfiguration defaults() {
+        return new GitlabStepsConfiguration(false);
+    }
+
+    @Nonnull
+    @Override
+    public String getDisplayName() {
+        return "Gitlab Steps";
+    }
+
+    @Override
+    public boolean configure(final StaplerRequest req, final JSONObject json) throws FormException {
+        req.bindJSON(this, json);
+        save();
+        GitlabClientRegistry.getInstance().reset();
+        ResponseCache.getInstance().reset();
+        ProjectIdResolver.getInstance().reset();
+        RateLimitScheduler.getInstance().reset();
+        CircuitBreakerRegistry.getInstance().reset();
+        return true;
+    }
+
+    /**
+     * Returns the maximum number of idle connections kept in the shared connection pool.
+     *
+     * @return Maximum number of idle connections
+     */
+    public int getMaxIdleConnections() {
+        return maxIdleConnections;
+    }
+
+    @DataBoundSetter
+    public void setMaxIdleConnections(final int maxIdleConnections) {
+        this.maxIdleConnections = maxIdleConnections <= 0 ? DEFAULT_MAX_IDLE_CONNECTIONS : maxIdleConnections;
+    }
+
+    /**
+     * Returns the time in seconds after which an idle connection gets evicted from the shared connection pool.
+     *
+     * @return Keep-alive duration in seconds
+     */
+    public int getKeepAliveSeconds() {
+        return keepAliveSeconds;
+    }
+
+    @DataBoundSetter
+    public void setKeepAliveSeconds(final int keepAliveSeconds) {
+        this.keepAliveSeconds = keepAliveSeconds <= 0 ? DEFAULT_KEEP_ALIVE_SECONDS : keepAliveSeconds;
+    }
+
+    /**
+     * Returns the maximum number of requests to Gitlab which are in flight at the same time; further requests are
+     * queued until one completes.
+     *
+     * @return Maximum number of concurrent requests
+     */
+    public int getMaxRequests() {
+        return maxRequests;
+    }
+
+    @DataBoundSetter
+    public void setMaxRequests(final int maxRequests) {
+        this.maxRequests = maxRequests <= 0 ? DEFAULT_MAX_REQUESTS : maxRequests;
+    }
+
+    /**
+     * Returns the maximum number of requests to a single Gitlab host which are in flight at the same time.
+     *
+     * @return Maximum number of concurrent requests per host
+     */
+    public int getMaxRequestsPerHost() {
+        return maxRequestsPerHost;
+    }
+
+    @DataBoundSetter
+    public void setMaxRequestsPerHost(final int maxRequestsPerHost) {
+        this.maxRequestsPerHost = maxRequestsPerHost <= 0 ? DEFAULT_MAX_REQUESTS_PER_HOST : maxRequestsPerHost;
+    }
+
+    /**
+     * Returns the maximum number of responses kept in the response cache.
+     *
+     * @return Maximum number of cached responses, 0 if the cache is disabled
+     */
+    public int getCacheMaxEntries() {
+        return cacheMaxEntries;
+    }
+
+    @DataBoundSetter
+    public void setCacheMaxEntries(final int cacheMaxEntries) {
+        this.cacheMaxEntries = cacheMaxEntries < 0 ? DEFAULT_CACHE_MAX_ENTRIES : cacheMaxEntries;
+    }
+
+    /**
+     * Returns the time in seconds a cached response is served without asking Gitlab; older responses are revalidated.
+     *
+     * @return Time to live in seconds, 0 to always revalidate
+     */
+    public int getCacheTtlSeconds() {
+        return cacheTtlSeconds;
+    }
+
+    @DataBoundSetter
+    public void setCacheTtlSeconds(final int cacheTtlSeconds) {
+        this.cacheTtlSeconds = cacheTtlSeconds < 0 ? DEFAULT_CACHE_TTL_SECONDS : cacheTtlSeconds;
+    }
+
+    /**
+     * Returns the size in bytes above which a response is not cached.
+     *
+     * @return Maximum size of a cached response in bytes
+     */
+    public int getCacheMaxEntryBytes() {
+        return cacheMaxEntryBytes;
+    }
+
+    @DataBoundSetter
+    public void setCacheMaxEntryBytes(final int cacheMaxEntryBytes) {
+        this.cacheMaxEntryBytes = cacheMaxEntryBytes <= 0 ? DEFAULT_CACHE_MAX_ENTRY_BYTES : cacheMaxEntryBytes;
+    }
+
+    /**
+     * Returns the number of requests per second sent to a single Gitlab host as long as Gitlab did not announce its
+     * rate limit in the response headers.
+     *
+     * @return Requests per second, 0 for no limit
+     */
+    public int getRateLimitPerSecond() {
+        return rateLimitPerSecond;
+    }
+
+    @DataBoundSetter
+    public void setRateLimitPerSecond(final int rateLimitPerSecond) {
+        this.rateLimitPerSecond = rateLimitPerSecond < 0 ? DEFAULT_RATE_LIMIT_PER_SECOND : rateLimitPerSecond;
+    }
+
+    /**
+     * Returns the share of failed requests to a Gitlab host above which its circuit breaker opens.
+     *
+     * @return Failure rate in percent, 0 if the circuit breakers are disabled
+     */
+    public int getCircuitBreakerThreshold() {
+        return circuitBreakerThreshold;
+    }
+
+    @DataBoundSetter
+    public void setCircuitBreakerThreshold(final int circuitBreakerThreshold) {
+        this.circuitBreakerThreshold = circuitBreakerThreshold < 0 || circuitBreakerThreshold > 100
+                ? DEFAULT_CIRCUIT_BREAKER_THRESHOLD : circuitBreakerThreshold;
+    }
+
+    /**
+     * Returns the number of latest requests to a Gitlab host the failure rate is computed from.
+     *
+     * @return Size of the sliding window
+     */
+    public int getCircuitBreakerWindowSize() {
+        return circuitBreakerWindowSize;
+    }
+
+    @DataBoundSetter
+    public void setCircuitBreakerWindowSize(final int circuitBreakerWindowSize) {
+        this.circuitBreakerWindowSize = circuitBreakerWindowSize <= 0
+                ? DEFAULT_CIRCUIT_BREAKER_WINDOW_SIZE : circuitBreakerWindowSize;
+    }
+
+    /**
+     * Returns the time an open circuit breaker rejects requests before it lets a probe request through.
+     *
+     * @return Cool-down in seconds
+     */
+    public int getCircuitBreakerCoolDownSeconds() {
+        return circuitBreakerCoolDownSeconds;
+    }
+
+    @DataBoundSetter
+    public void setCircuitBreakerCoolDownSeconds(final int circuitBreakerCoolDownSeconds) {
+        this.circuitBreakerCoolDownSeconds = circuitBreakerCoolDownSeconds <= 0
+                ? DEFAULT_CIRCUIT_BREAKER_COOL_DOWN_SECONDS : circuitBreakerCoolDownSeconds;
+    }
+
+    /**
+     * Returns the time between two polls of the pipelines builds are waiting for. Each poll asks Gitlab once per
+     * project for the pipelines which changed, however many builds are waiting.
+     *
+     * @return Poll interval in seconds
+     */
+    public int getPipelinePollSeconds() {
+        return pipelinePollSeconds;
+    }
+
+    @DataBoundSetter
+    public void setPipelinePollSeconds(final int pipelinePollSeconds) {
+        this.pipelinePollSeconds = pipelinePollSeconds <= 0 ? DEFAULT_PIPELINE_POLL_SECONDS : pipelinePollSeconds;
+    }
+
+    /**
+     * Returns the secret token Gitlab sends with the events to the webhook, see {@link GitlabWebhook}.
+     *
+     * @return The secret token, null or empty if the webhook is disabled
+     */
+    public Secret getWebhookSecret() {
+        return webhookSecret;
+    }
+
+    @DataBoundSetter
+    public void setWebhookSecret(final Secret webhookSecret) {
+        this.webhookSecret = webhookSecret;
+    }
+}
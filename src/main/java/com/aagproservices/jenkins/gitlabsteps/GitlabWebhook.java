@@ -0,0 +1,128 @@
+package com.aagproservices.jenkins.gitlabsteps;
+
+import com.aagproservices.jenkins.gitlabsteps.service.GitlabEvents;
+import com.aagproservices.jenkins.gitlabsteps.util.JsonUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import hudson.Extension;
+import hudson.model.UnprotectedRootAction;
+import hudson.security.csrf.CrumbExclusion;
+import hudson.util.Secret;
+import okhttp3.HttpUrl;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.interceptor.RequirePOST;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Endpoint for Gitlab webhooks ("&lt;Jenkins URL&gt;/gitlab-steps-webhook/") receiving pipeline, merge request and tag
+ * push events, see {@link GitlabEvents}. Builds waiting for a pipeline or a merge are woken up right away instead of
+ * at their next poll. The endpoint only accepts events carrying the secret token of the global configuration in the
+ * "X-Gitlab-Token" header, and is disabled as long as no token is configured.
+ */
+@Extension
+public class GitlabWebhook implements UnprotectedRootAction {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GitlabWebhook.class);
+
+    public static final String URL_NAME = "gitlab-steps-webhook";
+
+    private static final String TOKEN_HEADER = "X-Gitlab-Token";
+
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Gitlab Steps Webhook";
+    }
+
+    @Override
+    public String getUrlName() {
+        return URL_NAME;
+    }
+
+    /**
+     * Receives an event.
+     *
+     * @param request The request sent by Gitlab.
+     * @return 200 once the event was handed over, 403 for a wrong token and 404 if the webhook is disabled.
+     */
+    @RequirePOST
+    public HttpResponse doIndex(final StaplerRequest request) throws IOException {
+        Secret secret = GitlabStepsConfiguration.get().getWebhookSecret();
+        String expected = secret == null ? "" : secret.getPlainText();
+        if (expected == null || expected.isEmpty()) {
+            return HttpResponses.notFound();
+        }
+        String token = request.getHeader(TOKEN_HEADER);
+        if (token == null || !MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), expected.getBytes(StandardCharsets.UTF_8))) {
+            return HttpResponses.forbidden();
+        }
+
+        JsonNode event;
+        try {
+            event = JsonUtil.getMapper().readTree(request.getInputStream());
+        } catch (JsonProcessingException ex) {
+            return HttpResponses.errorWithoutStack(400, "Invalid event: " + ex.getOriginalMessage());
+        }
+        if (event == null) {
+            return HttpResponses.errorWithoutStack(400, "Empty event");
+        }
+
+        String kind = event.path("object_kind").asText();
+        String projectPath = event.path("project").path("path_with_namespace").asText(null);
+        HttpUrl projectUrl = HttpUrl.parse(event.path("project").path("web_url").asText(""));
+        if (projectPath == null || projectUrl == null) {
+            // e.g. a test event of an unsupported kind
+            return HttpResponses.ok();
+        }
+
+        String host = projectUrl.host();
+        switch (kind) {
+            case "pipeline":
+                GitlabEvents.pipelineChanged(host, projectPath, event.path("merge_request").path("iid").asInt(0));
+                break;
+            case "merge_request":
+                GitlabEvents.mergeRequestChanged(host, projectPath, event.path("object_attributes").path("iid").asInt(0));
+                break;
+            case "tag_push":
+                GitlabEvents.tagPushed(host, projectPath);
+                break;
+            default:
+                LOGGER.debug("Ignoring Gitlab event of kind " + kind + " for " + projectPath);
+        }
+        return HttpResponses.ok();
+    }
+
+    /**
+     * Lets the events through without a CSRF crumb, Gitlab authenticates with the secret token instead.
+     */
+    @Extension
+    public static class WebhookCrumbExclusion extends CrumbExclusion {
+
+        @Override
+        public boolean process(final HttpServletRequest request, final HttpServletResponse response, final FilterChain chain)
+                throws IOException, ServletException {
+            String path = request.getPathInfo();
+            if (path != null && (path.equals("/" + URL_NAME) || path.startsWith("/" + URL_NAME + "/"))) {
+                chain.doFilter(request, response);
+                return true;
+            }
+            return false;
+        }
+    }
+}
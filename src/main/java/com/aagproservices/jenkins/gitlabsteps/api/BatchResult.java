@@ -0,0 +1,74 @@
+package com.aagproservices.jenkins.gitlabsteps.api;
+
+import java.io.Serializable;
+
+/**
+ * @param <T> The type of the value of a successful item.
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Outcome of a single item of a batch step. A failed item does not abort the batch, its error is reported here.
+ */
+public class BatchResult<T extends Serializable> implements Serializable {
+
+    private static final long serialVersionUID = 2841390267751408093L;
+
+    private final String key;
+    private final boolean success;
+    private final T value;
+    private final String error;
+
+    private BatchResult(final String key, final boolean success, final T value, final String error) {
+        this.key = key;
+        this.success = success;
+        this.value = value;
+        this.error = error;
+    }
+
+    public static <T extends Serializable> BatchResult<T> success(final String key, final T value) {
+        return new BatchResult<>(key, true, value, null);
+    }
+
+    public static <T extends Serializable> BatchResult<T> failure(final String key, final String error) {
+        return new BatchResult<>(key, false, null, error);
+    }
+
+    /**
+     * Returns the key identifying the item, e.g. "group/project:v1.0".
+     *
+     * @return The key.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * Returns the result of the item.
+     *
+     * @return The result, null if the item failed.
+     */
+    public T getValue() {
+        return value;
+    }
+
+    /**
+     * Returns the error message of the item.
+     *
+     * @return The error message, null if the item succeeded.
+     */
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult {" +
+            "key='" + key + "'" +
+            ", success=" + success +
+            (success ? ", value=" + value : ", error='" + error + "'") +
+            "}";
+    }
+}
@@ -14,7 +14,7 @@ import java.util.Map;
  * @version 0.1.0
  */
 @JsonInclude(JsonInclude.Include.NON_NULL)
-public class Branch implements Serializable {
+public class Branch implements Serializable, TimedResult {
 
     private static final long serialVersionUID = 4246867143258684246L;
 
@@ -30,6 +30,9 @@ public class Branch implements Serializable {
     @JsonIgnore
     private Map<String, Object> unmappedFields = new HashMap<>();
 
+    @JsonIgnore
+    private Map<String, Long> timings;
+
     public String getName() {
         return name;
     }
@@ -63,6 +66,16 @@ public class Branch implements Serializable {
         this.unmappedFields.put(name, value);
     }
 
+    @Override
+    public Map<String, Long> getTimings() {
+        return timings;
+    }
+
+    @Override
+    public void setTimings(Map<String, Long> timings) {
+        this.timings = timings;
+    }
+
     @Override
     public String toString() {
         return "Branch {" +
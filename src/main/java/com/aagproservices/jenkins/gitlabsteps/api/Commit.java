@@ -0,0 +1,96 @@
+package com.aagproservices.jenkins.gitlabsteps.api;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * A commit as returned by Gitlab. Only the identifying attributes are kept.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class Commit implements Serializable, TimedResult {
+
+    private static final long serialVersionUID = -6920467283517016024L;
+
+    @JsonProperty("id")
+    private String id;
+
+    @JsonProperty("short_id")
+    private String shortId;
+
+    @JsonProperty("title")
+    private String title;
+
+    @JsonProperty("message")
+    private String message;
+
+    @JsonProperty("web_url")
+    private String webUrl;
+
+    @JsonIgnore
+    private Map<String, Long> timings;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getShortId() {
+        return shortId;
+    }
+
+    public void setShortId(String shortId) {
+        this.shortId = shortId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public String getWebUrl() {
+        return webUrl;
+    }
+
+    public void setWebUrl(String webUrl) {
+        this.webUrl = webUrl;
+    }
+
+    @Override
+    public Map<String, Long> getTimings() {
+        return timings;
+    }
+
+    @Override
+    public void setTimings(Map<String, Long> timings) {
+        this.timings = timings;
+    }
+
+    @Override
+    public String toString() {
+        return "Commit {" +
+            "id='" + id + "'" +
+            ", title='" + title + "'" +
+            ", webUrl='" + webUrl + "'" +
+            "}";
+    }
+}
@@ -0,0 +1,128 @@
+package com.aagproservices.jenkins.gitlabsteps.api;
+
+import hudson.Extension;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import javax.annotation.Nonnull;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * A single file action of a commit. Without an action the file gets created or updated, depending on whether it
+ * already exists in the branch.
+ */
+public class CommitAction extends AbstractDescribableImpl<CommitAction> implements Serializable {
+
+    private static final long serialVersionUID = 5163921870428150177L;
+
+    public static final String CREATE = "create";
+    public static final String UPDATE = "update";
+    public static final String DELETE = "delete";
+    public static final String MOVE = "move";
+    public static final String CHMOD = "chmod";
+    public static final List<String> ACTIONS = Collections.unmodifiableList(Arrays.asList(CREATE, UPDATE, DELETE, MOVE, CHMOD));
+
+    private final String action;
+    private final String filePath;
+    private final String previousPath;
+    private final String source;
+
+    /**
+     * Constructor.
+     *
+     * @param action
+     *        One of {@link #ACTIONS}, empty to create or update the file
+     * @param filePath
+     *        Path of the file in the repository
+     * @param previousPath
+     *        Previous path of a moved file
+     * @param source
+     *        Workspace path of the new content, empty for the same path as in the repository
+     */
+    @DataBoundConstructor
+    public CommitAction(final String action, final String filePath, final String previousPath, final String source) {
+        this.action = action;
+        this.filePath = filePath;
+        this.previousPath = previousPath;
+        this.source = source;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public String getPreviousPath() {
+        return previousPath;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Returns a copy of this action with the given action.
+     *
+     * @param resolved The action to use.
+     * @return The copy.
+     */
+    public CommitAction withAction(final String resolved) {
+        return new CommitAction(resolved, filePath, previousPath, source);
+    }
+
+    /**
+     * Tells whether the action was left to be chosen depending on the existence of the file.
+     *
+     * @return True if no action was given.
+     */
+    public boolean isCreateOrUpdate() {
+        return action == null || action.isEmpty();
+    }
+
+    /**
+     * Tells whether the action sends the content of the file.
+     *
+     * @return True for create, update and move actions.
+     */
+    public boolean hasContent() {
+        return CREATE.equals(action) || UPDATE.equals(action) || (MOVE.equals(action) && source != null && !source.isEmpty());
+    }
+
+    /**
+     * Returns the workspace path of the new content.
+     *
+     * @return The source, or the path in the repository if no source was given.
+     */
+    public String getEffectiveSource() {
+        return source == null || source.isEmpty() ? filePath : source;
+    }
+
+    @Override
+    public String toString() {
+        return "CommitAction {" +
+            "action='" + action + "'" +
+            ", filePath='" + filePath + "'" +
+            ", previousPath='" + previousPath + "'" +
+            ", source='" + source + "'" +
+            "}";
+    }
+
+    @Extension
+    public static class DescriptorImpl extends Descriptor<CommitAction> {
+
+        @Nonnull
+        @Override
+        public String getDisplayName() {
+            return "File action";
+        }
+    }
+}
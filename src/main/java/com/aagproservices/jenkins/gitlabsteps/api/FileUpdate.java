@@ -1,5 +1,6 @@
 package com.aagproservices.jenkins.gitlabsteps.api;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
 import com.fasterxml.jackson.annotation.JsonAnySetter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
@@ -14,11 +15,12 @@ import java.util.Map;
  * @version 0.1.0
  */
 @JsonInclude(JsonInclude.Include.NON_NULL)
-public class FileUpdate implements Serializable {
+public class FileUpdate implements Serializable, TimedResult {
 
     private static final long serialVersionUID = 424686714325347246L;
 
     @JsonProperty("file")
+    @JsonAlias("file_path")
     private String file;
 
     @JsonProperty("message")
@@ -27,9 +29,15 @@ public class FileUpdate implements Serializable {
     @JsonProperty("branch")
     private String branch;
 
+    @JsonIgnore
+    private boolean committed;
+
     @JsonIgnore
     private Map<String, Object> unmappedFields = new HashMap<>();
 
+    @JsonIgnore
+    private Map<String, Long> timings;
+
     public String getFile() {
         return file;
     }
@@ -54,6 +62,19 @@ public class FileUpdate implements Serializable {
         this.branch = branch;
     }
 
+    /**
+     * Tells whether a commit was made, false if the update was skipped because the content did not change.
+     *
+     * @return True if the file was committed.
+     */
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    public void setCommitted(boolean committed) {
+        this.committed = committed;
+    }
+
     public Map<String, Object> getUnmappedFields() {
         return unmappedFields;
     }
@@ -63,12 +84,23 @@ public class FileUpdate implements Serializable {
         this.unmappedFields.put(name, value);
     }
 
+    @Override
+    public Map<String, Long> getTimings() {
+        return timings;
+    }
+
+    @Override
+    public void setTimings(Map<String, Long> timings) {
+        this.timings = timings;
+    }
+
     @Override
     public String toString() {
         return "FileUpdate {" +
             "file='" + file + "'" +
             ", message='" + message + "'" +
             ", branch='" + branch + "'" +
+            ", committed=" + committed +
             ", unmappedFields=" + unmappedFields +
             "}";
     }
@@ -0,0 +1,124 @@
+package com.aagproservices.jenkins.gitlabsteps.api;
+
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class Pipeline implements Serializable, TimedResult {
+
+    private static final long serialVersionUID = -2381740416957724513L;
+
+    @JsonProperty("id")
+    private Long id;
+
+    @JsonProperty("sha")
+    private String sha;
+
+    @JsonProperty("ref")
+    private String ref;
+
+    @JsonProperty("status")
+    private String status;
+
+    @JsonProperty("web_url")
+    private String webUrl;
+
+    @JsonProperty("updated_at")
+    private String updatedAt;
+
+    @JsonIgnore
+    private Map<String, Object> unmappedFields = new HashMap<>();
+
+    @JsonIgnore
+    private Map<String, Long> timings;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getSha() {
+        return sha;
+    }
+
+    public void setSha(String sha) {
+        this.sha = sha;
+    }
+
+    public String getRef() {
+        return ref;
+    }
+
+    public void setRef(String ref) {
+        this.ref = ref;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getWebUrl() {
+        return webUrl;
+    }
+
+    public void setWebUrl(String webUrl) {
+        this.webUrl = webUrl;
+    }
+
+    public String getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(String updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public Map<String, Object> getUnmappedFields() {
+        return unmappedFields;
+    }
+
+    @JsonAnySetter
+    public void setUnmappedFields(String name, Object value) {
+        this.unmappedFields.put(name, value);
+    }
+
+    @Override
+    public Map<String, Long> getTimings() {
+        return timings;
+    }
+
+    @Override
+    public void setTimings(Map<String, Long> timings) {
+        this.timings = timings;
+    }
+
+    @Override
+    public String toString() {
+        return "Pipeline {" +
+            "id=" + id +
+            ", sha='" + sha + "'" +
+            ", ref='" + ref + "'" +
+            ", status='" + status + "'" +
+            ", webUrl='" + webUrl + "'" +
+            ", updatedAt='" + updatedAt + "'" +
+            ", unmappedFields=" + unmappedFields +
+            "}";
+    }
+}
@@ -1,5 +1,6 @@
 package com.aagproservices.jenkins.gitlabsteps.api;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
 import com.fasterxml.jackson.annotation.JsonAnySetter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
@@ -14,10 +15,16 @@ import java.util.Map;
  * @version 0.1.0
  */
 @JsonInclude(JsonInclude.Include.NON_NULL)
-public class PullRequest implements Serializable {
+public class PullRequest implements Serializable, TimedResult {
 
     private static final long serialVersionUID = 424686714325347246L;
 
+    @JsonProperty("id")
+    private Integer id;
+
+    @JsonProperty("iid")
+    private Integer iid;
+
     @JsonProperty("title")
     private String title;
 
@@ -25,14 +32,47 @@ public class PullRequest implements Serializable {
     private String description;
 
     @JsonProperty("fromRef")
+    @JsonAlias("source_branch")
     private String fromRef;
 
     @JsonProperty("toRef")
+    @JsonAlias("target_branch")
     private String toRef;
 
+    @JsonProperty("state")
+    private String state;
+
+    @JsonProperty("merge_status")
+    private String mergeStatus;
+
+    @JsonProperty("sha")
+    private String sha;
+
+    @JsonProperty("merge_when_pipeline_succeeds")
+    private Boolean mergeWhenPipelineSucceeds;
+
     @JsonIgnore
     private Map<String, Object> unmappedFields = new HashMap<>();
 
+    @JsonIgnore
+    private Map<String, Long> timings;
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Integer getIid() {
+        return iid;
+    }
+
+    public void setIid(Integer iid) {
+        this.iid = iid;
+    }
+
     public String getTitle() {
         return title;
     }
@@ -65,6 +105,38 @@ public class PullRequest implements Serializable {
         this.toRef = to;
     }
 
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public String getMergeStatus() {
+        return mergeStatus;
+    }
+
+    public void setMergeStatus(String mergeStatus) {
+        this.mergeStatus = mergeStatus;
+    }
+
+    public String getSha() {
+        return sha;
+    }
+
+    public void setSha(String sha) {
+        this.sha = sha;
+    }
+
+    public Boolean getMergeWhenPipelineSucceeds() {
+        return mergeWhenPipelineSucceeds;
+    }
+
+    public void setMergeWhenPipelineSucceeds(Boolean mergeWhenPipelineSucceeds) {
+        this.mergeWhenPipelineSucceeds = mergeWhenPipelineSucceeds;
+    }
+
     public Map<String, Object> getUnmappedFields() {
         return unmappedFields;
     }
@@ -74,13 +146,29 @@ public class PullRequest implements Serializable {
         this.unmappedFields.put(name, value);
     }
 
+    @Override
+    public Map<String, Long> getTimings() {
+        return timings;
+    }
+
+    @Override
+    public void setTimings(Map<String, Long> timings) {
+        this.timings = timings;
+    }
+
     @Override
     public String toString() {
-        return "Tag {" +
-            "title='" + title + "'" +
+        return "PullRequest {" +
+            "id=" + id +
+            ", iid=" + iid +
+            ", title='" + title + "'" +
             ", description='" + description + "'" +
             ", fromRef='" + fromRef + "'" +
             ", toRef='" + toRef + "'" +
+            ", state='" + state + "'" +
+            ", mergeStatus='" + mergeStatus + "'" +
+            ", sha='" + sha + "'" +
+            ", mergeWhenPipelineSucceeds=" + mergeWhenPipelineSucceeds +
             ", unmappedFields=" + unmappedFields +
             "}";
     }
@@ -0,0 +1,125 @@
+package com.aagproservices.jenkins.gitlabsteps.api;
+
+import hudson.Extension;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import javax.annotation.Nonnull;
+import java.io.Serializable;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * A ref (tag or branch) to create in a repository, used as item of the batch steps. Project and repository slug may
+ * be left empty to use the ones of the step.
+ */
+public class RefSpec extends AbstractDescribableImpl<RefSpec> implements Serializable {
+
+    private static final long serialVersionUID = -1784205520397263185L;
+
+    private final String project;
+    private final String repoSlug;
+    private final String name;
+    private final String message;
+    private final String startPoint;
+
+    /**
+     * Constructor.
+     *
+     * @param project
+     *        Project or username where the repo is located, empty for the one of the step
+     * @param repoSlug
+     *        Repository slug, empty for the one of the step
+     * @param name
+     *        Name of the ref to create
+     * @param message
+     *        Description of the ref (tags only)
+     * @param startPoint
+     *        Branch/commit/etc. to create the ref on
+     */
+    @DataBoundConstructor
+    public RefSpec(final String project, final String repoSlug, final String name, final String message, final String startPoint) {
+        this.project = project;
+        this.repoSlug = repoSlug;
+        this.name = name;
+        this.message = message;
+        this.startPoint = startPoint;
+    }
+
+    public String getProject() {
+        return project;
+    }
+
+    public String getRepoSlug() {
+        return repoSlug;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public String getStartPoint() {
+        return startPoint;
+    }
+
+    /**
+     * Returns the project, falling back to the given default.
+     *
+     * @param defaultProject The project of the step.
+     * @return The project to use.
+     */
+    public String getProject(final String defaultProject) {
+        return project == null || project.isEmpty() ? defaultProject : project;
+    }
+
+    /**
+     * Returns the repository slug, falling back to the given default.
+     *
+     * @param defaultRepoSlug The repository slug of the step.
+     * @return The repository slug to use.
+     */
+    public String getRepoSlug(final String defaultRepoSlug) {
+        return repoSlug == null || repoSlug.isEmpty() ? defaultRepoSlug : repoSlug;
+    }
+
+    public Tag toTag() {
+        Tag tag = new Tag();
+        tag.setName(name);
+        tag.setMessage(message);
+        tag.setStartPoint(startPoint);
+        return tag;
+    }
+
+    public Branch toBranch() {
+        Branch branch = new Branch();
+        branch.setName(name);
+        branch.setMessage(message);
+        branch.setStartPoint(startPoint);
+        return branch;
+    }
+
+    @Override
+    public String toString() {
+        return "RefSpec {" +
+            "project='" + project + "'" +
+            ", repoSlug='" + repoSlug + "'" +
+            ", name='" + name + "'" +
+            ", startPoint='" + startPoint + "'" +
+            "}";
+    }
+
+    @Extension
+    public static class DescriptorImpl extends Descriptor<RefSpec> {
+
+        @Nonnull
+        @Override
+        public String getDisplayName() {
+            return "Ref";
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.aagproservices.jenkins.gitlabsteps.api;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
 import com.fasterxml.jackson.annotation.JsonAnySetter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
@@ -14,7 +15,7 @@ import java.util.Map;
  * @version 0.1.0
  */
 @JsonInclude(JsonInclude.Include.NON_NULL)
-public class Tag implements Serializable {
+public class Tag implements Serializable, TimedResult {
 
     private static final long serialVersionUID = 4246867143258684246L;
 
@@ -25,11 +26,15 @@ public class Tag implements Serializable {
     private String message;
 
     @JsonProperty("startPoint")
+    @JsonAlias("target")
     private String startPoint;
 
     @JsonIgnore
     private Map<String, Object> unmappedFields = new HashMap<>();
 
+    @JsonIgnore
+    private Map<String, Long> timings;
+
     public String getName() {
         return name;
     }
@@ -63,6 +68,16 @@ public class Tag implements Serializable {
         this.unmappedFields.put(name, value);
     }
 
+    @Override
+    public Map<String, Long> getTimings() {
+        return timings;
+    }
+
+    @Override
+    public void setTimings(Map<String, Long> timings) {
+        this.timings = timings;
+    }
+
     @Override
     public String toString() {
         return "Tag {" +
@@ -0,0 +1,21 @@
+package com.aagproservices.jenkins.gitlabsteps.api;
+
+import java.util.Map;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Result of a step which can carry the timing breakdown of the step, see the "reportTimings" option of the steps.
+ */
+public interface TimedResult {
+
+    /**
+     * Returns where the time of the step went.
+     *
+     * @return Milliseconds per phase ("credentials", "dns", "connect", "tls", "write", "firstByte", "parse",
+     * "total") plus the number of "requests", null if the step did not report its timings.
+     */
+    Map<String, Long> getTimings();
+
+    void setTimings(Map<String, Long> timings);
+}
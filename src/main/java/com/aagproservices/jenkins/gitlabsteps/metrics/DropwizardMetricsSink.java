@@ -0,0 +1,39 @@
+package com.aagproservices.jenkins.gitlabsteps.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import jenkins.metrics.api.Metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Publishes the measurements to the Dropwizard registry of the Jenkins Metrics plugin. Only loaded if the plugin is
+ * installed.
+ */
+final class DropwizardMetricsSink implements MetricsSink {
+
+    @Override
+    public void time(final String name, final long duration, final TimeUnit unit) {
+        MetricRegistry registry = Metrics.metricRegistry();
+        if (registry != null) {
+            registry.timer(name).update(duration, unit);
+        }
+    }
+
+    @Override
+    public void histogram(final String name, final long value) {
+        MetricRegistry registry = Metrics.metricRegistry();
+        if (registry != null) {
+            registry.histogram(name).update(value);
+        }
+    }
+
+    @Override
+    public void count(final String name, final long increment) {
+        MetricRegistry registry = Metrics.metricRegistry();
+        if (registry != null) {
+            registry.counter(name).inc(increment);
+        }
+    }
+}
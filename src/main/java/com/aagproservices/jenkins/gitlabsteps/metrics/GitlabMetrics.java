@@ -0,0 +1,150 @@
+package com.aagproservices.jenkins.gitlabsteps.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Facade for the metrics of the requests sent to Gitlab. The metrics are published through the Jenkins Metrics
+ * plugin if it is installed and dropped otherwise. Metric names start with "gitlab-steps.":
+ * <ul>
+ * <li>"request.&lt;function&gt;.&lt;method&gt;.&lt;endpoint&gt;.&lt;status&gt;": timer of the requests, e.g.
+ * "request.gitlabCreateTag.POST.projects/:project/repository/tags.201"; failed requests have the status "error"</li>
+ * <li>"response-bytes.&lt;method&gt;.&lt;endpoint&gt;": histogram of the response sizes</li>
+ * <li>"bytes-sent", "bytes-received", "retries", "rate-limited", "circuit-breaker-rejections", "cache.hits",
+ * "cache.revalidations", "cache.misses": counters</li>
+ * </ul>
+ */
+public final class GitlabMetrics {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GitlabMetrics.class);
+
+    private static final String PREFIX = "gitlab-steps.";
+    private static final String METRICS_CLASS = "jenkins.metrics.api.Metrics";
+
+    private static volatile MetricsSink sink;
+
+    /**
+     * Private constructor.
+     */
+    private GitlabMetrics() {
+    }
+
+    /**
+     * Records a request which got a response.
+     *
+     * @param function   Function name of the step which sent the request.
+     * @param method     HTTP method.
+     * @param endpoint   Endpoint template, see {@link com.aagproservices.jenkins.gitlabsteps.util.HttpUtil#endpointTemplate}.
+     * @param statusCode Status code of the response.
+     * @param nanos      Time from sending the request until the response headers arrived.
+     */
+    public static void requestCompleted(final String function, final String method, final String endpoint,
+                                        final int statusCode, final long nanos) {
+        sink().time(PREFIX + "request." + function + "." + method + "." + endpoint + "." + statusCode, nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records a request which failed without a response, e.g. because of a timeout.
+     *
+     * @param function Function name of the step which sent the request.
+     * @param method   HTTP method.
+     * @param endpoint Endpoint template.
+     * @param nanos    Time from sending the request until it failed.
+     */
+    public static void requestFailed(final String function, final String method, final String endpoint, final long nanos) {
+        sink().time(PREFIX + "request." + function + "." + method + "." + endpoint + ".error", nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the size of a response body.
+     *
+     * @param method   HTTP method.
+     * @param endpoint Endpoint template.
+     * @param bytes    Size of the body as received, i.e. before it got decompressed.
+     */
+    public static void responseSize(final String method, final String endpoint, final long bytes) {
+        sink().histogram(PREFIX + "response-bytes." + method + "." + endpoint, bytes);
+    }
+
+    /**
+     * Counts the bytes of a request body sent to Gitlab.
+     *
+     * @param bytes Size of the request body.
+     */
+    public static void bytesSent(final long bytes) {
+        sink().count(PREFIX + "bytes-sent", bytes);
+    }
+
+    /**
+     * Counts the bytes of a response body received from Gitlab.
+     *
+     * @param bytes Size of the response body as received.
+     */
+    public static void bytesReceived(final long bytes) {
+        sink().count(PREFIX + "bytes-received", bytes);
+    }
+
+    /**
+     * Counts a request which is sent again after a transient failure.
+     */
+    public static void retry() {
+        sink().count(PREFIX + "retries", 1);
+    }
+
+    /**
+     * Counts a request which Gitlab rejected because of its rate limit and which is queued again.
+     */
+    public static void rateLimited() {
+        sink().count(PREFIX + "rate-limited", 1);
+    }
+
+    /**
+     * Counts a request which was not sent because the circuit breaker of its host is open.
+     */
+    public static void circuitBreakerRejection() {
+        sink().count(PREFIX + "circuit-breaker-rejections", 1);
+    }
+
+    /**
+     * Counts a request answered from the response cache without contacting Gitlab.
+     */
+    public static void cacheHit() {
+        sink().count(PREFIX + "cache.hits", 1);
+    }
+
+    /**
+     * Counts a cached response which Gitlab confirmed as still valid (304).
+     */
+    public static void cacheRevalidation() {
+        sink().count(PREFIX + "cache.revalidations", 1);
+    }
+
+    /**
+     * Counts a cacheable request which had to be answered by Gitlab.
+     */
+    public static void cacheMiss() {
+        sink().count(PREFIX + "cache.misses", 1);
+    }
+
+    private static MetricsSink sink() {
+        MetricsSink current = sink;
+        if (current == null) {
+            current = createSink();
+            sink = current;
+        }
+        return current;
+    }
+
+    private static MetricsSink createSink() {
+        try {
+            Class.forName(METRICS_CLASS, false, GitlabMetrics.class.getClassLoader());
+            return new DropwizardMetricsSink();
+        } catch (ClassNotFoundException | LinkageError e) {
+            LOGGER.debug("Metrics plugin is not installed, metrics of the Gitlab requests are not recorded");
+            return MetricsSink.NONE;
+        }
+    }
+}
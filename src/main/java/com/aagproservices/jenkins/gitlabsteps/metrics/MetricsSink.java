@@ -0,0 +1,35 @@
+package com.aagproservices.jenkins.gitlabsteps.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Receives the measurements of {@link GitlabMetrics}; decouples the plugin from the metrics library, which is an
+ * optional dependency.
+ */
+interface MetricsSink {
+
+    /**
+     * Sink which drops all the measurements, used if the Metrics plugin is not installed.
+     */
+    MetricsSink NONE = new MetricsSink() {
+        @Override
+        public void time(final String name, final long duration, final TimeUnit unit) {
+        }
+
+        @Override
+        public void histogram(final String name, final long value) {
+        }
+
+        @Override
+        public void count(final String name, final long increment) {
+        }
+    };
+
+    void time(String name, long duration, TimeUnit unit);
+
+    void histogram(String name, long value);
+
+    void count(String name, long increment);
+}
@@ -1,34 +1,63 @@
 package com.aagproservices.jenkins.gitlabsteps.service;
 
+import com.aagproservices.jenkins.gitlabsteps.metrics.GitlabMetrics;
 import com.aagproservices.jenkins.gitlabsteps.util.HttpUtil;
+import com.aagproservices.jenkins.gitlabsteps.util.JsonUtil;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jenkins.util.Timer;
 import okhttp3.*;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLSocketFactory;
-import javax.net.ssl.TrustManager;
 import javax.ws.rs.BadRequestException;
+import javax.ws.rs.HttpMethod;
 import java.io.File;
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.security.KeyManagementException;
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 public abstract class BaseService {
     private static final Logger LOGGER = LoggerFactory.getLogger(BaseService.class);
-    private static final String TAG = "[GITLAB_STEPS] ";
+    protected static final String TAG = "[GITLAB_STEPS] ";
+    /**
+     * Start of the message of the exception thrown for an error response, followed by the status code.
+     */
+    protected static final String ERROR_RESPONSE = "Error response from server (";
 
-    private static final String SSL_INSTANCE_TYPE = "SSL";
     private static final String AUTHORIZATION_HEADER = "Authorization";
+    private static final String NEXT_PAGE_HEADER = "X-Next-Page";
+    private static final String LINK_HEADER = "Link";
+    private static final String PROJECT_NOT_FOUND = "404 Project Not Found";
+    private static final long PROJECT_NOT_FOUND_PEEK_BYTES = 256;
+    private static final MediaType JSON_MEDIA_TYPE = MediaType.parse(javax.ws.rs.core.MediaType.APPLICATION_JSON);
+    protected static final ObjectMapper MAPPER = JsonUtil.getMapper();
     protected static final String BASE_RESOURCE = "/api/v4";
+    protected static final String PAGE_SIZE_PARAM = "per_page";
+    public static final int MAX_PAGE_SIZE = 100;
+    private static final String UNKNOWN_FUNCTION = "unknown";
+
+    private RetryPolicy retryPolicy = RetryPolicy.NONE;
+    private String functionName = UNKNOWN_FUNCTION;
+    private String jobId;
+    private StepTimings timings;
 
     BaseService() {
     }
@@ -55,121 +84,670 @@ public abstract class BaseService {
                                    final RequestBody requestBody, final Map<String, String> queryParams) {
         Request.Builder requestBuilder = new Request.Builder();
         requestBuilder.addHeader(AUTHORIZATION_HEADER, "Bearer " + token);
+        // The project is addressed by its full path, ProjectIdResolver swaps in the numeric id once it is known
+        RequestTarget target = new RequestTarget(gitlabUrl, projectPath(project, repoSlug));
         requestBuilder.url(buildUrl(
-                        gitlabUrl
+                        target.getGitlabUrl()
                         + BASE_RESOURCE
                         + "/projects/"
-                        + project
-                        + "%2F" + repoSlug
+                        + encodePath(target.getProjectPath())
                         + "/" + requestResource,
                 queryParams));
         requestBuilder.method(httpMethod, requestBody);
+        requestBuilder.tag(target);
         return requestBuilder.build();
     }
 
-    private void checkForError(JSONObject result, String errorMessage) throws BadRequestException {
-        try {
-            String errorMsg = null;
+    /**
+     * Builds a request to a resource of a group. Unlike project requests it is always sent by path.
+     *
+     * @param group           Full path of the group, e.g. "group/subgroup".
+     * @param requestResource The resource below the group, e.g. "projects".
+     * @return The request.
+     */
+    protected Request buildGroupRequest(final String gitlabUrl, final String token, final String group,
+                                        final String requestResource, final String httpMethod,
+                                        final RequestBody requestBody, final Map<String, String> queryParams) {
+        return new Request.Builder()
+                .addHeader(AUTHORIZATION_HEADER, "Bearer " + token)
+                .url(buildUrl((gitlabUrl.endsWith("/") ? gitlabUrl.substring(0, gitlabUrl.length() - 1) : gitlabUrl)
+                        + BASE_RESOURCE + "/groups/"
+                        + encodePath(group.replace("%2F", "/").replace("%2f", "/")) + "/" + requestResource, queryParams))
+                .method(httpMethod, requestBody)
+                .build();
+    }
 
-            if (result.has("error")) {
-                Object val = result.get("error");
-                errorMsg = val == null ? null : val.toString();
-            }
+    /**
+     * Returns the full path of a project. The group may contain subgroups ("group/subgroup"); paths which were
+     * already encoded by the caller are accepted as well.
+     *
+     * @param project  Group or user, including subgroups.
+     * @param repoSlug Repository slug.
+     * @return The unencoded path, e.g. "group/subgroup/repo".
+     */
+    protected static String projectPath(final String project, final String repoSlug) {
+        return (project + "/" + repoSlug).replace("%2F", "/").replace("%2f", "/");
+    }
 
-            if (errorMsg != null) {
-                LOGGER.error("Error response from server: " + errorMsg);
-                throw new BadRequestException(errorMessage + " - " + errorMsg);
-            }
-        } catch (Exception e) {
-            throw new BadRequestException(errorMessage + " - " + e.getMessage(), e);
+    /**
+     * Encodes a path (e.g. of a project or a file) as a single URL path segment.
+     *
+     * @param path The path.
+     * @return The encoded path.
+     */
+    static String encodePath(final String path) {
+        try {
+            return URLEncoder.encode(path, "UTF-8").replace("+", "%20");
+        } catch (UnsupportedEncodingException ex) {
+            // UTF-8 is always supported
+            throw new IllegalStateException(ex);
         }
     }
 
-    private JSONObject getJSONObject(String json) {
+    /**
+     * Serializes the given value (e.g. a Jackson {@code ObjectNode}) into a JSON request body.
+     *
+     * @param value The value to serialize.
+     * @return The request body.
+     */
+    protected RequestBody jsonBody(final Object value) {
         try {
-            return new JSONObject(json);
-        } catch (JSONException ex) {
-            return null;
+            return RequestBody.create(JSON_MEDIA_TYPE, MAPPER.writeValueAsBytes(value));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("Unable to serialize request body", ex);
         }
     }
 
-    private JSONArray getJSONOArray(String json) {
-        try {
-            return new JSONArray(json);
-        } catch (JSONException ex) {
-            return null;
+    /**
+     * Calculates the page size to request from Gitlab.
+     *
+     * @param pageSize   The requested page size, 0 for the maximum.
+     * @param maxResults The maximum number of results, 0 for no limit.
+     * @return The page size to use, never more than {@link #MAX_PAGE_SIZE}.
+     */
+    protected static int pageSize(final int pageSize, final int maxResults) {
+        int size = pageSize <= 0 ? MAX_PAGE_SIZE : Math.min(pageSize, MAX_PAGE_SIZE);
+        return maxResults > 0 ? Math.min(size, maxResults) : size;
+    }
+
+    /**
+     * Returns an iterator over all the elements of a paginated list resource. Pages are fetched lazily while the
+     * iterator is consumed, following the "Link" (or "X-Next-Page") header sent by Gitlab.
+     *
+     * @param firstPage  The request for the first page.
+     * @param type       The type of the elements.
+     * @param maxResults The maximum number of elements to return, 0 for no limit.
+     * @return Lazily fetching iterator.
+     */
+    protected <T> Iterator<T> paginate(final Request firstPage, final Class<T> type, final int maxResults,
+                                       int timeout, boolean debugMode, boolean trustAllCertificates) {
+        return new PageIterator<>(firstPage, type, maxResults, timeout, debugMode, trustAllCertificates);
+    }
+
+    /**
+     * Drains the given iterator into a list.
+     *
+     * @param iterator The iterator to drain.
+     * @return The list holding all the elements.
+     */
+    protected <T> List<T> collect(final Iterator<T> iterator) {
+        List<T> result = new ArrayList<>();
+        while (iterator.hasNext()) {
+            result.add(iterator.next());
         }
+        return result;
     }
 
-    protected Object executeRequest(final Request request, int timeout, boolean debugMode, boolean trustAllCertificates) throws BadRequestException {
-        try {
-            if (debugMode) {
-                LOGGER.info(TAG + "Request: " + request.method() + " " + request.url().toString());
-                if (request.body() != null && request.body().contentLength() > 0) {
-                    LOGGER.info(TAG + request.body().toString());
-                }
+    /**
+     * Asynchronous variant of collecting {@link #paginate}: each page is requested from the completion of the
+     * previous one and no thread waits in between.
+     *
+     * @param firstPage  The request for the first page.
+     * @param type       The type of the elements.
+     * @param maxResults The maximum number of elements to return, 0 for no limit.
+     * @return Future of all the elements, cancelling it cancels the request of the current page.
+     */
+    protected <T> CompletableFuture<List<T>> collectAsync(final Request firstPage, final Class<T> type, final int maxResults,
+                                                          int timeout, boolean debugMode, boolean trustAllCertificates) {
+        JavaType pageType = MAPPER.getTypeFactory().constructCollectionType(List.class, type);
+        Operation<List<T>> operation = new Operation<>();
+        fetchPages(operation, firstPage, pageType, new ArrayList<>(), maxResults > 0 ? maxResults : Integer.MAX_VALUE,
+                timeout, debugMode, trustAllCertificates);
+        return operation;
+    }
+
+    private <T> void fetchPages(final Operation<List<T>> operation, final Request page, final JavaType pageType,
+                                final List<T> result, final int maxResults,
+                                int timeout, boolean debugMode, boolean trustAllCertificates) {
+        operation.step(this.<ParsedResponse<List<T>>>executeAsync(page,
+                response -> new ParsedResponse<>(this.<List<T>>readBody(response, pageType, debugMode), response.headers()),
+                timeout, debugMode, trustAllCertificates)).whenComplete((parsed, failure) -> {
+            if (failure != null) {
+                operation.completeExceptionally(failure);
+                return;
+            }
+            List<T> elements = parsed.body == null ? Collections.<T>emptyList() : parsed.body;
+            for (int i = 0; i < elements.size() && result.size() < maxResults; i++) {
+                result.add(elements.get(i));
+            }
+            Request next = elements.isEmpty() || result.size() >= maxResults ? null : nextPage(page, parsed.headers);
+            if (next == null) {
+                operation.complete(result);
+            } else {
+                fetchPages(operation, next, pageType, result, maxResults, timeout, debugMode, trustAllCertificates);
+            }
+        });
+    }
+
+    /**
+     * Executes a request whose response is a single JSON object and deserializes it into the given type.
+     *
+     * @param request The request to execute.
+     * @param type    The type of the response.
+     * @return The deserialized response, null if the response has no content.
+     */
+    protected <T> T executeRequest(final Request request, final Class<T> type,
+                                   int timeout, boolean debugMode, boolean trustAllCertificates) throws BadRequestException {
+        return await(executeRequestAsync(request, type, timeout, debugMode, trustAllCertificates));
+    }
+
+    /**
+     * Asynchronous variant of {@link #executeRequest}. The request is queued on the shared dispatcher and no thread
+     * of the caller waits for the response. Cancelling the returned future cancels the HTTP call.
+     *
+     * @param request The request to execute.
+     * @param type    The type of the response.
+     * @return Future of the deserialized response.
+     */
+    protected <T> CompletableFuture<T> executeRequestAsync(final Request request, final Class<T> type,
+                                                           int timeout, boolean debugMode, boolean trustAllCertificates) {
+        return executeRequestAsync(request, type, null, timeout, debugMode, trustAllCertificates);
+    }
+
+    /**
+     * Variant of {@link #executeRequestAsync(Request, Class, int, boolean, boolean)} for requests which are not
+     * idempotent (e.g. creating a tag). They are only retried if the given recovery tells that the failed attempt
+     * did not take effect.
+     *
+     * @param request  The request to execute.
+     * @param type     The type of the response.
+     * @param recovery Looks up the result of a failed attempt, null to never retry the request.
+     * @return Future of the deserialized response.
+     */
+    protected <T> CompletableFuture<T> executeRequestAsync(final Request request, final Class<T> type, final Recovery<T> recovery,
+                                                           int timeout, boolean debugMode, boolean trustAllCertificates) {
+        JavaType javaType = MAPPER.constructType(type);
+        return executeAsync(request, response -> readBody(response, javaType, debugMode), recovery,
+                timeout, debugMode, trustAllCertificates);
+    }
+
+    /**
+     * Looks up a single resource, a 404 response means that it does not exist.
+     *
+     * @param request The GET request of the resource.
+     * @param type    The type of the resource.
+     * @return Future of the deserialized resource, of null if it does not exist.
+     */
+    protected <T> CompletableFuture<T> findAsync(final Request request, final JavaType type,
+                                                 int timeout, boolean debugMode, boolean trustAllCertificates) {
+        return executeAsync(request, response -> response.code() == 404 ? null : this.<T>readBody(response, type, debugMode),
+                timeout, debugMode, trustAllCertificates);
+    }
+
+    /**
+     * Queues the request and hands the response to the given handler on the dispatcher thread once it arrives. The
+     * response is closed after the handler returns. GET requests go through the {@link ResponseCache}, a fresh cached
+     * response is handled right away on the calling thread. GET and HEAD requests are retried according to the
+     * {@link RetryPolicy} of the service. While the {@link CircuitBreaker} of the host is open, the returned future
+     * fails right away with an {@link IllegalStateException}.
+     *
+     * @param request The request to execute.
+     * @param handler Converts the response into the result.
+     * @return Future of the result, cancelling it cancels the HTTP call.
+     */
+    protected <T> CompletableFuture<T> executeAsync(final Request request, final ResponseHandler<T> handler,
+                                                    int timeout, boolean debugMode, boolean trustAllCertificates) {
+        return executeAsync(request, handler, null, timeout, debugMode, trustAllCertificates);
+    }
+
+    /**
+     * Variant of {@link #executeAsync(Request, ResponseHandler, int, boolean, boolean)} taking the recovery of a
+     * request which is not idempotent, see {@link #executeRequestAsync(Request, Class, Recovery, int, boolean, boolean)}.
+     *
+     * @param request  The request to execute.
+     * @param handler  Converts the response into the result.
+     * @param recovery Looks up the result of a failed attempt, null to never retry a request which is not idempotent.
+     * @return Future of the result, cancelling it cancels the HTTP call.
+     */
+    protected <T> CompletableFuture<T> executeAsync(final Request request, final ResponseHandler<T> handler,
+                                                    final Recovery<T> recovery,
+                                                    int timeout, boolean debugMode, boolean trustAllCertificates) {
+        ProjectIdResolver projectIds = ProjectIdResolver.getInstance();
+        RequestTarget target = ProjectIdResolver.targetOf(request);
+        if (target != null && projectIds.getId(target) == null) {
+            projectIds.resolveInBackground(target,
+                    () -> lookupProjectId(request, target, false, timeout, debugMode, trustAllCertificates));
+        }
+        Request resolved = projectIds.rewrite(request);
+
+        if (debugMode) {
+            LOGGER.info(TAG + "Request: " + resolved.method() + " " + resolved.url().toString());
+            if (resolved.body() != null) {
+                LOGGER.info(TAG + resolved.body().toString());
+            }
+        }
+
+        ResponseCache cache = ResponseCache.getInstance();
+        ResponseCache.Lookup lookup = cache.lookup(resolved);
+        Response cached = cache.fresh(resolved, lookup, debugMode);
+        if (cached != null) {
+            GitlabMetrics.cacheHit();
+            CompletableFuture<T> hit = new CompletableFuture<>();
+            try (Response closeable = cached) {
+                hit.complete(handler.handle(closeable));
+            } catch (IOException e) {
+                hit.completeExceptionally(new IllegalArgumentException(e));
+            } catch (RuntimeException | Error e) {
+                hit.completeExceptionally(e);
             }
+            return hit;
+        }
+
+        CallFuture<T> future = new CallFuture<>();
+        send(new Exchange<>(resolved, lookup, handler, recovery, retryPolicy, functionName, jobId, timings, future,
+                timeout, debugMode, trustAllCertificates));
+        return future;
+    }
+
+    /**
+     * Returns the policy for retrying requests which failed transiently.
+     *
+     * @return The retry policy.
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
 
-            OkHttpClient client = initClient(timeout, trustAllCertificates);
-            Response response = client.newCall(request).execute();
-            ResponseBody respBody = response.body();
-            String respString = respBody == null ? "" : respBody.string();
+    /**
+     * Sets the policy for retrying requests which failed transiently, {@link RetryPolicy#NONE} by default.
+     *
+     * @param retryPolicy The retry policy.
+     */
+    public void setRetryPolicy(final RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy == null ? RetryPolicy.NONE : retryPolicy;
+    }
+
+    /**
+     * Returns the function name of the step the requests are sent for, used to tag the metrics.
+     *
+     * @return The function name.
+     */
+    public String getFunctionName() {
+        return functionName;
+    }
+
+    public void setFunctionName(final String functionName) {
+        this.functionName = functionName == null ? UNKNOWN_FUNCTION : functionName;
+    }
+
+    /**
+     * Returns the job the requests are sent for, the rate limiter takes turns between the requests of the jobs.
+     *
+     * @return The job, e.g. the id of the run, null if the requests belong to no particular job.
+     */
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(final String jobId) {
+        this.jobId = jobId;
+    }
+
+    /**
+     * Returns the timings the requests of the step are recorded in.
+     *
+     * @return The timings, null if the step does not report them.
+     */
+    public StepTimings getTimings() {
+        return timings;
+    }
 
-            if (debugMode) {
-                LOGGER.info(TAG + "Response: " + response.code() + " " + response.message());
-                LOGGER.info(TAG + respString);
+    public void setTimings(final StepTimings timings) {
+        this.timings = timings;
+    }
+
+    private <T> void send(final Exchange<T> exchange) {
+        Request request = exchange.request;
+        CallFuture<T> future = exchange.future;
+        RateLimitScheduler scheduler = RateLimitScheduler.getInstance();
+        scheduler.submit(request.url(), exchange.jobId, () -> {
+            if (future.isDone()) {
+                // Cancelled while waiting for the rate limit
+                return;
             }
 
-            JSONObject object;
-            JSONArray array;
+            CircuitBreaker breaker = CircuitBreakerRegistry.getInstance().get(request.url());
+            CircuitBreaker.Permit permit = breaker.tryAcquire();
+            if (permit == null) {
+                GitlabMetrics.circuitBreakerRejection();
+                future.completeExceptionally(new IllegalStateException(breaker.rejectionMessage()));
+                return;
+            }
 
-            if ((object = getJSONObject(respString)) != null) {
-                if(response.code() >= 400) {
-                    throw new BadRequestException("Error response from server (" + response.code() + "): " + object.toString());
+            ResponseCache cache = ResponseCache.getInstance();
+            OkHttpClient client = GitlabClientRegistry.getInstance()
+                    .getClient(request.url(), exchange.timeout, exchange.trustAllCertificates);
+            Call call = client.newCall(cache.conditional(request, exchange.lookup));
+            String endpoint = HttpUtil.endpointTemplate(request.url());
+            if (exchange.timings != null) {
+                exchange.timings.requestSent();
+            }
+            CallEventListener.track(call, request.method(), endpoint, exchange.timings);
+            future.setCall(call);
+            long started = System.nanoTime();
+            call.enqueue(new Callback() {
+                @Override
+                public void onFailure(final Call call, final IOException e) {
+                    if (call.isCanceled()) {
+                        breaker.onCancel(permit);
+                    } else {
+                        GitlabMetrics.requestFailed(exchange.functionName, request.method(), endpoint, System.nanoTime() - started);
+                        breaker.onFailure(permit, e.toString());
+                        if (retry(exchange, e.toString())) {
+                            return;
+                        }
+                        LOGGER.error("Error while executing request " + request.toString(), e);
+                    }
+                    future.completeExceptionally(new IllegalArgumentException(e));
                 }
 
-                checkForError(object, "Error response from server");
-                return object;
-            } else if((array = getJSONOArray(respString)) != null) {
-                if(response.code() >= 400) {
-                    throw new BadRequestException("Error response from server (" + response.code() + "): " + array.toString());
+                @Override
+                public void onResponse(final Call call, final Response response) {
+                    GitlabMetrics.requestCompleted(exchange.functionName, request.method(), endpoint, response.code(),
+                            System.nanoTime() - started);
+                    if (response.code() >= 500) {
+                        breaker.onFailure(permit, response.code() + " " + response.message());
+                    } else {
+                        breaker.onSuccess(permit);
+                    }
+
+                    if (scheduler.onResponse(request.url(), response)
+                            && exchange.rateLimited + 1 < RateLimitScheduler.MAX_RATE_LIMITED_ATTEMPTS) {
+                        // Queued again, the scheduler holds it back until the host accepts requests again
+                        GitlabMetrics.rateLimited();
+                        response.close();
+                        if (exchange.debugMode) {
+                            LOGGER.info(TAG + "Rate limited (" + response.code() + "), queueing again: "
+                                    + request.method() + " " + request.url().toString());
+                        }
+                        send(exchange.rateLimited());
+                        return;
+                    }
+
+                    ProjectIdResolver projectIds = ProjectIdResolver.getInstance();
+                    if (response.code() == 404 && projectIds.usesId(request)) {
+                        // Most 404s just mean the resource does not exist, only a missing project questions the id
+                        if (isProjectNotFound(response)) {
+                            response.close();
+                            retryWithPath(exchange);
+                            return;
+                        }
+                        if (HttpMethod.HEAD.equals(request.method())) {
+                            // The answer to a HEAD request does not tell what is missing, the id gets checked once
+                            response.close();
+                            verifyProjectId(exchange, response);
+                            return;
+                        }
+                    }
+
+                    if (exchange.retryPolicy.isRetryable(response.code())
+                            && retry(exchange, response.code() + " " + response.message())) {
+                        response.close();
+                        return;
+                    }
+
+                    handle(exchange, response);
                 }
-                return array;
-            } else {
-                throw new BadRequestException("Unable to parse response from server: '" + respString + "'");
+            });
+        });
+    }
+
+    private <T> void handle(final Exchange<T> exchange, final Response response) {
+        Request request = exchange.request;
+        long handling = System.nanoTime();
+        try (Response closeable = ResponseCache.getInstance().onResponse(request, exchange.lookup, response, exchange.debugMode)) {
+            exchange.future.complete(exchange.handler.handle(closeable));
+        } catch (IOException e) {
+            LOGGER.error("Error while reading response of request " + request.toString(), e);
+            exchange.future.completeExceptionally(new IllegalArgumentException(e));
+        } catch (RuntimeException | Error e) {
+            exchange.future.completeExceptionally(e);
+        } finally {
+            response.close();
+            if (exchange.timings != null) {
+                exchange.timings.add(StepTimings.Phase.PARSE, System.nanoTime() - handling);
             }
+        }
+    }
+
+    /**
+     * Tells whether a 404 response says that the project, rather than a resource of it, does not exist.
+     */
+    private static boolean isProjectNotFound(final Response response) {
+        try {
+            return response.peekBody(PROJECT_NOT_FOUND_PEEK_BYTES).string().contains(PROJECT_NOT_FOUND);
         } catch (IOException e) {
-            LOGGER.error("Error while executing request " + request.toString(), e);
-            throw new IllegalArgumentException(e);
+            return false;
         }
     }
 
-    private OkHttpClient initClient(int timeout, boolean trustAllCertificates) {
-        OkHttpClient.Builder builder = new OkHttpClient.Builder()
-                .connectTimeout(timeout, TimeUnit.SECONDS)
-                .readTimeout(timeout, TimeUnit.SECONDS)
-                .writeTimeout(timeout, TimeUnit.SECONDS);
+    /**
+     * Hands a 404 answer to a request addressed by project id to the handler once the id is known to be valid,
+     * otherwise sends the request again by path.
+     */
+    private <T> void verifyProjectId(final Exchange<T> exchange, final Response notFound) {
+        RequestTarget target = ProjectIdResolver.targetOf(exchange.request);
+        ProjectIdResolver.getInstance().verify(target, () -> lookupProjectId(exchange.request, target, true,
+                exchange.timeout, exchange.debugMode, exchange.trustAllCertificates)).whenComplete((valid, failure) -> {
+            if (exchange.future.isDone()) {
+                return;
+            }
+            if (failure == null && !valid) {
+                retryWithPath(exchange);
+            } else {
+                handle(exchange, notFound);
+            }
+        });
+    }
+
+    /**
+     * Schedules another attempt of a failed exchange if its retry policy allows it. Requests which are not idempotent
+     * are only sent again if their recovery finds that the failed attempt did not take effect.
+     *
+     * @return True if another attempt was scheduled.
+     */
+    private <T> boolean retry(final Exchange<T> exchange, final String reason) {
+        Request request = exchange.request;
+        boolean idempotent = HttpMethod.GET.equals(request.method()) || HttpMethod.HEAD.equals(request.method());
+        if (!exchange.retryPolicy.hasAttemptsLeft(exchange.attempt) || (!idempotent && exchange.recovery == null)) {
+            return false;
+        }
+
+        long delay = exchange.retryPolicy.delayMillis(exchange.attempt);
+        GitlabMetrics.retry();
+        LOGGER.warn(TAG + "Attempt " + exchange.attempt + " of " + request.method() + " " + request.url()
+                + " failed (" + reason + "), retrying in " + delay + " ms");
+        Timer.get().schedule(() -> {
+            if (exchange.future.isDone()) {
+                return;
+            }
+            if (idempotent) {
+                send(exchange.nextAttempt());
+                return;
+            }
+
+            // The failed attempt may have taken effect before the connection broke
+            exchange.recovery.recover().whenComplete((result, failure) -> {
+                if (failure == null && result != null) {
+                    if (exchange.debugMode) {
+                        LOGGER.info(TAG + "Failed attempt took effect after all: " + request.method() + " " + request.url());
+                    }
+                    exchange.future.complete(result);
+                } else if (!exchange.future.isDone()) {
+                    send(exchange.nextAttempt());
+                }
+            });
+        }, delay, TimeUnit.MILLISECONDS);
+        return true;
+    }
 
-        if (trustAllCertificates) {
-            builder = installTrustManager(builder, HttpUtil.buildAllTrustingManager())
-                    .hostnameVerifier((s, sslSession) -> true);
+    private <T> void retryWithPath(final Exchange<T> exchange) {
+        ProjectIdResolver projectIds = ProjectIdResolver.getInstance();
+        RequestTarget target = ProjectIdResolver.targetOf(exchange.request);
+        Request byPath = projectIds.withPath(exchange.request);
+        if (exchange.debugMode) {
+            LOGGER.info(TAG + "Not found by project id, retrying: " + byPath.method() + " " + byPath.url().toString());
         }
 
-        return builder.build();
+        ResponseHandler<T> invalidating = response -> {
+            if (response.code() != 404) {
+                projectIds.invalidate(target);
+            }
+            return exchange.handler.handle(response);
+        };
+        send(exchange.withRequest(byPath, ResponseCache.getInstance().lookup(byPath), invalidating));
+    }
+
+    /**
+     * Looks up the id of a project by its path.
+     *
+     * @param revalidate True to bypass the {@link ResponseCache}, e.g. to check whether a known id is still valid.
+     * @return Future of the id, null if the project was not found.
+     */
+    private CompletableFuture<Long> lookupProjectId(final Request request, final RequestTarget target, final boolean revalidate,
+                                                    int timeout, boolean debugMode, boolean trustAllCertificates) {
+        Request lookup = new Request.Builder()
+                .url(target.getGitlabUrl() + BASE_RESOURCE + "/projects/" + encodePath(target.getProjectPath()))
+                .header(AUTHORIZATION_HEADER, request.header(AUTHORIZATION_HEADER))
+                .get()
+                .build();
+        if (revalidate) {
+            lookup = uncached(lookup);
+        }
+        return executeAsync(lookup, response -> {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                return null;
+            }
+            JsonNode id = MAPPER.readTree(body.byteStream()).get("id");
+            return id != null && id.canConvertToLong() ? id.longValue() : null;
+        }, timeout, debugMode, trustAllCertificates);
     }
 
-    private OkHttpClient.Builder installTrustManager(OkHttpClient.Builder builder, final TrustManager[] allTrustingManager) {
+    /**
+     * Tells whether a request failed because Gitlab refused the access token (401), e.g. because it was revoked or
+     * replaced.
+     *
+     * @param failure The failure, possibly wrapped.
+     * @return True if the token was refused.
+     */
+    public static boolean isUnauthorized(final Throwable failure) {
+        Throwable cause = failure;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof BadRequestException && cause.getMessage() != null
+                && cause.getMessage().startsWith(ERROR_RESPONSE + "401)");
+    }
+
+    /**
+     * Waits for the given future on the calling thread. Failures are rethrown as they were raised by the request, an
+     * interrupt of the waiting thread cancels the request.
+     *
+     * @param future The future to wait for.
+     * @return The result of the future.
+     */
+    protected static <T> T await(final Future<T> future) {
         try {
-            SSLContext sslContext = SSLContext.getInstance(SSL_INSTANCE_TYPE);
-            sslContext.init(null, allTrustingManager, new SecureRandom());
-            SSLSocketFactory sslSocketFactory = sslContext.getSocketFactory();
-            return builder.socketFactory(sslSocketFactory);
-        } catch (NoSuchAlgorithmException e) {
-            //We should never land here
-            return builder;
-        } catch (KeyManagementException e) {
-            LOGGER.error("Something went wrong with the key-management", e);
-            return builder;
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the response from Gitlab", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalArgumentException(cause);
+        }
+    }
+
+    private <T> ParsedResponse<T> execute(final Request request, final JavaType type,
+                                          int timeout, boolean debugMode, boolean trustAllCertificates) throws BadRequestException {
+        return await(this.<ParsedResponse<T>>executeAsync(request,
+                response -> new ParsedResponse<>(this.<T>readBody(response, type, debugMode), response.headers()),
+                timeout, debugMode, trustAllCertificates));
+    }
+
+    /**
+     * Reads the response body in a single streaming pass. The first token tells whether Gitlab sent an object or an
+     * array. Arrays get deserialized straight into the requested type without building an intermediate tree; an
+     * object is read as a tree first, as Gitlab reports some errors with an "error" field in a successful response.
+     */
+    protected <T> T readBody(final Response response, final JavaType type, final boolean debugMode) throws IOException {
+        ResponseBody respBody = response.body();
+        String respString = null;
+        if (debugMode) {
+            respString = respBody == null ? "" : respBody.string();
+            LOGGER.info(TAG + "Response: " + response.code() + " " + response.message());
+            LOGGER.info(TAG + respString);
+        }
+
+        if (response.code() >= 400) {
+            if (respString == null) {
+                respString = respBody == null ? "" : respBody.string();
+            }
+            throw new BadRequestException(ERROR_RESPONSE + response.code() + "): " + respString);
+        }
+
+        if (respBody == null && respString == null) {
+            return null;
+        }
+
+        try (JsonParser parser = respString != null
+                ? MAPPER.getFactory().createParser(respString)
+                : MAPPER.getFactory().createParser(respBody.byteStream())) {
+            JsonToken first = parser.nextToken();
+            if (first == null) {
+                return null;
+            }
+
+            boolean expectsList = type.isCollectionLikeType();
+            if ((first == JsonToken.START_ARRAY) != expectsList) {
+                throw new BadRequestException("Unexpected response from server: expected "
+                        + (expectsList ? "a list" : "an object") + " but got " + first);
+            }
+            if (expectsList) {
+                return MAPPER.readValue(parser, type);
+            }
+            JsonNode object = MAPPER.readTree(parser);
+            checkForError(object, "Error response from server");
+            return MAPPER.readValue(MAPPER.treeAsTokens(object), type);
+        } catch (JsonProcessingException ex) {
+            throw new BadRequestException("Unable to parse response from server: " + ex.getOriginalMessage(), ex);
+        }
+    }
+
+    private void checkForError(final JsonNode result, final String errorMessage) throws BadRequestException {
+        JsonNode error = result.get("error");
+        if (error != null) {
+            String errorMsg = error.isTextual() ? error.asText() : error.toString();
+            LOGGER.error("Error response from server: " + errorMsg);
+            throw new BadRequestException(errorMessage + " - " + errorMsg);
         }
     }
 
@@ -185,4 +763,272 @@ public abstract class BaseService {
         addQueryParams(urlBuilder, queryParams);
         return urlBuilder.build();
     }
+
+    /**
+     * Returns the request for the page after the given one, or null on the last page. The "Link" header is only
+     * followed to the origin of the request, so that the token is never sent elsewhere; otherwise the page number of
+     * the "X-Next-Page" header is used.
+     */
+    static Request nextPage(final Request request, final Headers headers) {
+        String next = HttpUtil.parseNextLink(headers.get(LINK_HEADER));
+        if (next != null) {
+            HttpUrl url = HttpUrl.parse(next);
+            HttpUrl origin = request.url();
+            if (url != null && url.scheme().equals(origin.scheme()) && url.host().equals(origin.host())
+                    && url.port() == origin.port()) {
+                return request.newBuilder().url(url).build();
+            }
+            LOGGER.warn(TAG + "Ignoring the link to the next page on another origin: " + next);
+        }
+
+        String nextPage = headers.get(NEXT_PAGE_HEADER);
+        if (nextPage != null && !nextPage.trim().isEmpty()) {
+            return request.newBuilder()
+                    .url(request.url().newBuilder().setQueryParameter("page", nextPage.trim()).build())
+                    .build();
+        }
+        return null;
+    }
+
+    /**
+     * Converts a response into the result of a request.
+     */
+    @FunctionalInterface
+    protected interface ResponseHandler<T> {
+        T handle(Response response) throws IOException;
+    }
+
+    /**
+     * Marks a GET request as one which must not be answered from the {@link ResponseCache} without asking Gitlab,
+     * e.g. because it polls for a state change.
+     *
+     * @param request The request.
+     * @return The request with "Cache-Control: no-cache".
+     */
+    protected static Request uncached(final Request request) {
+        return request.newBuilder().cacheControl(CacheControl.FORCE_NETWORK).build();
+    }
+
+    /**
+     * Future of an operation made of several requests (or polls) which run one after the other. Cancelling it cancels
+     * the one running.
+     */
+    protected static final class Operation<T> extends CompletableFuture<T> {
+        private volatile Future<?> current;
+
+        /**
+         * Registers the stage which runs now.
+         *
+         * @param stage The stage.
+         * @return The stage.
+         */
+        protected <S> CompletableFuture<S> step(final CompletableFuture<S> stage) {
+            current = stage;
+            if (isCancelled()) {
+                stage.cancel(true);
+            }
+            return stage;
+        }
+
+        /**
+         * Completes the operation with the outcome of the given chain of stages.
+         *
+         * @param chain The chain.
+         * @return The operation.
+         */
+        protected Operation<T> completeWith(final CompletableFuture<T> chain) {
+            chain.whenComplete((result, failure) -> {
+                if (failure == null) {
+                    complete(result);
+                } else {
+                    completeExceptionally(failure instanceof CompletionException && failure.getCause() != null
+                            ? failure.getCause() : failure);
+                }
+            });
+            return this;
+        }
+
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            Future<?> running = current;
+            if (running != null) {
+                running.cancel(true);
+            }
+            return cancelled;
+        }
+    }
+
+    /**
+     * Finds out whether an attempt of a request which is not idempotent took effect although it failed, e.g. because
+     * the connection broke after Gitlab processed the request.
+     */
+    @FunctionalInterface
+    protected interface Recovery<T> {
+        /**
+         * Looks up the result of the request.
+         *
+         * @return Future of the result if the request took effect, of null otherwise.
+         */
+        CompletableFuture<T> recover();
+    }
+
+    /**
+     * A request together with everything needed to send it again.
+     */
+    private static final class Exchange<T> {
+        private final Request request;
+        private final ResponseCache.Lookup lookup;
+        private final ResponseHandler<T> handler;
+        private final Recovery<T> recovery;
+        private final RetryPolicy retryPolicy;
+        private final String functionName;
+        private final String jobId;
+        private final StepTimings timings;
+        private final CallFuture<T> future;
+        private final int timeout;
+        private final boolean debugMode;
+        private final boolean trustAllCertificates;
+        private final int attempt;
+        private final int rateLimited;
+
+        private Exchange(final Request request, final ResponseCache.Lookup lookup, final ResponseHandler<T> handler,
+                         final Recovery<T> recovery, final RetryPolicy retryPolicy, final String functionName,
+                         final String jobId, final StepTimings timings, final CallFuture<T> future, final int timeout,
+                         final boolean debugMode, final boolean trustAllCertificates) {
+            this(request, lookup, handler, recovery, retryPolicy, functionName, jobId, timings, future,
+                    timeout, debugMode, trustAllCertificates, 1, 0);
+        }
+
+        private Exchange(final Request request, final ResponseCache.Lookup lookup, final ResponseHandler<T> handler,
+                         final Recovery<T> recovery, final RetryPolicy retryPolicy, final String functionName,
+                         final String jobId, final StepTimings timings, final CallFuture<T> future, final int timeout,
+                         final boolean debugMode, final boolean trustAllCertificates, final int attempt,
+                         final int rateLimited) {
+            this.request = request;
+            this.lookup = lookup;
+            this.handler = handler;
+            this.recovery = recovery;
+            this.retryPolicy = retryPolicy;
+            this.functionName = functionName;
+            this.jobId = jobId;
+            this.timings = timings;
+            this.future = future;
+            this.timeout = timeout;
+            this.debugMode = debugMode;
+            this.trustAllCertificates = trustAllCertificates;
+            this.attempt = attempt;
+            this.rateLimited = rateLimited;
+        }
+
+        private Exchange<T> nextAttempt() {
+            return new Exchange<>(request, lookup, handler, recovery, retryPolicy, functionName, jobId, timings, future,
+                    timeout, debugMode, trustAllCertificates, attempt + 1, rateLimited);
+        }
+
+        private Exchange<T> rateLimited() {
+            return new Exchange<>(request, lookup, handler, recovery, retryPolicy, functionName, jobId, timings, future,
+                    timeout, debugMode, trustAllCertificates, attempt, rateLimited + 1);
+        }
+
+        private Exchange<T> withRequest(final Request request, final ResponseCache.Lookup lookup,
+                                        final ResponseHandler<T> handler) {
+            return new Exchange<>(request, lookup, handler, recovery, retryPolicy, functionName, jobId, timings, future,
+                    timeout, debugMode, trustAllCertificates, attempt, rateLimited);
+        }
+    }
+
+    /**
+     * Future of an HTTP call which cancels the call when it gets cancelled itself.
+     */
+    private static final class CallFuture<T> extends CompletableFuture<T> {
+        private volatile Call call;
+
+        private void setCall(final Call call) {
+            this.call = call;
+            if (isCancelled()) {
+                call.cancel();
+            }
+        }
+
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            Call current = call;
+            if (current != null) {
+                current.cancel();
+            }
+            return super.cancel(mayInterruptIfRunning);
+        }
+    }
+
+    /**
+     * Parsed response body together with the response headers.
+     */
+    private static final class ParsedResponse<T> {
+        private final T body;
+        private final Headers headers;
+
+        private ParsedResponse(final T body, final Headers headers) {
+            this.body = body;
+            this.headers = headers;
+        }
+    }
+
+    /**
+     * Iterator fetching the pages of a list resource on demand.
+     */
+    private final class PageIterator<T> implements Iterator<T> {
+        private final JavaType pageType;
+        private final int timeout;
+        private final boolean debugMode;
+        private final boolean trustAllCertificates;
+
+        private Request nextPage;
+        private List<T> page = Collections.emptyList();
+        private int position;
+        private int remaining;
+
+        private PageIterator(final Request firstPage, final Class<T> type, final int maxResults,
+                             int timeout, boolean debugMode, boolean trustAllCertificates) {
+            this.nextPage = firstPage;
+            this.pageType = MAPPER.getTypeFactory().constructCollectionType(List.class, type);
+            this.remaining = maxResults > 0 ? maxResults : Integer.MAX_VALUE;
+            this.timeout = timeout;
+            this.debugMode = debugMode;
+            this.trustAllCertificates = trustAllCertificates;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (remaining <= 0) {
+                return false;
+            }
+            while (position >= page.size()) {
+                if (nextPage == null) {
+                    return false;
+                }
+                fetch();
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            remaining--;
+            T element = page.get(position);
+            // Release consumed elements early, only the current page is ever kept
+            page.set(position++, null);
+            return element;
+        }
+
+        private void fetch() {
+            ParsedResponse<List<T>> response = execute(nextPage, pageType, timeout, debugMode, trustAllCertificates);
+            page = response.body == null ? Collections.<T>emptyList() : response.body;
+            position = 0;
+            nextPage = page.isEmpty() ? null : nextPage(nextPage, response.headers);
+        }
+    }
 }
@@ -0,0 +1,137 @@
+package com.aagproservices.jenkins.gitlabsteps.service;
+
+import com.aagproservices.jenkins.gitlabsteps.api.BatchResult;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * @param <I> The type of the items.
+ * @param <T> The type of the result of an item.
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Runs the asynchronous requests of a batch with a bounded number of them in flight. The next item is started from
+ * the completion of a previous one, so no thread waits for the batch. A failing item is recorded in its result and
+ * does not abort the other items.
+ */
+public final class BatchRunner<I, T extends Serializable> {
+
+    public static final int DEFAULT_CONCURRENCY = 8;
+
+    private final List<I> items;
+    private final Function<I, String> keys;
+    private final Function<I, CompletableFuture<T>> work;
+    private final AtomicReferenceArray<BatchResult<T>> results;
+    private final AtomicReferenceArray<CompletableFuture<T>> running;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger remaining;
+    private final CompletableFuture<List<BatchResult<T>>> result = new CompletableFuture<List<BatchResult<T>>>() {
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            cancelRunning();
+            return super.cancel(mayInterruptIfRunning);
+        }
+    };
+
+    private BatchRunner(final List<I> items, final Function<I, String> keys, final Function<I, CompletableFuture<T>> work) {
+        this.items = new ArrayList<>(items);
+        this.keys = keys;
+        this.work = work;
+        this.results = new AtomicReferenceArray<>(this.items.size());
+        this.running = new AtomicReferenceArray<>(this.items.size());
+        this.remaining = new AtomicInteger(this.items.size());
+    }
+
+    /**
+     * Runs the given items.
+     *
+     * @param items       The items of the batch.
+     * @param concurrency The maximum number of items in flight, 0 for {@link #DEFAULT_CONCURRENCY}.
+     * @param keys        Returns the key identifying an item in the results.
+     * @param work        Starts the request(s) of an item.
+     * @return Future of the results, in the order of the items. Cancelling it cancels the items in flight.
+     */
+    public static <I, T extends Serializable> CompletableFuture<List<BatchResult<T>>> run(
+            final List<I> items, final int concurrency,
+            final Function<I, String> keys, final Function<I, CompletableFuture<T>> work) {
+        BatchRunner<I, T> runner = new BatchRunner<>(items, keys, work);
+        if (runner.items.isEmpty()) {
+            runner.result.complete(new ArrayList<>());
+            return runner.result;
+        }
+
+        int workers = Math.min(concurrency <= 0 ? DEFAULT_CONCURRENCY : concurrency, runner.items.size());
+        for (int i = 0; i < workers; i++) {
+            runner.startNext();
+        }
+        return runner.result;
+    }
+
+    private void startNext() {
+        if (result.isDone()) {
+            return;
+        }
+        int index = next.getAndIncrement();
+        if (index >= items.size()) {
+            return;
+        }
+
+        I item = items.get(index);
+        CompletableFuture<T> future;
+        try {
+            future = work.apply(item);
+        } catch (RuntimeException e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        running.set(index, future);
+        future.whenComplete((value, failure) -> {
+            running.set(index, null);
+            String key = keys.apply(item);
+            results.set(index, failure == null
+                    ? BatchResult.success(key, value)
+                    : BatchResult.failure(key, message(failure)));
+            if (remaining.decrementAndGet() == 0) {
+                BatchResult<T>[] done = toArray();
+                result.complete(new ArrayList<>(Arrays.asList(done)));
+            } else {
+                startNext();
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private BatchResult<T>[] toArray() {
+        BatchResult<T>[] done = new BatchResult[results.length()];
+        for (int i = 0; i < done.length; i++) {
+            done[i] = results.get(i);
+        }
+        return done;
+    }
+
+    private void cancelRunning() {
+        next.set(items.size());
+        for (int i = 0; i < running.length(); i++) {
+            CompletableFuture<T> future = running.get(i);
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private static String message(final Throwable failure) {
+        Throwable cause = failure;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage() == null ? cause.toString() : cause.getMessage();
+    }
+}
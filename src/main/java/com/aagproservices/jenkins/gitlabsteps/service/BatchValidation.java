@@ -0,0 +1,83 @@
+package com.aagproservices.jenkins.gitlabsteps.service;
+
+import com.aagproservices.jenkins.gitlabsteps.api.RefSpec;
+import org.apache.commons.lang.StringUtils;
+
+import java.util.List;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Checks of the settings the batch steps share before their items are handed to the {@link BatchRunner}. Failures
+ * are reported with an {@link IllegalStateException}, like the other checks of the steps.
+ */
+public final class BatchValidation {
+
+    /**
+     * Private constructor.
+     */
+    private BatchValidation() {
+    }
+
+    /**
+     * Checks the maximum number of items in flight.
+     *
+     * @param concurrency The concurrency of the step, 0 for the default.
+     */
+    public static void validateConcurrency(final int concurrency) {
+        if (concurrency < 0) {
+            throw new IllegalStateException("The concurrency is negative");
+        }
+    }
+
+    /**
+     * Checks that a batch has items at all, an empty batch would succeed without sending a request.
+     *
+     * @param items The items of the batch, may be null.
+     * @param what  What the items are, e.g. "tags", for the message.
+     */
+    public static void validateNotEmpty(final List<?> items, final String what) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalStateException("No " + what + " given");
+        }
+    }
+
+    /**
+     * Checks the refs of a batch: each one needs a repository, either its own or the one of the step, and a name.
+     *
+     * @param refs              The refs.
+     * @param project           The project of the step, may be null.
+     * @param repoSlug          The repository slug of the step, may be null.
+     * @param kind              What the refs are, e.g. "tag", for the messages.
+     * @param requireStartPoint True if the refs get created and need a start point.
+     */
+    public static void validateRefs(final List<RefSpec> refs, final String project, final String repoSlug,
+                                    final String kind, final boolean requireStartPoint) {
+        for (RefSpec ref : refs) {
+            if (StringUtils.isEmpty(ref.getProject(project)) || StringUtils.isEmpty(ref.getRepoSlug(repoSlug))) {
+                throw new IllegalStateException("No project or repository slug given for " + kind + " " + ref.getName());
+            }
+
+            if (StringUtils.isEmpty(ref.getName())) {
+                throw new IllegalStateException("The name of a " + kind + " is null or empty");
+            }
+
+            if (requireStartPoint && StringUtils.isEmpty(ref.getStartPoint())) {
+                throw new IllegalStateException("The start point of " + kind + " " + ref.getName() + " is null or empty");
+            }
+        }
+    }
+
+    /**
+     * Checks repositories given by their full path, as the steps working on several repositories take them.
+     *
+     * @param repositories The full paths of the repositories, e.g. "group/repo".
+     */
+    public static void validateRepositories(final List<String> repositories) {
+        for (String repository : repositories) {
+            if (StringUtils.isEmpty(repository) || repository.indexOf('/') <= 0 || repository.endsWith("/")) {
+                throw new IllegalStateException("Invalid repository " + repository + ", expected the full path, e.g. group/repo");
+            }
+        }
+    }
+}
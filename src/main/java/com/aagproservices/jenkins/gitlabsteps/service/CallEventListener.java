@@ -0,0 +1,154 @@
+package com.aagproservices.jenkins.gitlabsteps.service;
+
+import com.aagproservices.jenkins.gitlabsteps.metrics.GitlabMetrics;
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Listens to the events of a single HTTP call: counts the bytes transferred for the metrics, including the size of
+ * the response body per endpoint as it came over the wire, and, if the step asked for it, records the time spent in
+ * the network phases of the call in the {@link StepTimings} of the step.
+ */
+final class CallEventListener extends EventListener {
+
+    /**
+     * Creates a listener per call.
+     */
+    static final EventListener.Factory FACTORY = call -> new CallEventListener();
+
+    private static final Map<Call, Tracking> TRACKED = new ConcurrentHashMap<>();
+
+    private long dnsStart;
+    private long connectStart;
+    private long secureConnectStart;
+    private long tlsNanos;
+    private long requestStart;
+    private long requestEnd;
+
+    private CallEventListener() {
+    }
+
+    /**
+     * Records the response size of the given call for its endpoint and its timings in the given timings until the
+     * call ends.
+     *
+     * @param call     The call, before it is enqueued.
+     * @param method   HTTP method of the request.
+     * @param endpoint Endpoint template of the request.
+     * @param timings  The timings of the step, may be null.
+     */
+    static void track(final Call call, final String method, final String endpoint, final StepTimings timings) {
+        TRACKED.put(call, new Tracking(method, endpoint, timings));
+    }
+
+    @Override
+    public void dnsStart(final Call call, final String domainName) {
+        dnsStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(final Call call, final String domainName, final List<InetAddress> inetAddressList) {
+        record(call, StepTimings.Phase.DNS, System.nanoTime() - dnsStart);
+    }
+
+    @Override
+    public void connectStart(final Call call, final InetSocketAddress inetSocketAddress, final Proxy proxy) {
+        connectStart = System.nanoTime();
+        tlsNanos = 0;
+    }
+
+    @Override
+    public void secureConnectStart(final Call call) {
+        secureConnectStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectEnd(final Call call, final Handshake handshake) {
+        tlsNanos = System.nanoTime() - secureConnectStart;
+        record(call, StepTimings.Phase.TLS, tlsNanos);
+    }
+
+    @Override
+    public void connectEnd(final Call call, final InetSocketAddress inetSocketAddress, final Proxy proxy,
+                           final Protocol protocol) {
+        record(call, StepTimings.Phase.CONNECT, System.nanoTime() - connectStart - tlsNanos);
+    }
+
+    @Override
+    public void requestHeadersStart(final Call call) {
+        requestStart = System.nanoTime();
+    }
+
+    @Override
+    public void requestHeadersEnd(final Call call, final Request request) {
+        requestEnd = System.nanoTime();
+    }
+
+    @Override
+    public void requestBodyEnd(final Call call, final long byteCount) {
+        requestEnd = System.nanoTime();
+        GitlabMetrics.bytesSent(byteCount);
+    }
+
+    @Override
+    public void responseHeadersEnd(final Call call, final Response response) {
+        record(call, StepTimings.Phase.WRITE, requestEnd - requestStart);
+        record(call, StepTimings.Phase.FIRST_BYTE, System.nanoTime() - requestEnd);
+    }
+
+    @Override
+    public void responseBodyEnd(final Call call, final long byteCount) {
+        GitlabMetrics.bytesReceived(byteCount);
+        // Unlike the Content-Length, which is missing for chunked and gzipped responses, always known here
+        Tracking tracking = TRACKED.get(call);
+        if (tracking != null) {
+            GitlabMetrics.responseSize(tracking.method, tracking.endpoint, byteCount);
+        }
+    }
+
+    @Override
+    public void callEnd(final Call call) {
+        TRACKED.remove(call);
+    }
+
+    @Override
+    public void callFailed(final Call call, final IOException ioe) {
+        TRACKED.remove(call);
+    }
+
+    private static void record(final Call call, final StepTimings.Phase phase, final long nanos) {
+        Tracking tracking = TRACKED.get(call);
+        if (tracking != null && tracking.timings != null) {
+            tracking.timings.add(phase, nanos);
+        }
+    }
+
+    /**
+     * What is recorded for a call.
+     */
+    private static final class Tracking {
+        private final String method;
+        private final String endpoint;
+        private final StepTimings timings;
+
+        private Tracking(final String method, final String endpoint, final StepTimings timings) {
+            this.method = method;
+            this.endpoint = endpoint;
+            this.timings = timings;
+        }
+    }
+}
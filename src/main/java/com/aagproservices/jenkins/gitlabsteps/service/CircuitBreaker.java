@@ -0,0 +1,260 @@
+package com.aagproservices.jenkins.gitlabsteps.service;
+
+import com.aagproservices.jenkins.gitlabsteps.GitlabStepsConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Circuit breaker of a single Gitlab host. While closed, the outcome of the latest requests is recorded in a sliding
+ * window; once the share of failures (I/O errors and 5xx responses) exceeds the threshold, the breaker opens and
+ * requests fail right away instead of waiting for their timeout. After the cool-down a single probe request is let
+ * through (half-open): its success closes the breaker, its failure opens it again. Outcomes are reported with the
+ * {@link Permit} handed out for the request, so that requests sent before the breaker opened do not count as probe.
+ */
+public final class CircuitBreaker {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreaker.class);
+    private static final String TAG = "[GITLAB_STEPS] ";
+
+    /**
+     * States of a circuit breaker.
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String host;
+    private final Supplier<GitlabStepsConfiguration> configuration;
+
+    private State state = State.CLOSED;
+    private BitSet failures = new BitSet();
+    private int windowSize;
+    private int recorded;
+    private int next;
+    private long openedAt;
+    private Permit probe;
+    private String lastFailure;
+
+    /**
+     * Constructor.
+     *
+     * @param host The host, e.g. "https://gitlab.example.com:443".
+     */
+    CircuitBreaker(final String host) {
+        this(host, GitlabStepsConfiguration::get);
+    }
+
+    /**
+     * Constructor taking the settings to use.
+     *
+     * @param host          The host.
+     * @param configuration Returns the current settings.
+     */
+    CircuitBreaker(final String host, final Supplier<GitlabStepsConfiguration> configuration) {
+        this.host = host;
+        this.configuration = configuration;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Returns the current state; an open breaker whose cool-down is over reports half-open.
+     *
+     * @return The state.
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && coolDownOver()) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * Returns the share of failed requests in the current window.
+     *
+     * @return Failure rate in percent.
+     */
+    public synchronized int getFailureRate() {
+        return recorded == 0 ? 0 : failures.cardinality() * 100 / recorded;
+    }
+
+    /**
+     * Returns the number of requests in the current window.
+     *
+     * @return Number of recorded requests.
+     */
+    public synchronized int getRecorded() {
+        return recorded;
+    }
+
+    /**
+     * Returns the time the breaker stays open before it lets a probe request through.
+     *
+     * @return Remaining cool-down in seconds, 0 if the breaker is not open.
+     */
+    public synchronized long getRemainingCoolDownSeconds() {
+        if (state != State.OPEN) {
+            return 0;
+        }
+        long remaining = coolDownMillis() - (System.currentTimeMillis() - openedAt);
+        return Math.max(0, TimeUnit.MILLISECONDS.toSeconds(remaining + 999));
+    }
+
+    public synchronized String getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Tells whether a request may be sent. In half-open state only a single probe request is allowed at a time.
+     *
+     * @return The permit of the request, through which its outcome must be reported; null if it may not be sent.
+     */
+    synchronized Permit tryAcquire() {
+        if (configuration.get().getCircuitBreakerThreshold() == 0) {
+            return new Permit();
+        }
+        switch (state) {
+            case CLOSED:
+                return new Permit();
+            case OPEN:
+                if (!coolDownOver()) {
+                    return null;
+                }
+                state = State.HALF_OPEN;
+                probe = new Permit();
+                LOGGER.info(TAG + "Circuit breaker of " + host + " is half-open, sending a probe request");
+                return probe;
+            default:
+                if (probe != null) {
+                    return null;
+                }
+                probe = new Permit();
+                return probe;
+        }
+    }
+
+    /**
+     * Records a request which got a response from Gitlab other than a server error.
+     *
+     * @param permit The permit of the request.
+     */
+    synchronized void onSuccess(final Permit permit) {
+        if (state != State.CLOSED) {
+            // Only the probe tells whether Gitlab is back, not a request sent before the breaker opened
+            if (permit == probe) {
+                LOGGER.info(TAG + "Circuit breaker of " + host + " is closed again");
+                close();
+            }
+            return;
+        }
+        record(false);
+    }
+
+    /**
+     * Records a request which failed with an I/O error or a server error.
+     *
+     * @param permit The permit of the request.
+     * @param reason Short description of the failure.
+     */
+    synchronized void onFailure(final Permit permit, final String reason) {
+        lastFailure = reason;
+        if (state != State.CLOSED) {
+            if (permit == probe) {
+                open();
+            }
+            return;
+        }
+        record(true);
+
+        GitlabStepsConfiguration settings = configuration.get();
+        int threshold = settings.getCircuitBreakerThreshold();
+        int minimumCalls = Math.max(1, windowSize / 2);
+        if (threshold > 0 && recorded >= minimumCalls && getFailureRate() >= threshold) {
+            open();
+        }
+    }
+
+    /**
+     * Releases the permit of a request whose outcome is unknown, e.g. because it was cancelled.
+     *
+     * @param permit The permit of the request.
+     */
+    synchronized void onCancel(final Permit permit) {
+        if (permit == probe) {
+            probe = null;
+        }
+    }
+
+    /**
+     * Closes the breaker and drops the recorded requests.
+     */
+    public synchronized void reset() {
+        close();
+        lastFailure = null;
+    }
+
+    /**
+     * Returns the message of the exception thrown for a request rejected by the open breaker.
+     *
+     * @return The message.
+     */
+    synchronized String rejectionMessage() {
+        return "Gitlab at " + host + " is considered unavailable (" + getFailureRate() + "% of the latest requests failed"
+                + (lastFailure == null ? "" : ", last: " + lastFailure) + "), requests fail fast for another "
+                + getRemainingCoolDownSeconds() + " s";
+    }
+
+    private void record(final boolean failure) {
+        int size = configuration.get().getCircuitBreakerWindowSize();
+        if (size != windowSize) {
+            windowSize = size;
+            failures = new BitSet(size);
+            recorded = 0;
+            next = 0;
+        }
+        failures.set(next, failure);
+        next = (next + 1) % windowSize;
+        recorded = Math.min(recorded + 1, windowSize);
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        probe = null;
+        LOGGER.warn(TAG + "Circuit breaker of " + host + " is open for " + coolDownMillis() / 1000
+                + " s, last failure: " + lastFailure);
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        probe = null;
+        failures.clear();
+        recorded = 0;
+        next = 0;
+    }
+
+    private boolean coolDownOver() {
+        return System.currentTimeMillis() - openedAt >= coolDownMillis();
+    }
+
+    private long coolDownMillis() {
+        return TimeUnit.SECONDS.toMillis(configuration.get().getCircuitBreakerCoolDownSeconds());
+    }
+
+    /**
+     * Permission to send a single request, handed out by {@link #tryAcquire()}. The probe of a half-open breaker is
+     * told apart from the other requests by the identity of its permit.
+     */
+    static final class Permit {
+
+        private Permit() {
+        }
+    }
+}
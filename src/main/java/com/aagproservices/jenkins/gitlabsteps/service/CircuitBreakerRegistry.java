@@ -0,0 +1,74 @@
+package com.aagproservices.jenkins.gitlabsteps.service;
+
+import okhttp3.HttpUrl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Controller-wide registry of the {@link CircuitBreaker}s, one per Gitlab host.
+ */
+public final class CircuitBreakerRegistry {
+
+    private static final CircuitBreakerRegistry INSTANCE = new CircuitBreakerRegistry();
+
+    private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * Private constructor.
+     */
+    private CircuitBreakerRegistry() {
+    }
+
+    public static CircuitBreakerRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the circuit breaker of the host of the given URL.
+     *
+     * @param url The URL.
+     * @return The circuit breaker.
+     */
+    CircuitBreaker get(final HttpUrl url) {
+        return breakers.computeIfAbsent(url.scheme() + "://" + url.host() + ":" + url.port(), CircuitBreaker::new);
+    }
+
+    /**
+     * Returns the circuit breakers of all the hosts requests were sent to.
+     *
+     * @return The circuit breakers, ordered by host.
+     */
+    public List<CircuitBreaker> getAll() {
+        List<CircuitBreaker> all = new ArrayList<>(breakers.values());
+        all.sort(Comparator.comparing(CircuitBreaker::getHost));
+        return all;
+    }
+
+    /**
+     * Closes the circuit breaker of the given host.
+     *
+     * @param host The host as returned by {@link CircuitBreaker#getHost()}.
+     * @return True if there is a circuit breaker for the host.
+     */
+    public boolean reset(final String host) {
+        CircuitBreaker breaker = breakers.get(host);
+        if (breaker == null) {
+            return false;
+        }
+        breaker.reset();
+        return true;
+    }
+
+    /**
+     * Closes all the circuit breakers.
+     */
+    public void reset() {
+        breakers.values().forEach(CircuitBreaker::reset);
+    }
+}
@@ -1,152 +1,746 @@
 package com.aagproservices.jenkins.gitlabsteps.service;
 
 import com.aagproservices.jenkins.gitlabsteps.api.Branch;
+import com.aagproservices.jenkins.gitlabsteps.api.Commit;
+import com.aagproservices.jenkins.gitlabsteps.api.CommitAction;
 import com.aagproservices.jenkins.gitlabsteps.api.FileUpdate;
+import com.aagproservices.jenkins.gitlabsteps.api.Pipeline;
 import com.aagproservices.jenkins.gitlabsteps.api.PullRequest;
 import com.aagproservices.jenkins.gitlabsteps.api.Tag;
+import com.aagproservices.jenkins.gitlabsteps.util.Projection;
+import com.aagproservices.jenkins.gitlabsteps.util.Sha256Callable;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import hudson.FilePath;
 import okhttp3.Request;
 import okhttp3.RequestBody;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
 import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.HttpMethod;
-import javax.ws.rs.core.MediaType;
 import java.io.IOException;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 public final class ContentService extends BaseService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContentService.class);
+
+    private static final String OPENED = "opened";
+    private static final String MERGED = "merged";
+
+    /**
+     * Merge statuses telling that Gitlab did not finish checking whether a merge request can be merged.
+     */
+    private static final Set<String> MERGE_STATUS_CHECKING = Collections.unmodifiableSet(new HashSet<>(
+            Arrays.asList("unchecked", "checking", "cannot_be_merged_recheck")));
+
+    public static final List<String> TAG_ORDER_FIELDS = Collections.unmodifiableList(Arrays.asList("name", "updated", "version"));
+    public static final List<String> SORT_ORDERS = Collections.unmodifiableList(Arrays.asList("asc", "desc"));
+
+    /**
+     * The only order of tags Gitlab supports keyset pagination for.
+     */
+    private static final String KEYSET_TAG_ORDER = "name";
+
+    private static final String CONTENT_SHA256_HEADER = "X-Gitlab-Content-Sha256";
 
     public ContentService() {
         super();
     }
 
-    public JSONObject createTag(String gitlabUrl, final String authToken, final String project, final String repoSlug, final Tag tag,
-                                int timeout, final boolean debugMode, final boolean trustAllCertificates) throws BadRequestException {
-        try {
-            JSONObject json = new JSONObject()
-                    .put("tag_name", tag.getName())
-                    .put("message", tag.getMessage())
-                    .put("ref", tag.getStartPoint());
-
-            RequestBody body = RequestBody.create(okhttp3.MediaType.parse(MediaType.APPLICATION_JSON), json.toString());
-            Request request = buildRequest(gitlabUrl, authToken, project, repoSlug,"repository/tags", HttpMethod.POST, body, null);
-            return (JSONObject)executeRequest(request, timeout, debugMode, trustAllCertificates);
-        } catch (JSONException ex) {
-            throw new RuntimeException("Error creating tag", ex);
-        }
+    public Tag createTag(String gitlabUrl, final String authToken, final String project, final String repoSlug, final Tag tag,
+                         int timeout, final boolean debugMode, final boolean trustAllCertificates) throws BadRequestException {
+        return await(createTagAsync(gitlabUrl, authToken, project, repoSlug, tag, timeout, debugMode, trustAllCertificates));
+    }
+
+    public CompletableFuture<Tag> createTagAsync(String gitlabUrl, final String authToken, final String project, final String repoSlug, final Tag tag,
+                                                 int timeout, final boolean debugMode, final boolean trustAllCertificates) {
+        ObjectNode json = MAPPER.createObjectNode()
+                .put("tag_name", tag.getName())
+                .put("message", tag.getMessage())
+                .put("ref", tag.getStartPoint());
+
+        Request request = buildRequest(gitlabUrl, authToken, project, repoSlug,"repository/tags", HttpMethod.POST, jsonBody(json), null);
+        // The recovery must see the outcome of the failed attempt, not a cached answer from before it
+        Request lookup = uncached(buildRequest(gitlabUrl, authToken, project, repoSlug, "repository/tags/" + encodePath(tag.getName()),
+                HttpMethod.GET, null, null));
+        return executeRequestAsync(request, Tag.class,
+                () -> findAsync(lookup, MAPPER.constructType(Tag.class), timeout, debugMode, trustAllCertificates),
+                timeout, debugMode, trustAllCertificates);
     }
 
-    public JSONArray getTags(String gitlabUrl, final String authToken, final String project, final String repoSlug, String filter,
+    public List<Tag> getTags(String gitlabUrl, final String authToken, final String project, final String repoSlug, String filter,
+                             final String orderBy, final String sort, final int pageSize, final int maxResults,
                              int timeout, final boolean debugMode, final boolean trustAllCertificates) throws BadRequestException {
-        try {
-            Map<String, String> queryParams = new HashMap<>();
-            queryParams.put("search", filter == null ? "" : filter);
-
-            Request request = buildRequest(gitlabUrl, authToken, project, repoSlug,"repository/tags", HttpMethod.GET, null, queryParams);
-            return (JSONArray)executeRequest(request, timeout, debugMode, trustAllCertificates);
-        } catch (ClassCastException ex) {
-            throw new RuntimeException("Error retrieving tags", ex);
-        }
+        return collect(iterateTags(gitlabUrl, authToken, project, repoSlug, filter, orderBy, sort, pageSize, maxResults,
+                timeout, debugMode, trustAllCertificates));
+    }
+
+    /**
+     * Returns the requested fields of the tags of a repository, see {@link Projection}. Only the projected values
+     * are retained, the rest of each page is dropped as soon as it has been read.
+     */
+    public List<Object> getTags(String gitlabUrl, final String authToken, final String project, final String repoSlug, String filter,
+                                final String orderBy, final String sort, final int pageSize, final int maxResults, final Projection projection,
+                                int timeout, final boolean debugMode, final boolean trustAllCertificates) throws BadRequestException {
+        Request request = buildTagsRequest(gitlabUrl, authToken, project, repoSlug, filter, orderBy, sort, pageSize, maxResults);
+        return projection.apply(paginate(request, JsonNode.class, maxResults, timeout, debugMode, trustAllCertificates));
+    }
+
+    /**
+     * Returns the tags of a repository page by page. The next page is only requested once the current one has been
+     * consumed, so callers which stop early do not download the remaining pages. When ordered by name, keyset
+     * pagination is requested so that deep pages do not get slower with the offset.
+     *
+     * @param orderBy One of {@link #TAG_ORDER_FIELDS}, or null for the Gitlab default.
+     * @param sort    One of {@link #SORT_ORDERS}, or null for the Gitlab default.
+     */
+    public Iterator<Tag> iterateTags(String gitlabUrl, final String authToken, final String project, final String repoSlug, String filter,
+                                            final String orderBy, final String sort, final int pageSize, final int maxResults,
+                                            int timeout, final boolean debugMode, final boolean trustAllCertificates) throws BadRequestException {
+        Request request = buildTagsRequest(gitlabUrl, authToken, project, repoSlug, filter, orderBy, sort, pageSize, maxResults);
+        return paginate(request, Tag.class, maxResults, timeout, debugMode, trustAllCertificates);
+    }
+
+    /**
+     * Asynchronous variant of {@link #getTags(String, String, String, String, String, String, String, int, int, int,
+     * boolean, boolean)}.
+     *
+     * @return Future of the tags, cancelling it cancels the request of the current page.
+     */
+    public CompletableFuture<List<Tag>> getTagsAsync(String gitlabUrl, final String authToken, final String project, final String repoSlug, String filter,
+                                                     final String orderBy, final String sort, final int pageSize, final int maxResults,
+                                                     int timeout, final boolean debugMode, final boolean trustAllCertificates) {
+        Request request = buildTagsRequest(gitlabUrl, authToken, project, repoSlug, filter, orderBy, sort, pageSize, maxResults);
+        return collectAsync(request, Tag.class, maxResults, timeout, debugMode, trustAllCertificates);
     }
 
-    public JSONObject createBranch(String gitlabUrl, final String authToken, final String project, final String repoSlug, final Branch branch,
-                                   int timeout, final boolean debugMode, final boolean trustAllCertificates) throws BadRequestException {
-        try {
-            JSONObject json = new JSONObject()
-                    .put("branch", branch.getName())
-                    .put("ref", branch.getStartPoint());
+    /**
+     * Asynchronous variant of {@link #getTags(String, String, String, String, String, String, String, int, int,
+     * Projection, int, boolean, boolean)}.
+     *
+     * @return Future of the projected tags, cancelling it cancels the request of the current page.
+     */
+    public CompletableFuture<List<Object>> getTagsAsync(String gitlabUrl, final String authToken, final String project, final String repoSlug, String filter,
+                                                        final String orderBy, final String sort, final int pageSize, final int maxResults, final Projection projection,
+                                                        int timeout, final boolean debugMode, final boolean trustAllCertificates) {
+        Request request = buildTagsRequest(gitlabUrl, authToken, project, repoSlug, filter, orderBy, sort, pageSize, maxResults);
+        return project(collectAsync(request, JsonNode.class, maxResults, timeout, debugMode, trustAllCertificates), projection);
+    }
 
-            RequestBody body = RequestBody.create(okhttp3.MediaType.parse(MediaType.APPLICATION_JSON), json.toString());
-            Request request = buildRequest(gitlabUrl, authToken, project, repoSlug,"repository/branches", HttpMethod.POST, body, null);
-            return (JSONObject)executeRequest(request, timeout, debugMode, trustAllCertificates);
-        } catch (JSONException ex) {
-            throw new RuntimeException("Error creating branch", ex);
+    private Request buildTagsRequest(String gitlabUrl, final String authToken, final String project, final String repoSlug, String filter,
+                                     final String orderBy, final String sort, final int pageSize, final int maxResults) {
+        Map<String, String> queryParams = new HashMap<>();
+        queryParams.put("search", filter == null ? "" : filter);
+        queryParams.put(PAGE_SIZE_PARAM, String.valueOf(pageSize(pageSize, maxResults)));
+        if (StringUtils.isNotBlank(orderBy)) {
+            queryParams.put("order_by", orderBy);
+            if (KEYSET_TAG_ORDER.equals(orderBy)) {
+                queryParams.put("pagination", "keyset");
+            }
+        }
+        if (StringUtils.isNotBlank(sort)) {
+            queryParams.put("sort", sort);
         }
+
+        return buildRequest(gitlabUrl, authToken, project, repoSlug,"repository/tags", HttpMethod.GET, null, queryParams);
+    }
+
+    public Branch createBranch(String gitlabUrl, final String authToken, final String project, final String repoSlug, final Branch branch,
+                               int timeout, final boolean debugMode, final boolean trustAllCertificates) throws BadRequestException {
+        return await(createBranchAsync(gitlabUrl, authToken, project, repoSlug, branch, timeout, debugMode, trustAllCertificates));
+    }
+
+    public CompletableFuture<Branch> createBranchAsync(String gitlabUrl, final String authToken, final String project, final String repoSlug, final Branch branch,
+                                                       int timeout, final boolean debugMode, final boolean trustAllCertificates) {
+        ObjectNode json = MAPPER.createObjectNode()
+                .put("branch", branch.getName())
+                .put("ref", branch.getStartPoint());
+
+        Request request = buildRequest(gitlabUrl, authToken, project, repoSlug,"repository/branches", HttpMethod.POST, jsonBody(json), null);
+        Request lookup = uncached(buildRequest(gitlabUrl, authToken, project, repoSlug, "repository/branches/" + encodePath(branch.getName()),
+                HttpMethod.GET, null, null));
+        return executeRequestAsync(request, Branch.class,
+                () -> findAsync(lookup, MAPPER.constructType(Branch.class), timeout, debugMode, trustAllCertificates),
+                timeout, debugMode, trustAllCertificates);
+    }
+
+    /**
+     * Checks whether a branch could be created, without creating it: the branch must not exist yet and its start
+     * point must.
+     *
+     * @param branch The branch.
+     * @return Future of the branch, failing with an {@link IllegalStateException} if it cannot be created.
+     */
+    public CompletableFuture<Branch> checkCreateBranchAsync(String gitlabUrl, final String authToken, final String project, final String repoSlug, final Branch branch,
+                                                            int timeout, final boolean debugMode, final boolean trustAllCertificates) {
+        // The check runs right before the branch gets created, a cached answer may already be outdated
+        Request branchLookup = uncached(buildRequest(gitlabUrl, authToken, project, repoSlug, "repository/branches/" + encodePath(branch.getName()),
+                HttpMethod.GET, null, null));
+        Request startPointLookup = uncached(buildRequest(gitlabUrl, authToken, project, repoSlug, "repository/commits/" + encodePath(branch.getStartPoint()),
+                HttpMethod.GET, null, null));
+        Operation<Branch> operation = new Operation<>();
+        return operation.completeWith(operation.step(this.<Branch>findAsync(branchLookup, MAPPER.constructType(Branch.class), timeout, debugMode, trustAllCertificates))
+                .thenCompose(existing -> {
+                    if (existing != null) {
+                        throw new IllegalStateException("Branch " + branch.getName() + " already exists");
+                    }
+                    return operation.step(this.<Commit>findAsync(startPointLookup, MAPPER.constructType(Commit.class), timeout, debugMode, trustAllCertificates));
+                }).thenApply(startPoint -> {
+                    if (startPoint == null) {
+                        throw new IllegalStateException("Start point " + branch.getStartPoint() + " of branch " + branch.getName() + " not found");
+                    }
+                    return branch;
+                }));
+    }
+
+    /**
+     * Deletes a branch.
+     *
+     * @param name The name of the branch.
+     * @return Future of the name of the deleted branch.
+     */
+    public CompletableFuture<String> deleteBranchAsync(String gitlabUrl, final String authToken, final String project, final String repoSlug, final String name,
+                                                       int timeout, final boolean debugMode, final boolean trustAllCertificates) {
+        Request request = buildRequest(gitlabUrl, authToken, project, repoSlug, "repository/branches/" + encodePath(name),
+                HttpMethod.DELETE, null, null);
+        Request lookup = uncached(buildRequest(gitlabUrl, authToken, project, repoSlug, "repository/branches/" + encodePath(name),
+                HttpMethod.GET, null, null));
+        JavaType body = MAPPER.constructType(JsonNode.class);
+        return executeAsync(request, response -> {
+            // Fails on an error response
+            readBody(response, body, debugMode);
+            return name;
+        }, () -> findAsync(lookup, MAPPER.constructType(Branch.class), timeout, debugMode, trustAllCertificates)
+                .thenApply(found -> found == null ? name : null), timeout, debugMode, trustAllCertificates);
+    }
+
+    /**
+     * Checks whether a branch could be deleted, without deleting it: the branch must exist and not be protected.
+     *
+     * @param name The name of the branch.
+     * @return Future of the name of the branch, failing with an {@link IllegalStateException} if it cannot be deleted.
+     */
+    public CompletableFuture<String> checkDeleteBranchAsync(String gitlabUrl, final String authToken, final String project, final String repoSlug, final String name,
+                                                            int timeout, final boolean debugMode, final boolean trustAllCertificates) {
+        Request lookup = uncached(buildRequest(gitlabUrl, authToken, project, repoSlug, "repository/branches/" + encodePath(name),
+                HttpMethod.GET, null, null));
+        Operation<String> operation = new Operation<>();
+        return operation.completeWith(operation.step(this.<Branch>findAsync(lookup, MAPPER.constructType(Branch.class), timeout, debugMode, trustAllCertificates))
+                .thenApply(branch -> {
+                    if (branch == null) {
+                        throw new IllegalStateException("Branch " + name + " not found");
+                    }
+                    if (isFlagSet(branch, "protected")) {
+                        throw new IllegalStateException("Branch " + name + " is protected");
+                    }
+                    return name;
+                }));
+    }
+
+    /**
+     * Deletes all the branches which are merged into the default branch, except for the protected ones, with a
+     * single request. Gitlab deletes them in the background.
+     *
+     * @return Future completing once Gitlab accepted the request.
+     */
+    public CompletableFuture<Void> deleteMergedBranchesAsync(String gitlabUrl, final String authToken, final String project, final String repoSlug,
+                                                             int timeout, final boolean debugMode, final boolean trustAllCertificates) {
+        Request request = buildRequest(gitlabUrl, authToken, project, repoSlug, "repository/merged_branches",
+                HttpMethod.DELETE, null, null);
+        JavaType body = MAPPER.constructType(JsonNode.class);
+        // Sending it again does no harm, so a failed attempt is always retried
+        return executeAsync(request, response -> {
+            readBody(response, body, debugMode);
+            return null;
+        }, () -> CompletableFuture.completedFuture(null), timeout, debugMode, trustAllCertificates);
+    }
+
+    /**
+     * Lists the branches {@link #deleteMergedBranchesAsync} would delete.
+     *
+     * @return Future of the names of the branches.
+     */
+    public CompletableFuture<List<String>> listMergedBranchesAsync(String gitlabUrl, final String authToken, final String project, final String repoSlug,
+                                                                   int timeout, final boolean debugMode, final boolean trustAllCertificates) {
+        Request request = buildBranchesRequest(gitlabUrl, authToken, project, repoSlug, null, 0, 0);
+        Operation<List<String>> operation = new Operation<>();
+        return operation.completeWith(operation.step(collectAsync(request, Branch.class, 0, timeout, debugMode, trustAllCertificates))
+                .thenApply(branches -> branches.stream()
+                        .filter(branch -> isFlagSet(branch, "merged") && !isFlagSet(branch, "protected") && !isFlagSet(branch, "default"))
+                        .map(Branch::getName)
+                        .collect(Collectors.toList())));
+    }
+
+    private static boolean isFlagSet(final Branch branch, final String flag) {
+        return Boolean.TRUE.equals(branch.getUnmappedFields().get(flag));
+    }
+
+    public List<Branch> listBranches(String gitlabUrl, final String authToken, final String project, final String repoSlug, final String search,
+                                  final int pageSize, final int maxResults,
+                                  int timeout, final boolean debugMode, final boolean trustAllCertificates) throws BadRequestException {
+        return collect(iterateBranches(gitlabUrl, authToken, project, repoSlug, search, pageSize, maxResults, timeout, debugMode, trustAllCertificates));
+    }
+
+    /**
+     * Returns the requested fields of the branches of a repository, see {@link #getTags(String, String, String, String,
+     * String, String, String, int, int, Projection, int, boolean, boolean)}.
+     */
+    public List<Object> listBranches(String gitlabUrl, final String authToken, final String project, final String repoSlug, final String search,
+                                     final int pageSize, final int maxResults, final Projection projection,
+                                     int timeout, final boolean debugMode, final boolean trustAllCertificates) throws BadRequestException {
+        Request request = buildBranchesRequest(gitlabUrl, authToken, project, repoSlug, search, pageSize, maxResults);
+        return projection.apply(paginate(request, JsonNode.class, maxResults, timeout, debugMode, trustAllCertificates));
+    }
+
+    /**
+     * Returns the branches of a repository page by page, see {@link #iterateTags}.
+     */
+    public Iterator<Branch> iterateBranches(String gitlabUrl, final String authToken, final String project, final String repoSlug, final String search,
+                                                final int pageSize, final int maxResults,
+                                                int timeout, final boolean debugMode, final boolean trustAllCertificates) throws BadRequestException {
+        Request request = buildBranchesRequest(gitlabUrl, authToken, project, repoSlug, search, pageSize, maxResults);
+        return paginate(request, Branch.class, maxResults, timeout, debugMode, trustAllCertificates);
+    }
+
+    /**
+     * Asynchronous variant of {@link #listBranches(String, String, String, String, String, int, int, int, boolean,
+     * boolean)}.
+     *
+     * @return Future of the branches, cancelling it cancels the request of the current page.
+     */
+    public CompletableFuture<List<Branch>> listBranchesAsync(String gitlabUrl, final String authToken, final String project, final String repoSlug, final String search,
+                                                             final int pageSize, final int maxResults,
+                                                             int timeout, final boolean debugMode, final boolean trustAllCertificates) {
+        Request request = buildBranchesRequest(gitlabUrl, authToken, project, repoSlug, search, pageSize, maxResults);
+        return collectAsync(request, Branch.class, maxResults, timeout, debugMode, trustAllCertificates);
+    }
+
+    /**
+     * Asynchronous variant of {@link #listBranches(String, String, String, String, String, int, int, Projection, int,
+     * boolean, boolean)}.
+     *
+     * @return Future of the projected branches, cancelling it cancels the request of the current page.
+     */
+    public CompletableFuture<List<Object>> listBranchesAsync(String gitlabUrl, final String authToken, final String project, final String repoSlug, final String search,
+                                                             final int pageSize, final int maxResults, final Projection projection,
+                                                             int timeout, final boolean debugMode, final boolean trustAllCertificates) {
+        Request request = buildBranchesRequest(gitlabUrl, authToken, project, repoSlug, search, pageSize, maxResults);
+        return project(collectAsync(request, JsonNode.class, maxResults, timeout, debugMode, trustAllCertificates), projection);
+    }
+
+    /**
+     * Returns the full paths of the projects of a group and its subgroups, archived projects excepted.
+     *
+     * @param group Full path of the group.
+     * @return Future of the paths, e.g. "group/subgroup/repo".
+     */
+    public CompletableFuture<List<String>> listGroupProjectsAsync(String gitlabUrl, final String authToken, final String group,
+                                                                  int timeout, final boolean debugMode, final boolean trustAllCertificates) {
+        Map<String, String> params = new HashMap<>(4);
+        params.put("include_subgroups", "true");
+        params.put("archived", "false");
+        params.put("simple", "true");
+        params.put(PAGE_SIZE_PARAM, String.valueOf(MAX_PAGE_SIZE));
+        Request request = buildGroupRequest(gitlabUrl, authToken, group, "projects", HttpMethod.GET, null, params);
+        Operation<List<String>> operation = new Operation<>();
+        return operation.completeWith(operation.step(collectAsync(request, JsonNode.class, 0, timeout, debugMode, trustAllCertificates))
+                .thenApply(projects -> projects.stream()
+                        .map(project -> project.path("path_with_namespace").asText(null))
+                        .filter(StringUtils::isNotBlank)
+                        .collect(Collectors.toList())));
     }
 
-    public JSONArray listBranches(String gitlabUrl, final String authToken, final String project, final String repoSlug, final String search,
-                                   int timeout, final boolean debugMode, final boolean trustAllCertificates) throws BadRequestException {
-        Map<String, String> params = null;
+    private static CompletableFuture<List<Object>> project(final CompletableFuture<List<JsonNode>> elements, final Projection projection) {
+        Operation<List<Object>> operation = new Operation<>();
+        return operation.completeWith(operation.step(elements).thenApply(nodes -> projection.apply(nodes.iterator())));
+    }
+
+    private Request buildBranchesRequest(String gitlabUrl, final String authToken, final String project, final String repoSlug,
+                                         final String search, final int pageSize, final int maxResults) {
+        Map<String, String> params = new HashMap<>(2);
         if (StringUtils.isNotBlank(search)) {
-            params = new HashMap<>(1);
             params.put("search", search);
         }
-        Request request = buildRequest(gitlabUrl, authToken, project, repoSlug,"repository/branches", HttpMethod.GET, null, params);
-        return (JSONArray)executeRequest(request, timeout, debugMode, trustAllCertificates);
+        params.put(PAGE_SIZE_PARAM, String.valueOf(pageSize(pageSize, maxResults)));
+        return buildRequest(gitlabUrl, authToken, project, repoSlug,"repository/branches", HttpMethod.GET, null, params);
+    }
+
+    public PullRequest createPullRequest(String gitlabUrl, final String authToken, final String project, final String repoSlug, final PullRequest pullRequest,
+                                         int timeout, final boolean debugMode, final boolean trustAllCertificates) throws BadRequestException {
+        return await(createPullRequestAsync(gitlabUrl, authToken, project, repoSlug, pullRequest, timeout, debugMode, trustAllCertificates));
+    }
+
+    public CompletableFuture<PullRequest> createPullRequestAsync(String gitlabUrl, final String authToken, final String project, final String repoSlug, final PullRequest pullRequest,
+                                                                 int timeout, final boolean debugMode, final boolean trustAllCertificates) {
+        ObjectNode json = MAPPER.createObjectNode()
+                .put("title", pullRequest.getTitle())
+                .put("description", pullRequest.getDescription())
+                .put("source_branch", pullRequest.getFrom())
+                .put("target_branch", pullRequest.getTo());
+
+        Request request = buildRequest(gitlabUrl, authToken, project, repoSlug,"merge_requests", HttpMethod.POST, jsonBody(json), null);
+
+        // Gitlab allows a single open merge request per source and target branch
+        Map<String, String> params = new HashMap<>(3);
+        params.put("source_branch", pullRequest.getFrom());
+        params.put("target_branch", pullRequest.getTo());
+        params.put("state", "opened");
+        Request lookup = uncached(buildRequest(gitlabUrl, authToken, project, repoSlug, "merge_requests", HttpMethod.GET, null, params));
+        JavaType listType = MAPPER.getTypeFactory().constructCollectionType(List.class, PullRequest.class);
+        return executeRequestAsync(request, PullRequest.class,
+                () -> this.<List<PullRequest>>findAsync(lookup, listType, timeout, debugMode, trustAllCertificates)
+                        .thenApply(found -> found == null || found.isEmpty() ? null : found.get(0)),
+                timeout, debugMode, trustAllCertificates);
     }
 
-    public JSONObject createPullRequest(String gitlabUrl, final String authToken, final String project, final String repoSlug, final PullRequest pullRequest,
+    public PullRequest mergePullRequest(String gitlabUrl, final String authToken, final String project, final String repoSlug, final int pullRequestId,
                                         int timeout, final boolean debugMode, final boolean trustAllCertificates) throws BadRequestException {
-        try {
-            JSONObject json = new JSONObject()
-                    .put("title", pullRequest.getTitle())
-                    .put("description", pullRequest.getDescription())
-                    .put("source_branch", pullRequest.getFrom())
-                    .put("target_branch", pullRequest.getTo());
-
-            RequestBody body = RequestBody.create(okhttp3.MediaType.parse(MediaType.APPLICATION_JSON), json.toString());
-            Request request = buildRequest(gitlabUrl, authToken, project, repoSlug,"merge_requests", HttpMethod.POST, body, null);
-            return (JSONObject)executeRequest(request, timeout, debugMode, trustAllCertificates);
-        } catch (JSONException ex) {
-            throw new RuntimeException("Error creating pull request", ex);
+        return await(mergePullRequestAsync(gitlabUrl, authToken, project, repoSlug, pullRequestId, timeout, debugMode, trustAllCertificates));
+    }
+
+    public CompletableFuture<PullRequest> mergePullRequestAsync(String gitlabUrl, final String authToken, final String project, final String repoSlug, final int pullRequestId,
+                                                                int timeout, final boolean debugMode, final boolean trustAllCertificates) {
+        return mergePullRequestAsync(gitlabUrl, authToken, project, repoSlug, pullRequestId, null, false, 0,
+                timeout, debugMode, trustAllCertificates);
+    }
+
+    /**
+     * Merges a merge request, optionally once its pipeline succeeds. With a wait timeout the merge is only attempted
+     * after Gitlab finished checking the mergeability, and the returned future completes once the merge request is
+     * merged; the state is polled with a growing delay and no thread waits in between.
+     *
+     * @param pullRequestId        IID of the merge request.
+     * @param sha                  Expected head commit, the merge fails if the source branch moved; null to merge any head.
+     * @param whenPipelineSucceeds True to let Gitlab merge once the pipeline of the head commit succeeds.
+     * @param waitTimeout          Seconds to wait for the merge request to be merged, 0 to return right after the request.
+     * @return Future of the merge request, failing if it got closed, its pipeline failed or the wait timed out.
+     */
+    public CompletableFuture<PullRequest> mergePullRequestAsync(String gitlabUrl, final String authToken, final String project, final String repoSlug, final int pullRequestId,
+                                                                final String sha, final boolean whenPipelineSucceeds, final int waitTimeout,
+                                                                int timeout, final boolean debugMode, final boolean trustAllCertificates) {
+        ObjectNode json = MAPPER.createObjectNode()
+                .put("merge_request_iid", pullRequestId);
+        if (StringUtils.isNotBlank(sha)) {
+            json.put("sha", sha);
+        }
+        if (whenPipelineSucceeds) {
+            json.put("merge_when_pipeline_succeeds", true);
+        }
+
+        Request request = buildRequest(
+                gitlabUrl,
+                authToken,
+                project,
+                repoSlug,
+                "merge_requests/" + pullRequestId + "/merge",
+                HttpMethod.PUT,
+                jsonBody(json),
+                null
+        );
+        Request lookup = uncached(buildRequest(gitlabUrl, authToken, project, repoSlug, "merge_requests/" + pullRequestId,
+                HttpMethod.GET, null, null));
+        Supplier<CompletableFuture<PullRequest>> current = () -> executeRequestAsync(lookup, PullRequest.class,
+                timeout, debugMode, trustAllCertificates);
+        Recovery<PullRequest> recovery = () -> this.<PullRequest>findAsync(lookup, MAPPER.constructType(PullRequest.class), timeout, debugMode, trustAllCertificates)
+                .thenApply(found -> found != null && ("merged".equals(found.getState())
+                        || (whenPipelineSucceeds && Boolean.TRUE.equals(found.getMergeWhenPipelineSucceeds()))) ? found : null);
+        if (waitTimeout <= 0) {
+            return executeRequestAsync(request, PullRequest.class, recovery, timeout, debugMode, trustAllCertificates);
         }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(waitTimeout);
+        String name = "merge request !" + pullRequestId;
+        String subject = GitlabEvents.mergeRequestSubject(gitlabUrl, projectPath(project, repoSlug), pullRequestId);
+        Operation<PullRequest> operation = new Operation<>();
+        // Gitlab rejects the merge while it is still checking whether the merge request can be merged
+        CompletableFuture<PullRequest> checked = operation.step(Poller.poll(current,
+                found -> !OPENED.equals(found.getState()) || !MERGE_STATUS_CHECKING.contains(found.getMergeStatus()),
+                PullRequest::getMergeStatus, TimeUnit.SECONDS.toMillis(waitTimeout), "Gitlab to check the mergeability of " + name,
+                subject));
+        return operation.completeWith(checked.thenCompose(found -> {
+            if (MERGED.equals(found.getState())) {
+                return CompletableFuture.completedFuture(found);
+            }
+            if (!OPENED.equals(found.getState())) {
+                throw new IllegalStateException(StringUtils.capitalize(name) + " is " + found.getState());
+            }
+            return operation.step(executeRequestAsync(request, PullRequest.class, recovery, timeout, debugMode, trustAllCertificates));
+        }).thenCompose(merge -> {
+            if (merge == null || MERGED.equals(merge.getState())) {
+                return CompletableFuture.completedFuture(merge);
+            }
+            long remaining = Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+            return operation.step(Poller.poll(current, found -> {
+                if (MERGED.equals(found.getState())) {
+                    return true;
+                }
+                if (!OPENED.equals(found.getState())) {
+                    throw new IllegalStateException(StringUtils.capitalize(name) + " was " + found.getState() + " instead of merged");
+                }
+                if (!Boolean.TRUE.equals(found.getMergeWhenPipelineSucceeds())) {
+                    throw new IllegalStateException(StringUtils.capitalize(name) + " is no longer set to merge when the pipeline"
+                            + " succeeds (pipeline " + pipelineStatus(found) + ")");
+                }
+                return false;
+            }, ContentService::pipelineStatus, remaining, name + " to be merged", subject));
+        }));
+    }
+
+    /**
+     * Returns the status of the pipeline of the head commit of a merge request.
+     */
+    private static Object pipelineStatus(final PullRequest pullRequest) {
+        Object pipeline = pullRequest.getUnmappedFields().get("head_pipeline");
+        return pipeline instanceof Map ? ((Map<?, ?>) pipeline).get("status") : null;
     }
 
-    public JSONObject mergePullRequest(String gitlabUrl, final String authToken, final String project, final String repoSlug, final int pullRequestId,
-                                       int timeout, final boolean debugMode, final boolean trustAllCertificates) throws BadRequestException {
-        try {
-            JSONObject json = new JSONObject()
-                    .put("merge_request_iid", pullRequestId);
-
-            RequestBody body = RequestBody.create(okhttp3.MediaType.parse(MediaType.APPLICATION_JSON), json.toString());
-            Request request = buildRequest(
-                    gitlabUrl,
-                    authToken,
-                    project,
-                    repoSlug,
-                    "merge_requests/" + pullRequestId + "/merge",
-                    HttpMethod.PUT,
-                    body,
-                    null
-            );
-            return (JSONObject)executeRequest(request, timeout, debugMode, trustAllCertificates);
-        } catch(JSONException ex) {
-            throw new BadRequestException("Error merging pull request with ID " + pullRequestId, ex);
+    /**
+     * Waits for the latest pipeline of a ref, a commit or the head commit of a merge request to finish. Builds waiting
+     * for pipelines of the same project share the polls of the {@link PipelineWatcher}.
+     *
+     * @param ref           Branch or tag, null for any.
+     * @param sha           Full commit SHA, null for any.
+     * @param pullRequestId IID of the merge request whose head commit to wait for, 0 for none.
+     * @param waitTimeout   Seconds to wait, 0 for no limit.
+     * @return Future of the finished pipeline, whatever its status; cancelling it stops waiting.
+     */
+    public CompletableFuture<Pipeline> waitForPipelineAsync(String gitlabUrl, final String authToken, final String project, final String repoSlug,
+                                                            final String ref, final String sha, final int pullRequestId, final int waitTimeout,
+                                                            int timeout, final boolean debugMode, final boolean trustAllCertificates) {
+        PipelineWatcher watcher = PipelineWatcher.getInstance();
+        long timeoutMillis = TimeUnit.SECONDS.toMillis(waitTimeout);
+        if (pullRequestId <= 0) {
+            return watcher.watch(gitlabUrl, authToken, project, repoSlug, StringUtils.trimToNull(ref), StringUtils.trimToNull(sha),
+                    timeoutMillis, timeout, debugMode, trustAllCertificates);
         }
+
+        long started = System.nanoTime();
+        Request lookup = uncached(buildRequest(gitlabUrl, authToken, project, repoSlug, "merge_requests/" + pullRequestId,
+                HttpMethod.GET, null, null));
+        Operation<Pipeline> operation = new Operation<>();
+        return operation.completeWith(operation.step(executeRequestAsync(lookup, PullRequest.class, timeout, debugMode, trustAllCertificates))
+                .thenCompose(pullRequest -> {
+                    long remaining = timeoutMillis <= 0 ? 0
+                            : Math.max(1, timeoutMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+                    return operation.step(watcher.watch(gitlabUrl, authToken, project, repoSlug, StringUtils.trimToNull(ref),
+                            pullRequest.getSha(), remaining, timeout, debugMode, trustAllCertificates));
+                }));
+    }
+
+    /**
+     * Checks whether a file exists in the given ref, using a HEAD request so that the content is not transferred.
+     *
+     * @param filePath Path of the file in the repository.
+     * @param ref      Branch, tag or commit.
+     * @return Future which is true if the file exists.
+     */
+    public CompletableFuture<Boolean> fileExistsAsync(String gitlabUrl, final String authToken, final String project, final String repoSlug,
+                                                      final String filePath, final String ref,
+                                                      int timeout, final boolean debugMode, final boolean trustAllCertificates) {
+        CompletableFuture<FileHead> head = fileHeadAsync(gitlabUrl, authToken, project, repoSlug, filePath, ref,
+                timeout, debugMode, trustAllCertificates);
+        CompletableFuture<Boolean> exists = head.thenApply(FileHead::exists);
+        exists.whenComplete((result, failure) -> {
+            if (failure instanceof CancellationException) {
+                head.cancel(true);
+            }
+        });
+        return exists;
     }
 
-    public JSONObject updateFile(String gitlabUrl, final String authToken, final String project, final String repoSlug, final FileUpdate fileUpdate, String workspace,
-                                 int timeout, final boolean debugMode, final boolean trustAllCertificates) {
-        try {
-            JSONObject json = new JSONObject()
-                    .put("branch", fileUpdate.getBranch())
-                    .put("commit_message", fileUpdate.getMessage())
-                    .put("content", new String(Files.readAllBytes(Paths.get(workspace, fileUpdate.getFile())), StandardCharsets.UTF_8));
-
-            RequestBody body = RequestBody.create(okhttp3.MediaType.parse(MediaType.APPLICATION_JSON), json.toString());
-            Request request = buildRequest(
-                    gitlabUrl,
-                    authToken,
-                    project,
-                    repoSlug,
-                    "repository/files/" + URLEncoder.encode(fileUpdate.getFile(), "UTF-8"),
-                    HttpMethod.PUT,
-                    body,
-                    null
-            );
-            return (JSONObject)executeRequest(request, timeout, debugMode, trustAllCertificates);
-        } catch (IOException ex) {
-            throw new RuntimeException("Error reading file", ex);
-        } catch (JSONException ex) {
-            throw new RuntimeException("Error creating pull request", ex);
+    /**
+     * Retrieves the metadata of a file in the given ref with a HEAD request, i.e. without transferring its content.
+     *
+     * @param filePath Path of the file in the repository.
+     * @param ref      Branch, tag or commit.
+     * @return Future of the metadata.
+     */
+    public CompletableFuture<FileHead> fileHeadAsync(String gitlabUrl, final String authToken, final String project, final String repoSlug,
+                                                     final String filePath, final String ref,
+                                                     int timeout, final boolean debugMode, final boolean trustAllCertificates) {
+        Request request = buildRequest(gitlabUrl, authToken, project, repoSlug, "repository/files/" + encodePath(filePath),
+                HttpMethod.HEAD, null, Collections.singletonMap("ref", ref));
+        return executeAsync(request, response -> {
+            if (response.code() == 404) {
+                return new FileHead(false, null);
+            }
+            if (!response.isSuccessful()) {
+                throw new BadRequestException(ERROR_RESPONSE + response.code() + ") for file " + filePath);
+            }
+            return new FileHead(true, response.header(CONTENT_SHA256_HEADER));
+        }, timeout, debugMode, trustAllCertificates);
+    }
+
+    /**
+     * Commits all the given file actions at once, see the Gitlab commits API. Actions without an action get created
+     * or updated depending on whether the file exists in the branch; all these checks are sent concurrently. The
+     * content of the files is read from the workspace and sent base64 encoded.
+     *
+     * @param branch    The branch to commit to.
+     * @param message   The commit message.
+     * @param actions   The file actions.
+     * @param workspace The workspace holding the new content of the files.
+     * @return The commit.
+     */
+    public Commit commitFiles(String gitlabUrl, final String authToken, final String project, final String repoSlug,
+                              final String branch, final String message, final List<CommitAction> actions, final FilePath workspace,
+                              int timeout, final boolean debugMode, final boolean trustAllCertificates) throws BadRequestException {
+        Map<CommitAction, CompletableFuture<Boolean>> checks = new LinkedHashMap<>();
+        for (CommitAction action : actions) {
+            checks.put(action, action.isCreateOrUpdate()
+                    ? fileExistsAsync(gitlabUrl, authToken, project, repoSlug, action.getFilePath(), branch, timeout, debugMode, trustAllCertificates)
+                    : null);
+        }
+
+        List<CommitAction> resolved = new ArrayList<>(checks.size());
+        for (Map.Entry<CommitAction, CompletableFuture<Boolean>> check : checks.entrySet()) {
+            CommitAction action = check.getKey();
+            if (check.getValue() != null) {
+                action = action.withAction(await(check.getValue()) ? CommitAction.UPDATE : CommitAction.CREATE);
+            }
+            resolved.add(action);
+        }
+
+        RequestBody body = new StreamingJsonBody(json -> {
+            json.writeStartObject();
+            json.writeStringField("branch", branch);
+            json.writeStringField("commit_message", message);
+            json.writeArrayFieldStart("actions");
+            for (CommitAction action : resolved) {
+                json.writeStartObject();
+                json.writeStringField("action", action.getAction());
+                json.writeStringField("file_path", action.getFilePath());
+                if (StringUtils.isNotBlank(action.getPreviousPath())) {
+                    json.writeStringField("previous_path", action.getPreviousPath());
+                }
+                if (action.hasContent()) {
+                    json.writeFieldName("content");
+                    StreamingJsonBody.writeBase64(json, workspace.child(action.getEffectiveSource()));
+                    json.writeStringField("encoding", "base64");
+                }
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        }, resolved.size() + " file actions");
+
+        Request request = buildRequest(gitlabUrl, authToken, project, repoSlug, "repository/commits", HttpMethod.POST, body, null);
+        return executeRequest(request, Commit.class, timeout, debugMode, trustAllCertificates);
+    }
+
+    /**
+     * Creates or updates a file with the content of a workspace file. A HEAD request tells whether the file exists
+     * (create with POST, update with PUT) and, with skipUnchanged, whether its content differs from the workspace
+     * file; the hash of the workspace file is computed where the file is. The content is streamed from the
+     * workspace, which may be on an agent, and sent base64 encoded; it is never held in memory as a whole.
+     *
+     * @param workspace     The workspace holding the file.
+     * @param skipUnchanged True to skip the commit if the content did not change.
+     * @return The updated file, {@link FileUpdate#isCommitted()} tells whether a commit was made.
+     */
+    public FileUpdate updateFile(String gitlabUrl, final String authToken, final String project, final String repoSlug, final FileUpdate fileUpdate,
+                                 final FilePath workspace, final boolean skipUnchanged,
+                                 int timeout, final boolean debugMode, final boolean trustAllCertificates) throws InterruptedException {
+        FilePath source = workspace.child(fileUpdate.getFile());
+        CompletableFuture<FileHead> pendingHead = fileHeadAsync(gitlabUrl, authToken, project, repoSlug, fileUpdate.getFile(),
+                fileUpdate.getBranch(), timeout, debugMode, trustAllCertificates);
+
+        // The hash also tells whether a failed attempt to commit took effect, see the recovery below
+        String localSha256 = null;
+        if (skipUnchanged || getRetryPolicy().getMaxAttempts() > 1) {
+            try {
+                localSha256 = source.act(new Sha256Callable());
+            } catch (IOException ex) {
+                pendingHead.cancel(true);
+                throw new RuntimeException("Error reading file " + source.getRemote(), ex);
+            }
+        }
+
+        FileHead head = await(pendingHead);
+        if (skipUnchanged && head.exists() && localSha256.equalsIgnoreCase(head.getSha256())) {
+            if (debugMode) {
+                LOGGER.info(TAG + "Skipping update of unchanged file " + fileUpdate.getFile());
+            }
+            FileUpdate unchanged = new FileUpdate();
+            unchanged.setFile(fileUpdate.getFile());
+            unchanged.setBranch(fileUpdate.getBranch());
+            unchanged.setMessage(fileUpdate.getMessage());
+            unchanged.setCommitted(false);
+            return unchanged;
+        }
+
+        RequestBody body = new StreamingJsonBody(json -> {
+            json.writeStartObject();
+            json.writeStringField("branch", fileUpdate.getBranch());
+            json.writeStringField("commit_message", fileUpdate.getMessage());
+            json.writeStringField("encoding", "base64");
+            json.writeFieldName("content");
+            StreamingJsonBody.writeBase64(json, source);
+            json.writeEndObject();
+        }, source.getRemote());
+
+        Request request = buildRequest(
+                gitlabUrl,
+                authToken,
+                project,
+                repoSlug,
+                "repository/files/" + encodePath(fileUpdate.getFile()),
+                head.exists() ? HttpMethod.PUT : HttpMethod.POST,
+                body,
+                null
+        );
+        String expectedSha256 = localSha256;
+        Recovery<FileUpdate> recovery = expectedSha256 == null ? null : () -> fileHeadAsync(gitlabUrl, authToken, project,
+                repoSlug, fileUpdate.getFile(), fileUpdate.getBranch(), timeout, debugMode, trustAllCertificates)
+                .thenApply(current -> current.exists() && expectedSha256.equalsIgnoreCase(current.getSha256()) ? fileUpdate : null);
+        FileUpdate result = await(executeRequestAsync(request, FileUpdate.class, recovery, timeout, debugMode, trustAllCertificates));
+        if (result == null) {
+            result = fileUpdate;
+        }
+        result.setCommitted(true);
+        return result;
+    }
+
+    /**
+     * Metadata of a file in a repository.
+     */
+    public static final class FileHead {
+        private final boolean exists;
+        private final String sha256;
+
+        private FileHead(final boolean exists, final String sha256) {
+            this.exists = exists;
+            this.sha256 = sha256;
+        }
+
+        public boolean exists() {
+            return exists;
+        }
+
+        /**
+         * Returns the SHA-256 hash of the content.
+         *
+         * @return Lower case hex string, null if the file does not exist or Gitlab did not send the hash.
+         */
+        public String getSha256() {
+            return sha256;
         }
     }
 }
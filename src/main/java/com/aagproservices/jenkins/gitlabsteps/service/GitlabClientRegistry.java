@@ -0,0 +1,172 @@
+package com.aagproservices.jenkins.gitlabsteps.service;
+
+import com.aagproservices.jenkins.gitlabsteps.GitlabStepsConfiguration;
+import com.aagproservices.jenkins.gitlabsteps.util.HttpUtil;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Process-wide registry of the HTTP clients used to talk to Gitlab. Clients are cached per timeout, certificate
+ * handling and Gitlab host and are all derived from one base client, so they share the connection pool and the
+ * dispatcher and connections (including HTTP/2 ones) get reused between steps. The dispatcher bounds the number of
+ * requests in flight, both for synchronous and asynchronous callers.
+ */
+public final class GitlabClientRegistry {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GitlabClientRegistry.class);
+
+    private static final String SSL_INSTANCE_TYPE = "SSL";
+    private static final GitlabClientRegistry INSTANCE = new GitlabClientRegistry();
+
+    private final ConcurrentMap<ClientKey, OkHttpClient> clients = new ConcurrentHashMap<>();
+    private final Dispatcher dispatcher = new Dispatcher();
+    private OkHttpClient baseClient;
+
+    /**
+     * Private constructor.
+     */
+    private GitlabClientRegistry() {
+    }
+
+    public static GitlabClientRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the client to use for the given Gitlab URL.
+     *
+     * @param url                  The URL which gets requested.
+     * @param timeout              Connect/read/write timeout in seconds.
+     * @param trustAllCertificates True if certificate validation is skipped.
+     * @return A client sharing the connection pool with all the other clients.
+     */
+    public OkHttpClient getClient(final HttpUrl url, final int timeout, final boolean trustAllCertificates) {
+        ClientKey key = new ClientKey(url.scheme(), url.host(), url.port(), timeout, trustAllCertificates);
+        OkHttpClient client = clients.get(key);
+        if (client == null) {
+            client = createClient(key);
+            OkHttpClient existing = clients.putIfAbsent(key, client);
+            if (existing != null) {
+                client = existing;
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Drops all the clients and evicts the idle connections, so that changed global settings take effect.
+     */
+    public synchronized void reset() {
+        OkHttpClient previous = baseClient;
+        baseClient = null;
+        clients.clear();
+        if (previous != null) {
+            previous.connectionPool().evictAll();
+        }
+    }
+
+    private synchronized OkHttpClient getBaseClient() {
+        if (baseClient == null) {
+            GitlabStepsConfiguration configuration = GitlabStepsConfiguration.get();
+            dispatcher.setMaxRequests(configuration.getMaxRequests());
+            dispatcher.setMaxRequestsPerHost(configuration.getMaxRequestsPerHost());
+            baseClient = new OkHttpClient.Builder()
+                    .connectionPool(new ConnectionPool(
+                            configuration.getMaxIdleConnections(),
+                            configuration.getKeepAliveSeconds(),
+                            TimeUnit.SECONDS))
+                    .dispatcher(dispatcher)
+                    .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                    .retryOnConnectionFailure(true)
+                    .eventListenerFactory(CallEventListener.FACTORY)
+                    .build();
+        }
+        return baseClient;
+    }
+
+    private OkHttpClient createClient(final ClientKey key) {
+        OkHttpClient.Builder builder = getBaseClient().newBuilder()
+                .connectTimeout(key.timeout, TimeUnit.SECONDS)
+                .readTimeout(key.timeout, TimeUnit.SECONDS)
+                .writeTimeout(key.timeout, TimeUnit.SECONDS);
+
+        if (key.trustAllCertificates) {
+            builder = installTrustManager(builder, HttpUtil.buildAllTrustingManager())
+                    .hostnameVerifier((s, sslSession) -> true);
+        }
+
+        return builder.build();
+    }
+
+    private OkHttpClient.Builder installTrustManager(OkHttpClient.Builder builder, final TrustManager[] allTrustingManager) {
+        try {
+            SSLContext sslContext = SSLContext.getInstance(SSL_INSTANCE_TYPE);
+            sslContext.init(null, allTrustingManager, new SecureRandom());
+            return builder.sslSocketFactory(sslContext.getSocketFactory(), (X509TrustManager) allTrustingManager[0]);
+        } catch (NoSuchAlgorithmException e) {
+            //We should never land here
+            return builder;
+        } catch (KeyManagementException e) {
+            LOGGER.error("Something went wrong with the key-management", e);
+            return builder;
+        }
+    }
+
+    /**
+     * Key of a cached client.
+     */
+    private static final class ClientKey {
+        private final String scheme;
+        private final String host;
+        private final int port;
+        private final int timeout;
+        private final boolean trustAllCertificates;
+
+        private ClientKey(final String scheme, final String host, final int port, final int timeout, final boolean trustAllCertificates) {
+            this.scheme = scheme;
+            this.host = host;
+            this.port = port;
+            this.timeout = timeout;
+            this.trustAllCertificates = trustAllCertificates;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ClientKey)) {
+                return false;
+            }
+            ClientKey other = (ClientKey) o;
+            return port == other.port
+                    && timeout == other.timeout
+                    && trustAllCertificates == other.trustAllCertificates
+                    && scheme.equals(other.scheme)
+                    && host.equals(other.host);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(scheme, host, port, timeout, trustAllCertificates);
+        }
+    }
+}
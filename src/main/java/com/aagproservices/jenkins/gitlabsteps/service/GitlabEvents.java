@@ -0,0 +1,100 @@
+package com.aagproservices.jenkins.gitlabsteps.service;
+
+import okhttp3.HttpUrl;
+
+import java.util.Locale;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Hands the events Gitlab sends to the webhook of the plugin to whatever waits for them: builds waiting for a
+ * pipeline or a merge request are woken up, and the cached responses of the project are dropped. The polling of the
+ * waiting builds goes on as a fallback in case an event gets lost. Projects are identified by host and path, as an
+ * event does not tell the URL the steps use to reach Gitlab.
+ */
+public final class GitlabEvents {
+
+    /**
+     * Private constructor.
+     */
+    private GitlabEvents() {
+    }
+
+    /**
+     * Handles a change of the status of a pipeline.
+     *
+     * @param host             The host of Gitlab.
+     * @param projectPath      Full path of the project.
+     * @param mergeRequestIid  IID of the merge request the pipeline runs for, 0 if none.
+     */
+    public static void pipelineChanged(final String host, final String projectPath, final int mergeRequestIid) {
+        ResponseCache.getInstance().invalidate(host, projectPath);
+        PipelineWatcher.getInstance().wakeUp(host, projectPath);
+        if (mergeRequestIid > 0) {
+            Poller.wakeUp(mergeRequestSubject(key(host, projectPath), mergeRequestIid));
+        }
+    }
+
+    /**
+     * Handles a change of a merge request, e.g. a finished mergeability check or the merge.
+     *
+     * @param host        The host of Gitlab.
+     * @param projectPath Full path of the project.
+     * @param iid         IID of the merge request.
+     */
+    public static void mergeRequestChanged(final String host, final String projectPath, final int iid) {
+        ResponseCache.getInstance().invalidate(host, projectPath);
+        Poller.wakeUp(mergeRequestSubject(key(host, projectPath), iid));
+    }
+
+    /**
+     * Handles a pushed or deleted tag.
+     *
+     * @param host        The host of Gitlab.
+     * @param projectPath Full path of the project.
+     */
+    public static void tagPushed(final String host, final String projectPath) {
+        ResponseCache.getInstance().invalidate(host, projectPath);
+        // The pipeline of the tag may be what a build waits for
+        PipelineWatcher.getInstance().wakeUp(host, projectPath);
+    }
+
+    /**
+     * Returns the key of a project.
+     *
+     * @param host        The host of Gitlab.
+     * @param projectPath Full path of the project.
+     * @return The key.
+     */
+    static String key(final String host, final String projectPath) {
+        return host.toLowerCase(Locale.ROOT) + "/" + projectPath.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the key of a project the steps address by the URL of Gitlab.
+     *
+     * @param gitlabUrl   Base URL of Gitlab.
+     * @param projectPath Full path of the project.
+     * @return The key, null if the URL is invalid.
+     */
+    static String keyOf(final String gitlabUrl, final String projectPath) {
+        HttpUrl url = gitlabUrl == null ? null : HttpUrl.parse(gitlabUrl);
+        return url == null ? null : key(url.host(), projectPath);
+    }
+
+    /**
+     * Returns the subject of the pollers of a merge request, see {@link Poller#wakeUp(String)}.
+     *
+     * @param gitlabUrl   Base URL of Gitlab.
+     * @param projectPath Full path of the project.
+     * @param iid         IID of the merge request.
+     * @return The subject, null if the URL is invalid.
+     */
+    static String mergeRequestSubject(final String gitlabUrl, final String projectPath, final int iid) {
+        return mergeRequestSubject(keyOf(gitlabUrl, projectPath), iid);
+    }
+
+    private static String mergeRequestSubject(final String projectKey, final int iid) {
+        return projectKey == null ? null : projectKey + "!" + iid;
+    }
+}
@@ -0,0 +1,66 @@
+package com.aagproservices.jenkins.gitlabsteps.service;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.util.List;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Checks of the settings the listing steps share, for a single repository as well as for several ones. Failures are
+ * reported with an {@link IllegalStateException}, like the other checks of the steps.
+ */
+public final class ListingValidation {
+
+    /**
+     * Private constructor.
+     */
+    private ListingValidation() {
+    }
+
+    /**
+     * Checks the paging and the projection of a listing.
+     *
+     * @param maxResults The maximum number of results, 0 for no limit.
+     * @param pageSize   The page size, 0 for the maximum.
+     * @param fields     The fields to keep of each element, may be null.
+     */
+    public static void validateListing(final int maxResults, final int pageSize, final List<String> fields) {
+        if (maxResults < 0) {
+            throw new IllegalStateException("The maximum number of results is negative");
+        }
+
+        if (pageSize < 0 || pageSize > BaseService.MAX_PAGE_SIZE) {
+            throw new IllegalStateException("The page size must be between 0 and " + BaseService.MAX_PAGE_SIZE);
+        }
+
+        if (fields != null) {
+            for (String field : fields) {
+                if (StringUtils.isBlank(field)) {
+                    throw new IllegalStateException("The list of fields contains an empty field");
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks the order of a listing of tags.
+     *
+     * @param latest  The number of latest tags to return, 0 for all.
+     * @param orderBy The field to order by, may be empty.
+     * @param sort    The sort order, may be empty.
+     */
+    public static void validateTagOrder(final int latest, final String orderBy, final String sort) {
+        if (latest < 0) {
+            throw new IllegalStateException("The number of latest tags is negative");
+        }
+
+        if (StringUtils.isNotEmpty(orderBy) && !ContentService.TAG_ORDER_FIELDS.contains(orderBy)) {
+            throw new IllegalStateException("Tags can only be ordered by " + ContentService.TAG_ORDER_FIELDS);
+        }
+
+        if (StringUtils.isNotEmpty(sort) && !ContentService.SORT_ORDERS.contains(sort)) {
+            throw new IllegalStateException("Tags can only be sorted " + ContentService.SORT_ORDERS);
+        }
+    }
+}
@@ -0,0 +1,505 @@
+package com.aagproservices.jenkins.gitlabsteps.service;
+
+import com.aagproservices.jenkins.gitlabsteps.GitlabStepsConfiguration;
+import com.aagproservices.jenkins.gitlabsteps.api.Pipeline;
+import com.fasterxml.jackson.databind.JavaType;
+import jenkins.util.Timer;
+import okhttp3.Request;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.HttpMethod;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Controller-wide watcher of the pipelines builds are waiting for. Instead of every waiting build polling its own
+ * pipeline, the watcher asks Gitlab once per project and tick for the pipelines which changed since the previous tick
+ * ("updated_after") and hands each change to the builds waiting for it. A build only looks up its pipeline on its
+ * own once, when it starts waiting. No thread waits in between, the ticks run on the Jenkins timer and only while
+ * builds are waiting. A project Gitlab sends webhook events for (see {@link GitlabEvents}) is asked right away when
+ * an event arrives, and only every few ticks otherwise in case an event gets lost.
+ */
+public final class PipelineWatcher extends BaseService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PipelineWatcher.class);
+
+    private static final PipelineWatcher INSTANCE = new PipelineWatcher();
+
+    /**
+     * Statuses of a pipeline which do not change any more unless someone acts on the pipeline.
+     */
+    public static final Set<String> FINISHED_STATUSES = Collections.unmodifiableSet(new HashSet<>(
+            Arrays.asList("success", "failed", "canceled", "skipped", "manual")));
+
+    /**
+     * Time the change feed reaches back before the previous response. Covers the second precision of the "Date"
+     * header and pipelines which were updated while the previous response was sent.
+     */
+    private static final long OVERLAP_MILLIS = 10_000;
+
+    /**
+     * A project which sent webhook events is only asked at every this many ticks.
+     */
+    private static final int FALLBACK_TICKS = 6;
+
+    /**
+     * Time after its latest webhook event a project is still trusted to send events.
+     */
+    private static final long HOOKED_NANOS = TimeUnit.HOURS.toNanos(1);
+
+    private static final JavaType PAGE_TYPE = MAPPER.getTypeFactory().constructCollectionType(List.class, Pipeline.class);
+
+    private final Supplier<GitlabStepsConfiguration> configuration;
+    private final Map<Watched, Watched> watched = new HashMap<>();
+    private final Map<String, Long> hooked = new HashMap<>();
+    private ScheduledFuture<?> ticker;
+
+    /**
+     * Private constructor.
+     */
+    private PipelineWatcher() {
+        this(GitlabStepsConfiguration::get);
+    }
+
+    /**
+     * Constructor taking the settings to use.
+     *
+     * @param configuration Returns the current settings.
+     */
+    PipelineWatcher(final Supplier<GitlabStepsConfiguration> configuration) {
+        this.configuration = configuration;
+        setFunctionName("gitlabWaitForPipeline");
+    }
+
+    public static PipelineWatcher getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Waits for the latest pipeline of a ref and/or commit to reach one of the {@link #FINISHED_STATUSES}.
+     *
+     * @param ref           Branch or tag, null for any.
+     * @param sha           Full commit SHA, null for any.
+     * @param timeoutMillis Time to wait, 0 for no limit.
+     * @return Future of the finished pipeline, cancelling it stops waiting.
+     */
+    CompletableFuture<Pipeline> watch(final String gitlabUrl, final String authToken, final String project, final String repoSlug,
+                                      final String ref, final String sha, final long timeoutMillis,
+                                      int timeout, final boolean debugMode, final boolean trustAllCertificates) {
+        Waiter waiter = new Waiter(ref, sha, timeoutMillis);
+        Watched key = new Watched(gitlabUrl, authToken, project, repoSlug, trustAllCertificates);
+        Watched watching;
+        synchronized (this) {
+            watching = watched.computeIfAbsent(key, k -> k);
+            watching.waiters.add(waiter);
+            watching.timeout = Math.max(watching.timeout, timeout);
+            watching.debugMode |= debugMode;
+            if (ticker == null) {
+                long interval = configuration.get().getPipelinePollSeconds();
+                ticker = Timer.get().scheduleWithFixedDelay(this::tick, interval, interval, TimeUnit.SECONDS);
+            }
+        }
+        waiter.whenComplete((pipeline, failure) -> stopWatching(watching, waiter));
+        lookup(watching, waiter);
+        return waiter;
+    }
+
+    /**
+     * Returns the number of builds waiting for a pipeline.
+     *
+     * @return The number of waiting builds.
+     */
+    public synchronized int getWaiting() {
+        return watched.values().stream().mapToInt(project -> project.waiters.size()).sum();
+    }
+
+    /**
+     * Tells whether the ticks are scheduled, i.e. whether builds are waiting.
+     *
+     * @return True while ticking.
+     */
+    synchronized boolean isTicking() {
+        return ticker != null;
+    }
+
+    /**
+     * Asks Gitlab right away for the pipelines of the given project which changed, because a webhook announced a
+     * change. From then on, the project is polled less often.
+     *
+     * @param host        The host of Gitlab.
+     * @param projectPath Full path of the project.
+     */
+    public void wakeUp(final String host, final String projectPath) {
+        String key = GitlabEvents.key(host, projectPath);
+        List<Watched> projects;
+        synchronized (this) {
+            hooked.put(key, System.nanoTime());
+            projects = watched.values().stream()
+                    .filter(project -> key.equals(project.key))
+                    .collect(Collectors.toList());
+        }
+        projects.forEach(project -> {
+            lookupPending(project);
+            feed(project);
+        });
+    }
+
+    private synchronized void stopWatching(final Watched project, final Waiter waiter) {
+        project.waiters.remove(waiter);
+        if (waiter.lookup != null) {
+            waiter.lookup.cancel(true);
+        }
+        if (project.waiters.isEmpty()) {
+            watched.remove(project);
+        }
+        if (watched.isEmpty() && ticker != null) {
+            ticker.cancel(false);
+            ticker = null;
+        }
+    }
+
+    private void tick() {
+        List<Watched> projects;
+        List<Watched> due = new ArrayList<>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            hooked.values().removeIf(lastEvent -> now - lastEvent > HOOKED_NANOS);
+            projects = new ArrayList<>(watched.values());
+            for (Watched project : projects) {
+                if (!hooked.containsKey(project.key) || ++project.skippedTicks >= FALLBACK_TICKS) {
+                    project.skippedTicks = 0;
+                    due.add(project);
+                }
+            }
+        }
+        for (Watched project : projects) {
+            expire(project);
+            // Waiters whose first lookup failed try again
+            lookupPending(project);
+        }
+        due.forEach(this::feed);
+    }
+
+    private void lookupPending(final Watched project) {
+        List<Waiter> pending;
+        synchronized (this) {
+            pending = project.waiters.stream()
+                    .filter(waiter -> !waiter.initialized && waiter.lookup == null)
+                    .collect(Collectors.toList());
+        }
+        pending.forEach(waiter -> lookup(project, waiter));
+    }
+
+    private void expire(final Watched project) {
+        long now = System.nanoTime();
+        List<Waiter> expired;
+        synchronized (this) {
+            expired = project.waiters.stream()
+                    .filter(waiter -> waiter.limited && now - waiter.deadline >= 0)
+                    .collect(Collectors.toList());
+        }
+        expired.forEach(waiter -> waiter.completeExceptionally(new IllegalStateException("Timed out waiting for "
+                + waiter.describe(project))));
+    }
+
+    /**
+     * Looks up the latest pipeline of a waiter which starts waiting.
+     */
+    private void lookup(final Watched project, final Waiter waiter) {
+        Map<String, String> query = waiter.filter();
+        query.put("order_by", "id");
+        query.put("sort", "desc");
+        query.put(PAGE_SIZE_PARAM, "1");
+        CompletableFuture<Page> lookup = list(project, query);
+        synchronized (this) {
+            waiter.lookup = lookup.isDone() ? null : lookup;
+        }
+        lookup.whenComplete((page, failure) -> {
+            if (failure != null) {
+                synchronized (this) {
+                    waiter.lookup = null;
+                }
+                onFailure(project, Collections.singletonList(waiter), failure);
+                return;
+            }
+
+            List<Waiter> finished;
+            synchronized (this) {
+                waiter.lookup = null;
+                waiter.initialized = true;
+                if (project.cursor == null) {
+                    // Changes after the lookup come with the change feed
+                    project.cursor = page.serverTime.minusMillis(OVERLAP_MILLIS);
+                }
+                finished = update(page.pipelines, Collections.singletonList(waiter));
+            }
+            finished.forEach(Waiter::finish);
+        });
+    }
+
+    /**
+     * Fetches the pipelines of a project which changed since the previous tick.
+     */
+    private void feed(final Watched project) {
+        Map<String, String> query = new HashMap<>();
+        synchronized (this) {
+            if (project.cursor == null || project.waiters.isEmpty()) {
+                return;
+            }
+            if (project.feeding) {
+                // The answer in flight may predate the change a webhook announced
+                project.feedAgain = true;
+                return;
+            }
+            project.feeding = true;
+            project.feedAgain = false;
+            query.put("updated_after", DateTimeFormatter.ISO_INSTANT.format(project.cursor));
+        }
+        query.put("order_by", "updated_at");
+        query.put("sort", "asc");
+        query.put(PAGE_SIZE_PARAM, String.valueOf(MAX_PAGE_SIZE));
+
+        list(project, query).whenComplete((page, failure) -> {
+            List<Waiter> waiters;
+            List<Waiter> finished = Collections.emptyList();
+            boolean more = false;
+            synchronized (this) {
+                project.feeding = false;
+                waiters = new ArrayList<>(project.waiters);
+                if (failure == null) {
+                    finished = update(page.pipelines, project.waiters);
+                    // A full page is continued right away from its last pipeline
+                    more = page.pipelines.size() >= MAX_PAGE_SIZE;
+                    Instant next = more
+                            ? updatedAt(page.pipelines.get(page.pipelines.size() - 1))
+                            : page.serverTime.minusMillis(OVERLAP_MILLIS);
+                    if (next != null && next.isAfter(project.cursor)) {
+                        project.cursor = more ? next.minusMillis(1) : next;
+                    } else {
+                        more = false;
+                    }
+                }
+                more |= project.feedAgain;
+            }
+
+            if (failure != null) {
+                onFailure(project, waiters, failure);
+                return;
+            }
+            finished.forEach(Waiter::finish);
+            if (more) {
+                Timer.get().submit(() -> feed(project));
+            }
+        });
+    }
+
+    private CompletableFuture<Page> list(final Watched project, final Map<String, String> query) {
+        Request request = uncached(buildRequest(project.gitlabUrl, project.authToken, project.project, project.repoSlug,
+                "pipelines", HttpMethod.GET, null, query));
+        return executeAsync(request, response -> {
+            List<Pipeline> pipelines = readBody(response, PAGE_TYPE, project.debugMode);
+            Date date = response.headers().getDate("Date");
+            return new Page(pipelines == null ? Collections.<Pipeline>emptyList() : pipelines,
+                    date == null ? Instant.now() : date.toInstant());
+        }, project.timeout, project.debugMode, project.trustAllCertificates);
+    }
+
+    private void onFailure(final Watched project, final List<Waiter> waiters, final Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        if (cause instanceof CancellationException) {
+            return;
+        }
+        if (cause instanceof BadRequestException) {
+            // Gitlab refused the request, e.g. because the token was revoked; asking again will not help
+            waiters.forEach(waiter -> waiter.completeExceptionally(cause));
+        } else {
+            LOGGER.warn(TAG + "Unable to poll the pipelines of " + project + ", trying again at the next tick: " + cause);
+        }
+    }
+
+    /**
+     * Hands the given pipelines to the matching waiters.
+     *
+     * @return The waiters whose pipeline finished.
+     */
+    private static List<Waiter> update(final List<Pipeline> pipelines, final Collection<Waiter> waiters) {
+        List<Waiter> finished = new ArrayList<>();
+        for (Waiter waiter : waiters) {
+            for (Pipeline pipeline : pipelines) {
+                if (waiter.matches(pipeline) && isNewer(pipeline, waiter.pipeline)) {
+                    waiter.pipeline = pipeline;
+                }
+            }
+            if (waiter.initialized && waiter.pipeline != null && FINISHED_STATUSES.contains(waiter.pipeline.getStatus())) {
+                finished.add(waiter);
+            }
+        }
+        return finished;
+    }
+
+    /**
+     * Tells whether a pipeline is a later pipeline, or a later state of the same pipeline, than the known one. The
+     * lookup of a waiter and the change feed may answer out of order.
+     */
+    private static boolean isNewer(final Pipeline pipeline, final Pipeline known) {
+        if (known == null) {
+            return true;
+        }
+        int byId = Long.compare(pipeline.getId() == null ? 0 : pipeline.getId(), known.getId() == null ? 0 : known.getId());
+        if (byId != 0) {
+            return byId > 0;
+        }
+        Instant updated = updatedAt(pipeline);
+        Instant knownUpdated = updatedAt(known);
+        return updated == null || knownUpdated == null || !updated.isBefore(knownUpdated);
+    }
+
+    private static Instant updatedAt(final Pipeline pipeline) {
+        try {
+            return pipeline.getUpdatedAt() == null ? null : OffsetDateTime.parse(pipeline.getUpdatedAt()).toInstant();
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * A project builds are waiting for pipelines of, together with the state of its change feed.
+     */
+    private static final class Watched {
+        private final String gitlabUrl;
+        private final String authToken;
+        private final String project;
+        private final String repoSlug;
+        private final boolean trustAllCertificates;
+        private final String key;
+
+        private final List<Waiter> waiters = new ArrayList<>();
+        private Instant cursor;
+        private boolean feeding;
+        private boolean feedAgain;
+        private int skippedTicks;
+        private int timeout;
+        private boolean debugMode;
+
+        private Watched(final String gitlabUrl, final String authToken, final String project, final String repoSlug,
+                        final boolean trustAllCertificates) {
+            this.gitlabUrl = gitlabUrl;
+            this.authToken = authToken;
+            this.project = project;
+            this.repoSlug = repoSlug;
+            this.trustAllCertificates = trustAllCertificates;
+            this.key = GitlabEvents.keyOf(gitlabUrl, projectPath(project, repoSlug));
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Watched)) {
+                return false;
+            }
+            Watched other = (Watched) o;
+            // Builds using different tokens may not see the same pipelines
+            return trustAllCertificates == other.trustAllCertificates
+                    && Objects.equals(gitlabUrl, other.gitlabUrl)
+                    && Objects.equals(authToken, other.authToken)
+                    && Objects.equals(projectPath(project, repoSlug), projectPath(other.project, other.repoSlug));
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(gitlabUrl, authToken, projectPath(project, repoSlug), trustAllCertificates);
+        }
+
+        @Override
+        public String toString() {
+            return projectPath(project, repoSlug) + " on " + gitlabUrl;
+        }
+    }
+
+    /**
+     * A build waiting for a pipeline.
+     */
+    private static final class Waiter extends CompletableFuture<Pipeline> {
+        private final String ref;
+        private final String sha;
+        private final boolean limited;
+        private final long deadline;
+
+        private boolean initialized;
+        private volatile Pipeline pipeline;
+        private Future<?> lookup;
+
+        private Waiter(final String ref, final String sha, final long timeoutMillis) {
+            this.ref = ref;
+            this.sha = sha;
+            this.limited = timeoutMillis > 0;
+            this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        }
+
+        private Map<String, String> filter() {
+            Map<String, String> query = new HashMap<>();
+            if (ref != null) {
+                query.put("ref", ref);
+            }
+            if (sha != null) {
+                query.put("sha", sha);
+            }
+            return query;
+        }
+
+        private boolean matches(final Pipeline pipeline) {
+            return (ref == null || ref.equals(pipeline.getRef()))
+                    && (sha == null || sha.equalsIgnoreCase(pipeline.getSha()));
+        }
+
+        private void finish() {
+            complete(pipeline);
+        }
+
+        private String describe(final Watched project) {
+            Pipeline current = pipeline;
+            return "the pipeline of " + (sha != null ? sha : ref) + (sha != null && ref != null ? " on " + ref : "")
+                    + " in " + project
+                    + (current == null ? " (no pipeline yet)" : " (pipeline " + current.getId() + " is " + current.getStatus() + ")");
+        }
+    }
+
+    /**
+     * A page of pipelines together with the time Gitlab sent it.
+     */
+    private static final class Page {
+        private final List<Pipeline> pipelines;
+        private final Instant serverTime;
+
+        private Page(final List<Pipeline> pipelines, final Instant serverTime) {
+            this.pipelines = pipelines;
+            this.serverTime = serverTime;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.aagproservices.jenkins.gitlabsteps.service;
+
+import jenkins.util.Timer;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * @param <T> The type of the polled state.
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Polls a state in Gitlab until it reaches a terminal value, without holding a thread while waiting: the polls are
+ * scheduled on the Jenkins timer. The delay starts short and grows while the state does not change, and starts over
+ * as soon as it does, so that quick transitions are seen quickly and long waits cost few requests. The poller
+ * completes with the terminal state, fails with the exception thrown by the condition or with an
+ * {@link IllegalStateException} on timeout; cancelling it stops the polling. A poller may be woken up to poll right
+ * away, e.g. when a webhook announces a change of its subject (see {@link GitlabEvents}).
+ */
+final class Poller<T> extends CompletableFuture<T> {
+
+    static final long INITIAL_DELAY_MILLIS = 1000;
+    static final long MAX_DELAY_MILLIS = 30_000;
+    private static final double BACKOFF_FACTOR = 1.5;
+
+    private static final ConcurrentMap<String, Set<Poller<?>>> BY_SUBJECT = new ConcurrentHashMap<>();
+
+    private final Supplier<CompletableFuture<T>> probe;
+    private final Predicate<T> done;
+    private final Function<T, ?> progress;
+    private final long deadline;
+    private final String description;
+
+    private long delayMillis = INITIAL_DELAY_MILLIS;
+    private Object lastProgress;
+    private Future<?> inFlight;
+    private ScheduledFuture<?> scheduled;
+    private boolean woken;
+
+    /**
+     * Constructor.
+     *
+     * @param probe         Fetches the current state.
+     * @param done          Tells whether the state is terminal, throws to give up.
+     * @param progress      Extracts what counts as progress from the state, a change resets the delay.
+     * @param timeoutMillis Time to wait for the terminal state.
+     * @param description   What is waited for, e.g. "merge request !12 to be merged".
+     */
+    private Poller(final Supplier<CompletableFuture<T>> probe, final Predicate<T> done, final Function<T, ?> progress,
+                   final long timeoutMillis, final String description) {
+        this.probe = probe;
+        this.done = done;
+        this.progress = progress;
+        this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.description = description;
+    }
+
+    /**
+     * Starts polling right away.
+     *
+     * @return The poller, completing with the terminal state.
+     */
+    static <T> Poller<T> poll(final Supplier<CompletableFuture<T>> probe, final Predicate<T> done,
+                              final Function<T, ?> progress, final long timeoutMillis, final String description) {
+        return poll(probe, done, progress, timeoutMillis, description, null);
+    }
+
+    /**
+     * Starts polling right away, the poller can be woken up by its subject while it waits.
+     *
+     * @param subject What the polled state belongs to, see {@link GitlabEvents}; null if it cannot be woken up.
+     * @return The poller, completing with the terminal state.
+     */
+    static <T> Poller<T> poll(final Supplier<CompletableFuture<T>> probe, final Predicate<T> done,
+                              final Function<T, ?> progress, final long timeoutMillis, final String description,
+                              final String subject) {
+        Poller<T> poller = new Poller<>(probe, done, progress, timeoutMillis, description);
+        if (subject != null) {
+            BY_SUBJECT.computeIfAbsent(subject, key -> ConcurrentHashMap.newKeySet()).add(poller);
+            poller.whenComplete((state, failure) -> BY_SUBJECT.computeIfPresent(subject, (key, pollers) -> {
+                pollers.remove(poller);
+                return pollers.isEmpty() ? null : pollers;
+            }));
+        }
+        poller.pollNow();
+        return poller;
+    }
+
+    /**
+     * Wakes up the pollers of the given subject.
+     *
+     * @param subject The subject.
+     * @return The number of pollers woken up.
+     */
+    static int wakeUp(final String subject) {
+        Set<Poller<?>> pollers = BY_SUBJECT.get(subject);
+        if (pollers == null) {
+            return 0;
+        }
+        pollers.forEach(Poller::wakeUp);
+        return pollers.size();
+    }
+
+    /**
+     * Polls right away instead of waiting for the delay to pass. A poll in flight is followed by another one right
+     * away, as its answer may predate the change which caused the wake-up.
+     */
+    void wakeUp() {
+        synchronized (this) {
+            if (isDone()) {
+                return;
+            }
+            delayMillis = INITIAL_DELAY_MILLIS;
+            if (scheduled == null) {
+                woken = true;
+                return;
+            }
+            if (!scheduled.cancel(false)) {
+                // About to poll anyway
+                return;
+            }
+            scheduled = null;
+        }
+        pollNow();
+    }
+
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        synchronized (this) {
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            if (inFlight != null) {
+                inFlight.cancel(true);
+            }
+        }
+        return cancelled;
+    }
+
+    private void pollNow() {
+        if (isDone()) {
+            return;
+        }
+        CompletableFuture<T> request = probe.get();
+        synchronized (this) {
+            scheduled = null;
+            inFlight = request;
+        }
+        request.whenComplete((state, failure) -> {
+            if (isDone()) {
+                return;
+            }
+            if (failure != null) {
+                completeExceptionally(failure);
+                return;
+            }
+            try {
+                if (done.test(state)) {
+                    complete(state);
+                } else {
+                    scheduleNext(state);
+                }
+            } catch (RuntimeException | Error e) {
+                completeExceptionally(e);
+            }
+        });
+    }
+
+    private synchronized void scheduleNext(final T state) {
+        Object current = progress.apply(state);
+        if (!Objects.equals(current, lastProgress)) {
+            lastProgress = current;
+            delayMillis = INITIAL_DELAY_MILLIS;
+        } else {
+            delayMillis = Math.min((long) (delayMillis * BACKOFF_FACTOR), MAX_DELAY_MILLIS);
+        }
+
+        long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remainingMillis <= 0) {
+            completeExceptionally(new IllegalStateException("Timed out waiting for " + description
+                    + " (last state: " + current + ")"));
+            return;
+        }
+        // A last poll right at the deadline
+        long delay = woken ? 0 : Math.min(delayMillis, remainingMillis);
+        woken = false;
+        scheduled = Timer.get().schedule(this::pollNow, delay, TimeUnit.MILLISECONDS);
+    }
+}
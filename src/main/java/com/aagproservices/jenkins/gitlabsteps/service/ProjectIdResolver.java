@@ -0,0 +1,218 @@
+package com.aagproservices.jenkins.gitlabsteps.service;
+
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Controller-wide cache of the numeric ids of Gitlab projects. Requests are built with the full project path; once
+ * the id of a project is known, they get sent to the id instead so Gitlab does not have to resolve the path on every
+ * call. The id is looked up in the background the first time a project is used, concurrent callers share the
+ * lookup. A mapping which turns out to be stale (the id gives 404 while the path does not) gets dropped. Gitlab says
+ * "404 Project Not Found" when the project is missing, so other 404s are taken as they are; only the body-less answers
+ * to HEAD requests make the id get checked, once per project.
+ */
+public final class ProjectIdResolver {
+
+    private static final ProjectIdResolver INSTANCE = new ProjectIdResolver();
+
+    private final ConcurrentMap<String, Long> ids = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CompletableFuture<Long>> lookups = new ConcurrentHashMap<>();
+    private final Set<String> verified = ConcurrentHashMap.newKeySet();
+    private final ConcurrentMap<String, CompletableFuture<Boolean>> verifications = new ConcurrentHashMap<>();
+
+    /**
+     * Private constructor.
+     */
+    private ProjectIdResolver() {
+    }
+
+    public static ProjectIdResolver getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the known id of the given project.
+     *
+     * @param target The project.
+     * @return The id, null if it is not known yet.
+     */
+    public Long getId(final RequestTarget target) {
+        return ids.get(target.getKey());
+    }
+
+    /**
+     * Returns the request addressing the project by its id, if it is known.
+     *
+     * @param request The request, built with the project path.
+     * @return The request to send.
+     */
+    Request rewrite(final Request request) {
+        RequestTarget target = targetOf(request);
+        Long id = target == null ? null : ids.get(target.getKey());
+        return id == null ? request : withProject(request, String.valueOf(id));
+    }
+
+    /**
+     * Returns the request addressing the project by its path.
+     *
+     * @param request The request.
+     * @return The request addressing the project by its path.
+     */
+    Request withPath(final Request request) {
+        RequestTarget target = targetOf(request);
+        return target == null ? request : withProject(request, BaseService.encodePath(target.getProjectPath()));
+    }
+
+    /**
+     * Tells whether the given request addresses its project by id.
+     *
+     * @param request The request.
+     * @return True if the project segment is numeric.
+     */
+    boolean usesId(final Request request) {
+        if (targetOf(request) == null) {
+            return false;
+        }
+        List<String> segments = request.url().encodedPathSegments();
+        int index = projectSegment(segments);
+        return index >= 0 && segments.get(index).matches("\\d+");
+    }
+
+    /**
+     * Starts looking up the id of the given project unless it is known or being looked up already.
+     *
+     * @param target The project.
+     * @param lookup Sends the request returning the id.
+     */
+    void resolveInBackground(final RequestTarget target, final Supplier<CompletableFuture<Long>> lookup) {
+        String key = target.getKey();
+        if (ids.containsKey(key)) {
+            return;
+        }
+
+        CompletableFuture<Long> placeholder = new CompletableFuture<>();
+        if (lookups.putIfAbsent(key, placeholder) != null) {
+            return;
+        }
+
+        CompletableFuture<Long> running;
+        try {
+            running = lookup.get();
+        } catch (RuntimeException e) {
+            lookups.remove(key, placeholder);
+            return;
+        }
+        running.whenComplete((id, failure) -> {
+            if (failure == null && id != null) {
+                ids.put(key, id);
+            }
+            lookups.remove(key, placeholder);
+            if (failure == null) {
+                placeholder.complete(id);
+            } else {
+                placeholder.completeExceptionally(failure);
+            }
+        });
+    }
+
+    /**
+     * Checks whether the known id of the given project is still valid by looking it up again. Once an id proved valid
+     * it is not checked again until it gets invalidated, concurrent callers share the check.
+     *
+     * @param target The project.
+     * @param lookup Sends the request returning the current id, null if the project does not exist.
+     * @return Future of true if the id is still valid; a stale id gets replaced or dropped.
+     */
+    CompletableFuture<Boolean> verify(final RequestTarget target, final Supplier<CompletableFuture<Long>> lookup) {
+        String key = target.getKey();
+        Long id = ids.get(key);
+        if (id == null || verified.contains(key)) {
+            return CompletableFuture.completedFuture(id != null);
+        }
+
+        CompletableFuture<Boolean> placeholder = new CompletableFuture<>();
+        CompletableFuture<Boolean> running = verifications.putIfAbsent(key, placeholder);
+        if (running != null) {
+            return running;
+        }
+
+        CompletableFuture<Long> current;
+        try {
+            current = lookup.get();
+        } catch (RuntimeException e) {
+            verifications.remove(key, placeholder);
+            placeholder.complete(true);
+            return placeholder;
+        }
+        current.whenComplete((currentId, failure) -> {
+            // A failed lookup tells nothing, the id is kept
+            boolean valid = failure != null || id.equals(currentId);
+            if (failure == null) {
+                if (valid) {
+                    verified.add(key);
+                } else if (currentId == null) {
+                    ids.remove(key, id);
+                } else {
+                    ids.replace(key, id, currentId);
+                }
+            }
+            verifications.remove(key, placeholder);
+            placeholder.complete(valid);
+        });
+        return placeholder;
+    }
+
+    /**
+     * Drops the id of the given project.
+     *
+     * @param target The project.
+     */
+    public void invalidate(final RequestTarget target) {
+        ids.remove(target.getKey());
+        verified.remove(target.getKey());
+    }
+
+    /**
+     * Drops all the known ids.
+     */
+    public void reset() {
+        ids.clear();
+        verified.clear();
+    }
+
+    static RequestTarget targetOf(final Request request) {
+        Object tag = request.tag();
+        return tag instanceof RequestTarget ? (RequestTarget) tag : null;
+    }
+
+    private static Request withProject(final Request request, final String encodedProject) {
+        List<String> segments = request.url().encodedPathSegments();
+        int index = projectSegment(segments);
+        if (index < 0) {
+            return request;
+        }
+        HttpUrl url = request.url().newBuilder().setEncodedPathSegment(index, encodedProject).build();
+        return request.newBuilder().url(url).build();
+    }
+
+    /**
+     * Returns the index of the path segment following "api/v4/projects".
+     */
+    private static int projectSegment(final List<String> segments) {
+        for (int i = 2; i + 1 < segments.size(); i++) {
+            if ("projects".equals(segments.get(i)) && "v4".equals(segments.get(i - 1)) && "api".equals(segments.get(i - 2))) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+}
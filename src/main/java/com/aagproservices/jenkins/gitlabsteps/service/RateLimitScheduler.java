@@ -0,0 +1,270 @@
+package com.aagproservices.jenkins.gitlabsteps.service;
+
+import com.aagproservices.jenkins.gitlabsteps.GitlabStepsConfiguration;
+import jenkins.util.Timer;
+import okhttp3.HttpUrl;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Controller-wide scheduler of the requests sent to Gitlab, throttling them per host so that the rate limits of
+ * Gitlab are not exceeded. Each host has a token bucket whose rate follows the "RateLimit-Remaining" and
+ * "RateLimit-Reset" headers of the latest response: the remaining quota is spread over the time until the reset. A
+ * 429 (or 503) response pauses the host until "Retry-After" (or "RateLimit-Reset"). Requests waiting for a token are
+ * queued per job and the queues take turns, so a job fanning out many requests does not hold back the single
+ * request of another job; within a job they are sent in the order they were submitted.
+ */
+public final class RateLimitScheduler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RateLimitScheduler.class);
+    private static final String TAG = "[GITLAB_STEPS] ";
+
+    /**
+     * Number of times a request answered with 429 is queued again before the response is handed to the caller.
+     */
+    public static final int MAX_RATE_LIMITED_ATTEMPTS = 5;
+
+    private static final String REMAINING_HEADER = "RateLimit-Remaining";
+    private static final String RESET_HEADER = "RateLimit-Reset";
+    private static final String RETRY_AFTER_HEADER = "Retry-After";
+    private static final long DEFAULT_PAUSE_MILLIS = 1000;
+    private static final String NO_JOB = "";
+    private static final RateLimitScheduler INSTANCE = new RateLimitScheduler();
+
+    private final ConcurrentMap<String, HostLimiter> hosts = new ConcurrentHashMap<>();
+
+    /**
+     * Private constructor.
+     */
+    private RateLimitScheduler() {
+    }
+
+    public static RateLimitScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Runs the given task, which sends a request, as soon as the host of the given URL allows another request.
+     *
+     * @param url  URL of the request.
+     * @param job  The job the request is sent for, e.g. the id of the run, null for requests of no particular job.
+     * @param task Sends the request, must not block.
+     */
+    void submit(final HttpUrl url, final String job, final Runnable task) {
+        hosts.computeIfAbsent(hostKey(url), key -> new HostLimiter(key)).submit(job == null ? NO_JOB : job, task);
+    }
+
+    /**
+     * Updates the limits of the host from the headers of the given response.
+     *
+     * @param url      URL of the request.
+     * @param response The response received.
+     * @return True if the request was rejected because of the rate limit and may be submitted again.
+     */
+    boolean onResponse(final HttpUrl url, final Response response) {
+        HostLimiter limiter = hosts.get(hostKey(url));
+        if (limiter == null) {
+            return false;
+        }
+
+        long now = System.currentTimeMillis();
+        Integer remaining = parseInt(response.header(REMAINING_HEADER));
+        Long resetAt = parseLong(response.header(RESET_HEADER));
+        Long resetMillis = resetAt == null ? null : Math.max(0, TimeUnit.SECONDS.toMillis(resetAt) - now);
+        if (remaining != null && resetMillis != null) {
+            limiter.updateQuota(remaining, resetMillis);
+        }
+
+        int code = response.code();
+        Long retryAfter = retryAfterMillis(response, now);
+        // A 503 without "Retry-After" is an outage rather than throttling
+        if (code != 429 && (code != 503 || retryAfter == null)) {
+            return false;
+        }
+        if (retryAfter == null) {
+            retryAfter = resetMillis != null ? resetMillis : DEFAULT_PAUSE_MILLIS;
+        }
+        LOGGER.warn(TAG + "Gitlab at " + limiter.key + " is rate limiting, pausing requests for " + retryAfter + " ms");
+        limiter.pause(retryAfter);
+        return true;
+    }
+
+    /**
+     * Drops the state of all hosts, e.g. after the settings changed. Queued requests are still sent.
+     */
+    public void reset() {
+        hosts.values().forEach(HostLimiter::clearQuota);
+    }
+
+    private static String hostKey(final HttpUrl url) {
+        return url.scheme() + "://" + url.host() + ":" + url.port();
+    }
+
+    private static Integer parseInt(final String value) {
+        try {
+            return value == null ? null : Integer.valueOf(value.trim());
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static Long parseLong(final String value) {
+        try {
+            return value == null ? null : Long.valueOf(value.trim());
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses "Retry-After", given either in seconds or as HTTP date.
+     */
+    private static Long retryAfterMillis(final Response response, final long now) {
+        Long seconds = parseLong(response.header(RETRY_AFTER_HEADER));
+        if (seconds != null) {
+            return TimeUnit.SECONDS.toMillis(Math.max(0, seconds));
+        }
+        Date date = response.headers().getDate(RETRY_AFTER_HEADER);
+        return date == null ? null : Math.max(0, date.getTime() - now);
+    }
+
+    /**
+     * Token bucket and queues of a single host.
+     */
+    private static final class HostLimiter {
+        private final String key;
+        // Queues of the jobs with waiting requests, the job whose turn it is first
+        private final Map<String, Queue<Runnable>> queues = new LinkedHashMap<>();
+
+        private double tokens;
+        private double capacity;
+        private double tokensPerMilli;
+        private long lastRefill = System.currentTimeMillis();
+        private long quotaUntil;
+        private long pausedUntil;
+        private boolean drainScheduled;
+
+        private HostLimiter(final String key) {
+            this.key = key;
+            clearQuota();
+            tokens = capacity;
+        }
+
+        private void submit(final String job, final Runnable task) {
+            synchronized (this) {
+                queues.computeIfAbsent(job, key -> new ArrayDeque<>()).add(task);
+            }
+            drain();
+        }
+
+        private synchronized void updateQuota(final int remaining, final long resetMillis) {
+            long now = System.currentTimeMillis();
+            refill(now);
+            quotaUntil = now + resetMillis;
+            if (remaining <= 0) {
+                tokens = 0;
+                pausedUntil = Math.max(pausedUntil, quotaUntil);
+                return;
+            }
+            // Spread the remaining quota evenly until the reset, allowing bursts of up to a second's worth
+            boolean unlimited = tokensPerMilli == 0;
+            tokensPerMilli = remaining / (double) Math.max(1, resetMillis);
+            capacity = Math.max(1, Math.min(remaining, tokensPerMilli * 1000));
+            tokens = unlimited ? capacity : Math.min(tokens, capacity);
+        }
+
+        private synchronized void clearQuota() {
+            int perSecond = GitlabStepsConfiguration.get().getRateLimitPerSecond();
+            quotaUntil = 0;
+            tokensPerMilli = perSecond > 0 ? perSecond / 1000.0 : 0;
+            capacity = perSecond > 0 ? perSecond : 0;
+            tokens = Math.min(tokens, capacity);
+        }
+
+        private void pause(final long millis) {
+            synchronized (this) {
+                pausedUntil = Math.max(pausedUntil, System.currentTimeMillis() + millis);
+                tokens = 0;
+            }
+            drain();
+        }
+
+        private void drain() {
+            List<Runnable> ready = new ArrayList<>();
+            long delay;
+            synchronized (this) {
+                long now = System.currentTimeMillis();
+                if (quotaUntil > 0 && now >= quotaUntil) {
+                    clearQuota();
+                }
+                refill(now);
+                while (!queues.isEmpty() && now >= pausedUntil && (tokensPerMilli == 0 || tokens >= 1)) {
+                    if (tokensPerMilli > 0) {
+                        tokens -= 1;
+                    }
+                    ready.add(next());
+                }
+
+                delay = 0;
+                if (!queues.isEmpty() && !drainScheduled) {
+                    delay = now < pausedUntil
+                            ? pausedUntil - now
+                            : (long) Math.ceil((1 - tokens) / tokensPerMilli);
+                    delay = Math.max(1, delay);
+                    drainScheduled = true;
+                }
+            }
+
+            if (delay > 0) {
+                Timer.get().schedule(() -> {
+                    synchronized (this) {
+                        drainScheduled = false;
+                    }
+                    drain();
+                }, delay, TimeUnit.MILLISECONDS);
+            }
+            for (Runnable task : ready) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    LOGGER.error("Error while sending a request to " + key, e);
+                }
+            }
+        }
+
+        /**
+         * Takes the next request of the job whose turn it is and moves the job to the end of the line.
+         */
+        private Runnable next() {
+            Iterator<Map.Entry<String, Queue<Runnable>>> jobs = queues.entrySet().iterator();
+            Map.Entry<String, Queue<Runnable>> job = jobs.next();
+            Runnable task = job.getValue().poll();
+            jobs.remove();
+            if (!job.getValue().isEmpty()) {
+                queues.put(job.getKey(), job.getValue());
+            }
+            return task;
+        }
+
+        private void refill(final long now) {
+            if (tokensPerMilli > 0) {
+                tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerMilli);
+            }
+            lastRefill = now;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.aagproservices.jenkins.gitlabsteps.service;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * The Gitlab project a request is sent to, attached to the request as tag. It allows to address the project by its
+ * numeric id or by its full path and to group requests per project.
+ */
+public final class RequestTarget {
+
+    private final String gitlabUrl;
+    private final String projectPath;
+
+    /**
+     * Constructor.
+     *
+     * @param gitlabUrl   Base URL of Gitlab.
+     * @param projectPath Full (unencoded) path of the project, e.g. "group/subgroup/repo".
+     */
+    public RequestTarget(final String gitlabUrl, final String projectPath) {
+        this.gitlabUrl = gitlabUrl.endsWith("/") ? gitlabUrl.substring(0, gitlabUrl.length() - 1) : gitlabUrl;
+        this.projectPath = projectPath;
+    }
+
+    public String getGitlabUrl() {
+        return gitlabUrl;
+    }
+
+    public String getProjectPath() {
+        return projectPath;
+    }
+
+    /**
+     * Returns a key identifying the project across Gitlab instances.
+     *
+     * @return The key.
+     */
+    public String getKey() {
+        return gitlabUrl + " " + projectPath;
+    }
+
+    @Override
+    public String toString() {
+        return "RequestTarget {" +
+            "gitlabUrl='" + gitlabUrl + "'" +
+            ", projectPath='" + projectPath + "'" +
+            "}";
+    }
+}
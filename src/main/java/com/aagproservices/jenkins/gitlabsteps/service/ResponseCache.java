@@ -0,0 +1,338 @@
+package com.aagproservices.jenkins.gitlabsteps.service;
+
+import com.aagproservices.jenkins.gitlabsteps.GitlabStepsConfiguration;
+import com.aagproservices.jenkins.gitlabsteps.metrics.GitlabMetrics;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Controller-wide cache of the responses to GET requests. Entries are keyed by the URL and a hash of the access
+ * token, so a response is only ever served to requests made with the same token. Fresh entries (younger than the
+ * TTL) are served without a request; older ones are revalidated with "If-None-Match", and a 304 response serves the
+ * cached body again. The cache holds a bounded number of entries, evicting the least recently used one, and does not
+ * store bodies above a size limit. Any other request to a project drops the cached responses of that project, whether it
+ * addresses the project by id or by path.
+ */
+public final class ResponseCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResponseCache.class);
+    private static final String TAG = "[GITLAB_STEPS] ";
+
+    private static final String AUTHORIZATION_HEADER = "Authorization";
+    private static final String ETAG_HEADER = "ETag";
+    private static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+    private static final String GET = "GET";
+    private static final String HEAD = "HEAD";
+    private static final ResponseCache INSTANCE = new ResponseCache();
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Supplier<GitlabStepsConfiguration> configuration;
+
+    /**
+     * Private constructor.
+     */
+    private ResponseCache() {
+        this(GitlabStepsConfiguration::get);
+    }
+
+    /**
+     * Constructor taking the settings to use.
+     *
+     * @param configuration Returns the current settings.
+     */
+    ResponseCache(final Supplier<GitlabStepsConfiguration> configuration) {
+        this.configuration = configuration;
+    }
+
+    public static ResponseCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Looks up the cached response for the given request.
+     *
+     * @param request The request.
+     * @return The lookup, null if the request is not cacheable or the cache is disabled.
+     */
+    Lookup lookup(final Request request) {
+        if (!GET.equals(request.method()) || configuration.get().getCacheMaxEntries() == 0) {
+            return null;
+        }
+
+        String key = key(request);
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        return new Lookup(key, entry);
+    }
+
+    /**
+     * Returns the request to send for a lookup which could not be served from the cache, i.e. a conditional one if
+     * the cached entry has an ETag.
+     *
+     * @param request The original request.
+     * @param lookup  The lookup, may be null.
+     * @return The request to send.
+     */
+    Request conditional(final Request request, final Lookup lookup) {
+        if (lookup == null || lookup.entry == null || lookup.entry.etag == null) {
+            return request;
+        }
+        return request.newBuilder().header(IF_NONE_MATCH_HEADER, lookup.entry.etag).build();
+    }
+
+    /**
+     * Handles a response received from Gitlab: stores it (or refreshes the cached entry on a 304) for GET requests
+     * and invalidates the cached responses of the project for any other request.
+     *
+     * @param request   The original request.
+     * @param lookup    The lookup done before sending the request, null if it is not cacheable.
+     * @param response  The response received.
+     * @param debugMode True to log the cache usage.
+     * @return The response to hand to the caller, which may be rebuilt from the cache.
+     */
+    Response onResponse(final Request request, final Lookup lookup, final Response response, final boolean debugMode) throws IOException {
+        if (lookup == null) {
+            if (!GET.equals(request.method()) && !HEAD.equals(request.method())) {
+                invalidate(request);
+            }
+            return response;
+        }
+
+        if (response.code() == 304 && lookup.entry != null) {
+            response.close();
+            Entry refreshed = lookup.entry.refreshed(System.nanoTime());
+            put(lookup.key, refreshed);
+            GitlabMetrics.cacheRevalidation();
+            log(debugMode, "Cache revalidated: " + request.url());
+            return refreshed.toResponse(request);
+        }
+
+        GitlabMetrics.cacheMiss();
+        log(debugMode, "Cache miss: " + request.url());
+        ResponseBody body = response.body();
+        GitlabStepsConfiguration settings = configuration.get();
+        if (response.code() != 200 || body == null) {
+            return response;
+        }
+
+        // Only bodies within the size limit get buffered, larger ones are streamed as usual
+        BufferedSource source = body.source();
+        if (source.request(settings.getCacheMaxEntryBytes() + 1L)) {
+            return response;
+        }
+        byte[] bytes = source.readByteArray();
+        response.close();
+        Entry entry = new Entry(response.code(), response.message(), response.protocol(), response.headers(),
+                body.contentType(), bytes, response.header(ETAG_HEADER), projectPrefix(request), System.nanoTime());
+        put(lookup.key, entry);
+        return entry.toResponse(request);
+    }
+
+    /**
+     * Returns the cached response if the given lookup is fresh. Requests marked "Cache-Control: no-cache" (e.g. the
+     * ones polling for a state change) are never answered from the cache, but may still be revalidated.
+     *
+     * @param request   The request.
+     * @param lookup    The lookup, may be null.
+     * @param debugMode True to log the cache usage.
+     * @return The cached response, null if the request has to be sent.
+     */
+    Response fresh(final Request request, final Lookup lookup, final boolean debugMode) {
+        if (lookup == null || lookup.entry == null || request.cacheControl().noCache()) {
+            return null;
+        }
+        long ttl = TimeUnit.SECONDS.toNanos(configuration.get().getCacheTtlSeconds());
+        if (System.nanoTime() - lookup.entry.storedAt > ttl) {
+            return null;
+        }
+        log(debugMode, "Cache hit: " + request.url());
+        return lookup.entry.toResponse(request);
+    }
+
+    /**
+     * Drops the cached responses of the given project (for all tokens).
+     *
+     * @param target The project.
+     */
+    public void invalidate(final RequestTarget target) {
+        invalidatePrefix(target.getKey());
+    }
+
+    /**
+     * Drops the cached responses of the project with the given path on the given host, for all tokens and however
+     * the steps spell the URL of Gitlab.
+     *
+     * @param host        The host of Gitlab.
+     * @param projectPath Full path of the project.
+     */
+    public synchronized void invalidate(final String host, final String projectPath) {
+        entries.values().removeIf(entry -> {
+            // The prefix is the key of the request target, "<Gitlab URL> <project path>"
+            int space = entry.projectPrefix == null ? -1 : entry.projectPrefix.indexOf(' ');
+            if (space < 0) {
+                return false;
+            }
+            HttpUrl url = HttpUrl.parse(entry.projectPrefix.substring(0, space));
+            return url != null && url.host().equalsIgnoreCase(host)
+                    && entry.projectPrefix.substring(space + 1).equalsIgnoreCase(projectPath);
+        });
+    }
+
+    private void invalidate(final Request request) {
+        String prefix = projectPrefix(request);
+        if (prefix != null) {
+            invalidatePrefix(prefix);
+        }
+    }
+
+    private synchronized void invalidatePrefix(final String prefix) {
+        entries.values().removeIf(entry -> prefix.equals(entry.projectPrefix));
+    }
+
+    /**
+     * Drops all the cached responses, e.g. after the settings changed.
+     */
+    public synchronized void reset() {
+        entries.clear();
+    }
+
+    private synchronized void put(final String key, final Entry entry) {
+        entries.put(key, entry);
+        int maxEntries = configuration.get().getCacheMaxEntries();
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    private static void log(final boolean debugMode, final String message) {
+        if (debugMode) {
+            LOGGER.info(TAG + message);
+        }
+    }
+
+    private static String key(final Request request) {
+        String authorization = request.header(AUTHORIZATION_HEADER);
+        return sha256(authorization == null ? "" : authorization) + " " + request.url();
+    }
+
+    /**
+     * Returns the key of the project the given request is sent to, whether it addresses the project by id or by path.
+     * Requests without target fall back to the URL of the project resource, e.g.
+     * "https://gitlab.example.com/api/v4/projects/group%2Frepo/".
+     */
+    private static String projectPrefix(final Request request) {
+        RequestTarget target = ProjectIdResolver.targetOf(request);
+        if (target != null) {
+            return target.getKey();
+        }
+
+        HttpUrl url = request.url();
+        List<String> segments = url.encodedPathSegments();
+        int index = segments.indexOf("projects");
+        if (index < 0 || index + 1 >= segments.size()) {
+            return null;
+        }
+
+        StringBuilder prefix = new StringBuilder()
+                .append(url.scheme()).append("://").append(url.host()).append(':').append(url.port()).append('/');
+        for (int i = 0; i <= index + 1; i++) {
+            prefix.append(segments.get(i)).append('/');
+        }
+        return prefix.toString();
+    }
+
+    private static String sha256(final String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Result of looking up a request in the cache.
+     */
+    static final class Lookup {
+        private final String key;
+        private final Entry entry;
+
+        private Lookup(final String key, final Entry entry) {
+            this.key = key;
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * A cached response.
+     */
+    private static final class Entry {
+        private final int code;
+        private final String message;
+        private final Protocol protocol;
+        private final Headers headers;
+        private final MediaType contentType;
+        private final byte[] body;
+        private final String etag;
+        private final String projectPrefix;
+        private final long storedAt;
+
+        private Entry(final int code, final String message, final Protocol protocol, final Headers headers,
+                      final MediaType contentType, final byte[] body, final String etag, final String projectPrefix,
+                      final long storedAt) {
+            this.code = code;
+            this.message = message;
+            this.protocol = protocol;
+            this.headers = headers;
+            this.contentType = contentType;
+            this.body = body;
+            this.etag = etag;
+            this.projectPrefix = projectPrefix;
+            this.storedAt = storedAt;
+        }
+
+        private Entry refreshed(final long now) {
+            return new Entry(code, message, protocol, headers, contentType, body, etag, projectPrefix, now);
+        }
+
+        private Response toResponse(final Request request) {
+            return new Response.Builder()
+                    .request(request)
+                    .protocol(protocol)
+                    .code(code)
+                    .message(message)
+                    .headers(headers)
+                    .body(ResponseBody.create(contentType, body))
+                    .build();
+        }
+    }
+}
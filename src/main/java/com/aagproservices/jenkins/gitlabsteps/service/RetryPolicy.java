@@ -0,0 +1,142 @@
+package com.aagproservices.jenkins.gitlabsteps.service;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Tells whether and when a request which failed transiently (an I/O error or one of the configured status codes)
+ * gets sent again. The delay doubles with every attempt, starting at the base delay, and is shortened by a random
+ * share of up to "jitter" so that jobs failing at the same time do not retry in lockstep.
+ */
+public final class RetryPolicy implements Serializable {
+
+    private static final long serialVersionUID = -5170961384231187042L;
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_DELAY_MILLIS = 1000;
+    public static final double DEFAULT_JITTER = 0.5;
+    public static final String DEFAULT_STATUS_CODES = "502, 503, 504";
+
+    /**
+     * Upper bound of the delay between two attempts.
+     */
+    private static final long MAX_DELAY_MILLIS = 60_000;
+
+    /**
+     * Sends every request exactly once.
+     */
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0, Collections.emptySet());
+
+    private final int maxAttempts;
+    private final long delayMillis;
+    private final double jitter;
+    private final Set<Integer> statusCodes;
+
+    /**
+     * Constructor.
+     *
+     * @param maxAttempts Total number of attempts, 1 for no retry.
+     * @param delayMillis Delay before the first retry in milliseconds.
+     * @param jitter      Share of the delay (0 to 1) which is randomly left out.
+     * @param statusCodes Status codes which are worth another attempt.
+     */
+    public RetryPolicy(final int maxAttempts, final long delayMillis, final double jitter, final Set<Integer> statusCodes) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.delayMillis = Math.max(0, delayMillis);
+        this.jitter = Math.min(1, Math.max(0, jitter));
+        this.statusCodes = Collections.unmodifiableSet(new TreeSet<>(statusCodes));
+    }
+
+    /**
+     * Parses a comma (or blank) separated list of status codes, e.g. "502, 503, 504".
+     *
+     * @param statusCodes The list.
+     * @return The status codes.
+     * @throws IllegalArgumentException If an entry is not a valid status code.
+     */
+    public static Set<Integer> parseStatusCodes(final String statusCodes) {
+        Set<Integer> codes = new TreeSet<>();
+        if (statusCodes == null) {
+            return codes;
+        }
+        for (String code : statusCodes.split("[,\\s]+")) {
+            if (code.isEmpty()) {
+                continue;
+            }
+            try {
+                int value = Integer.parseInt(code);
+                if (value < 100 || value > 599) {
+                    throw new NumberFormatException();
+                }
+                codes.add(value);
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("\"" + code + "\" is not a valid HTTP status code");
+            }
+        }
+        return codes;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getDelayMillis() {
+        return delayMillis;
+    }
+
+    public double getJitter() {
+        return jitter;
+    }
+
+    public Set<Integer> getStatusCodes() {
+        return statusCodes;
+    }
+
+    /**
+     * Tells whether another attempt may follow the given one.
+     *
+     * @param attempt The attempt which failed, starting at 1.
+     * @return True if the request may be sent again.
+     */
+    public boolean hasAttemptsLeft(final int attempt) {
+        return attempt < maxAttempts;
+    }
+
+    /**
+     * Tells whether a response with the given status code is worth another attempt.
+     *
+     * @param statusCode The status code.
+     * @return True if the status code is retryable.
+     */
+    public boolean isRetryable(final int statusCode) {
+        return statusCodes.contains(statusCode);
+    }
+
+    /**
+     * Returns the delay before the attempt following the given one.
+     *
+     * @param attempt The attempt which failed, starting at 1.
+     * @return The delay in milliseconds.
+     */
+    public long delayMillis(final int attempt) {
+        long delay = delayMillis >= MAX_DELAY_MILLIS
+                ? MAX_DELAY_MILLIS
+                : Math.min(delayMillis << Math.min(attempt - 1, 20), MAX_DELAY_MILLIS);
+        return delay - (long) (delay * jitter * ThreadLocalRandom.current().nextDouble());
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy {" +
+            "maxAttempts=" + maxAttempts +
+            ", delayMillis=" + delayMillis +
+            ", jitter=" + jitter +
+            ", statusCodes=" + statusCodes +
+            "}";
+    }
+}
@@ -0,0 +1,102 @@
+package com.aagproservices.jenkins.gitlabsteps.service;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Time a step spent in the phases of its requests, summed up over all of them. Tells whether a slow step waits for
+ * Jenkins (credentials), the network (DNS, connect, TLS, write) or Gitlab (first byte). The parse phase includes
+ * receiving the body, which is parsed while it is streamed.
+ */
+public final class StepTimings {
+
+    /**
+     * The phases of a step.
+     */
+    public enum Phase {
+        CREDENTIALS("credentials"),
+        DNS("dns"),
+        CONNECT("connect"),
+        TLS("tls"),
+        WRITE("write"),
+        FIRST_BYTE("firstByte"),
+        PARSE("parse"),
+        TOTAL("total");
+
+        private final String key;
+
+        Phase(final String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+    }
+
+    private final Map<Phase, LongAdder> nanos = new EnumMap<>(Phase.class);
+    private final AtomicInteger requests = new AtomicInteger();
+
+    /**
+     * Constructor.
+     */
+    public StepTimings() {
+        for (Phase phase : Phase.values()) {
+            nanos.put(phase, new LongAdder());
+        }
+    }
+
+    /**
+     * Adds time spent in a phase.
+     *
+     * @param phase The phase.
+     * @param nanos The time in nanoseconds.
+     */
+    public void add(final Phase phase, final long nanos) {
+        if (nanos > 0) {
+            this.nanos.get(phase).add(nanos);
+        }
+    }
+
+    void requestSent() {
+        requests.incrementAndGet();
+    }
+
+    public int getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * Returns the time spent in each phase.
+     *
+     * @return Milliseconds per phase key, in the order of the phases, plus the number of requests.
+     */
+    public Map<String, Long> toMap() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        map.put("requests", (long) requests.get());
+        for (Phase phase : Phase.values()) {
+            map.put(phase.getKey(), TimeUnit.NANOSECONDS.toMillis(nanos.get(phase).sum()));
+        }
+        return map;
+    }
+
+    /**
+     * Formats the timings for the build log, e.g. "2 requests, credentials 4 ms, dns 0 ms, ..., total 201 ms".
+     *
+     * @return The formatted timings.
+     */
+    public String format() {
+        StringBuilder text = new StringBuilder().append(requests.get()).append(requests.get() == 1 ? " request" : " requests");
+        for (Phase phase : Phase.values()) {
+            text.append(", ").append(phase.getKey()).append(' ')
+                    .append(TimeUnit.NANOSECONDS.toMillis(nanos.get(phase).sum())).append(" ms");
+        }
+        return text.toString();
+    }
+}
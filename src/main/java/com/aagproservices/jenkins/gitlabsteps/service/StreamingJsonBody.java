@@ -0,0 +1,87 @@
+package com.aagproservices.jenkins.gitlabsteps.service;
+
+import com.aagproservices.jenkins.gitlabsteps.util.JsonUtil;
+import com.fasterxml.jackson.core.JsonGenerator;
+import hudson.FilePath;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * JSON request body which is generated while it is sent. File contents are streamed from the (possibly remote)
+ * workspace and base64 encoded on the fly, so the memory used does not depend on the size of the files. The body may
+ * be written more than once if the request gets retried.
+ */
+final class StreamingJsonBody extends RequestBody {
+
+    private static final MediaType JSON_MEDIA_TYPE = MediaType.parse(javax.ws.rs.core.MediaType.APPLICATION_JSON);
+
+    private final JsonWriter writer;
+    private final String description;
+
+    /**
+     * Constructor.
+     *
+     * @param writer      Writes the JSON document.
+     * @param description Short description of the content, used in debug output.
+     */
+    StreamingJsonBody(final JsonWriter writer, final String description) {
+        this.writer = writer;
+        this.description = description;
+    }
+
+    /**
+     * Writes the content of the given file as base64 encoded value of the current field.
+     *
+     * @param generator The generator.
+     * @param file      The file.
+     */
+    static void writeBase64(final JsonGenerator generator, final FilePath file) throws IOException {
+        try (InputStream in = file.read()) {
+            generator.writeBinary(in, -1);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading file " + file.getRemote());
+        } catch (IOException ex) {
+            throw new IOException("Error reading file " + file.getRemote(), ex);
+        }
+    }
+
+    @Override
+    public MediaType contentType() {
+        return JSON_MEDIA_TYPE;
+    }
+
+    @Override
+    public long contentLength() {
+        // Unknown up front, the body is sent chunked
+        return -1;
+    }
+
+    @Override
+    public void writeTo(final BufferedSink sink) throws IOException {
+        try (JsonGenerator generator = JsonUtil.getMapper().getFactory().createGenerator(sink.outputStream())) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            writer.write(generator);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "StreamingJsonBody {" + description + "}";
+    }
+
+    /**
+     * Writes a JSON document.
+     */
+    @FunctionalInterface
+    interface JsonWriter {
+        void write(JsonGenerator generator) throws IOException;
+    }
+}
@@ -0,0 +1,154 @@
+package com.aagproservices.jenkins.gitlabsteps.step;
+
+import com.aagproservices.jenkins.gitlabsteps.service.BaseService;
+import com.aagproservices.jenkins.gitlabsteps.service.StepTimings;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * @param <R> The return type of the execution.
+ * @param <T> The type of the step which gets executed.
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Abstract base class for executions which do not occupy a thread while waiting for Gitlab. The request is queued
+ * in {@link #start()} and the step completes from the HTTP callback; stopping the step cancels the request.
+ */
+public abstract class AbstractAsyncStepExecution<R, T extends AbstractStep> extends StepExecution {
+
+    private static final long serialVersionUID = -3197052486114306523L;
+
+    private final transient T step;
+    private final transient StepTimings timings;
+    private final transient long started;
+    private transient volatile CompletableFuture<R> future;
+
+    /**
+     * Constructor which takes the information to initialize the execution of the step.
+     *
+     * @param step    The step which gets executed.
+     * @param context The context of the step.
+     */
+    public AbstractAsyncStepExecution(final T step, final StepContext context) {
+        super(context);
+        this.step = step;
+        this.timings = step != null && step.isReportTimings() ? new StepTimings() : null;
+        this.started = System.nanoTime();
+        validate(step);
+    }
+
+    /**
+     * Sends the request(s) of the step without waiting for the response.
+     *
+     * @return Future of the result of the step.
+     * @throws Exception If the request cannot be sent.
+     */
+    protected abstract CompletableFuture<R> runAsync() throws Exception;
+
+    @Override
+    public boolean start() throws Exception {
+        future = runAsync();
+        complete(future, true);
+        return false;
+    }
+
+    /**
+     * Reports the outcome of the step once the given future completes. A step refused by Gitlab with a 401 is run
+     * once more if its credential changed since it was cached.
+     */
+    private void complete(final CompletableFuture<R> running, final boolean mayRefresh) {
+        running.whenComplete((result, failure) -> {
+            if (failure != null && mayRefresh && BaseService.isUnauthorized(failure)
+                    && ExecutionSupport.refreshAuthToken(getContext(), getStep().getAuthToken(), timings)) {
+                try {
+                    future = runAsync();
+                } catch (Exception e) {
+                    ExecutionSupport.reportTimings(getStep(), getContext(), timings, started, null);
+                    getContext().onFailure(e);
+                    return;
+                }
+                complete(future, false);
+                return;
+            }
+
+            ExecutionSupport.reportTimings(getStep(), getContext(), timings, started, result);
+            if (failure == null) {
+                getContext().onSuccess(result);
+            } else if (!(failure instanceof CancellationException)) {
+                // A cancellation comes from stop(), which already reported the cause
+                getContext().onFailure(unwrap(failure));
+            }
+        });
+    }
+
+    @Override
+    public void stop(final Throwable cause) throws Exception {
+        getContext().onFailure(cause);
+        CompletableFuture<R> running = future;
+        if (running != null) {
+            running.cancel(true);
+        }
+    }
+
+    @Override
+    public void onResume() {
+        // The HTTP call did not survive the restart, its outcome is unknown
+        getContext().onFailure(new IllegalStateException("The request to Gitlab was interrupted by a restart of Jenkins"));
+    }
+
+    /**
+     * Returns the desired instance of a service, see {@link AbstractStepExecution#getService(Class)}. The service
+     * retries requests according to the retry settings of the step.
+     *
+     * @param clazz The class of the desired service.
+     * @param <S>   The type of the desired service.
+     * @return An instance of the desired service.
+     */
+    protected <S extends BaseService> S getService(final Class<S> clazz) {
+        return ExecutionSupport.getService(clazz, getStep(), getContext(), timings);
+    }
+
+    /**
+     * Validates the step. Must be implemented by each step.
+     *
+     * @param step The step which gets validated.
+     */
+    protected void validate(T step) {
+        ExecutionSupport.validate(step, getContext(), requiresRepository(), timings);
+    }
+
+    /**
+     * Tells whether the step works on the repository given by its project and repository slug, which are then
+     * required. Steps working on several repositories override this.
+     *
+     * @return True if project and repository slug are required.
+     */
+    protected boolean requiresRepository() {
+        return true;
+    }
+
+    /**
+     * Returns the step which gets executed.
+     *
+     * @return The step.
+     */
+    public T getStep() {
+        return step;
+    }
+
+    protected String retrieveAuthToken(String authCred) {
+        return ExecutionSupport.retrieveAuthToken(getContext(), authCred, timings);
+    }
+
+    private static Throwable unwrap(final Throwable failure) {
+        Throwable cause = failure;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
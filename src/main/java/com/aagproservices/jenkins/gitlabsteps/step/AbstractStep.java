@@ -1,6 +1,8 @@
 package com.aagproservices.jenkins.gitlabsteps.step;
 
+import com.aagproservices.jenkins.gitlabsteps.service.RetryPolicy;
 import org.jenkinsci.plugins.workflow.steps.Step;
+import org.kohsuke.stapler.DataBoundSetter;
 
 import java.io.Serializable;
 
@@ -22,6 +24,11 @@ public abstract class AbstractStep extends Step implements Serializable {
     private final int timeout;
     private final boolean debugMode;
     private final boolean trustAllCertificates;
+    private int maxAttempts = RetryPolicy.DEFAULT_MAX_ATTEMPTS;
+    private long retryDelay = RetryPolicy.DEFAULT_DELAY_MILLIS;
+    private double retryJitter = RetryPolicy.DEFAULT_JITTER;
+    private String retryOnStatus = RetryPolicy.DEFAULT_STATUS_CODES;
+    private boolean reportTimings;
 
     /**
      * Constructor which extracts the information of the configured site (global Jenkins config) from it's descriptor.
@@ -63,4 +70,85 @@ public abstract class AbstractStep extends Step implements Serializable {
     public boolean isTrustAllCertificates() {
         return trustAllCertificates;
     }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Sets the number of attempts of a request which fails transiently, 1 to never retry.
+     *
+     * @param maxAttempts Total number of attempts.
+     */
+    @DataBoundSetter
+    public void setMaxAttempts(final int maxAttempts) {
+        this.maxAttempts = maxAttempts <= 0 ? RetryPolicy.DEFAULT_MAX_ATTEMPTS : maxAttempts;
+    }
+
+    public long getRetryDelay() {
+        return retryDelay;
+    }
+
+    /**
+     * Sets the delay before the first retry in milliseconds, it doubles with every further retry.
+     *
+     * @param retryDelay Delay in milliseconds.
+     */
+    @DataBoundSetter
+    public void setRetryDelay(final long retryDelay) {
+        this.retryDelay = retryDelay < 0 ? RetryPolicy.DEFAULT_DELAY_MILLIS : retryDelay;
+    }
+
+    public double getRetryJitter() {
+        return retryJitter;
+    }
+
+    /**
+     * Sets the share of the delay (0 to 1) which is randomly left out.
+     *
+     * @param retryJitter The jitter.
+     */
+    @DataBoundSetter
+    public void setRetryJitter(final double retryJitter) {
+        this.retryJitter = retryJitter < 0 || retryJitter > 1 ? RetryPolicy.DEFAULT_JITTER : retryJitter;
+    }
+
+    public String getRetryOnStatus() {
+        return retryOnStatus;
+    }
+
+    /**
+     * Sets the status codes which are worth another attempt, e.g. "502, 503, 504".
+     *
+     * @param retryOnStatus Comma separated status codes.
+     */
+    @DataBoundSetter
+    public void setRetryOnStatus(final String retryOnStatus) {
+        this.retryOnStatus = retryOnStatus == null ? RetryPolicy.DEFAULT_STATUS_CODES : retryOnStatus;
+    }
+
+    public boolean isReportTimings() {
+        return reportTimings;
+    }
+
+    /**
+     * Sets whether the step prints where its time went (credential lookup, DNS, connect, TLS, request write, time to
+     * first byte and parsing) and attaches the breakdown to its result.
+     *
+     * @param reportTimings True to report the timings.
+     */
+    @DataBoundSetter
+    public void setReportTimings(final boolean reportTimings) {
+        this.reportTimings = reportTimings;
+    }
+
+    /**
+     * Returns the policy for retrying the requests of this step.
+     *
+     * @return The retry policy.
+     * @throws IllegalArgumentException If the status codes are invalid.
+     */
+    public RetryPolicy getRetryPolicy() {
+        return new RetryPolicy(maxAttempts, retryDelay, retryJitter, RetryPolicy.parseStatusCodes(retryOnStatus));
+    }
 }
@@ -1,15 +1,11 @@
 package com.aagproservices.jenkins.gitlabsteps.step;
 
 import com.aagproservices.jenkins.gitlabsteps.service.BaseService;
+import com.aagproservices.jenkins.gitlabsteps.service.StepTimings;
 import com.aagproservices.jenkins.gitlabsteps.service.ContentService;
-import com.cloudbees.plugins.credentials.CredentialsProvider;
-import hudson.model.Run;
-import org.jenkinsci.plugins.plaincredentials.StringCredentials;
 import org.jenkinsci.plugins.workflow.steps.StepContext;
 import org.jenkinsci.plugins.workflow.steps.SynchronousNonBlockingStepExecution;
 
-import java.util.Collections;
-
 /**
  * @param <R> The return type of the execution.
  * @param <T> The type of the step which gets executed.
@@ -22,6 +18,8 @@ public abstract class AbstractStepExecution<R, T extends AbstractStep> extends S
     private static final long serialVersionUID = 7535652081766832564L;
 
     private final transient T step;
+    private final transient StepTimings timings;
+    private final transient long started;
 
     /**
      * Constructor which takes the information to initialize the execution of the step.
@@ -32,9 +30,42 @@ public abstract class AbstractStepExecution<R, T extends AbstractStep> extends S
     public AbstractStepExecution(final T step, final StepContext context) {
         super(context);
         this.step = step;
+        this.timings = step != null && step.isReportTimings() ? new StepTimings() : null;
+        this.started = System.nanoTime();
         validate(step);
     }
 
+    /**
+     * Executes the step.
+     *
+     * @return The result of the step.
+     * @throws Exception If the step fails.
+     */
+    protected abstract R execute() throws Exception;
+
+    /**
+     * Executes the step and reports its timings if the step asks for it. A step refused by Gitlab with a 401 is
+     * executed once more if its credential changed since it was cached.
+     */
+    @Override
+    protected final R run() throws Exception {
+        R result = null;
+        try {
+            try {
+                result = execute();
+            } catch (RuntimeException e) {
+                if (!BaseService.isUnauthorized(e)
+                        || !ExecutionSupport.refreshAuthToken(getContext(), getStep().getAuthToken(), timings)) {
+                    throw e;
+                }
+                result = execute();
+            }
+            return result;
+        } finally {
+            ExecutionSupport.reportTimings(getStep(), getContext(), timings, started, result);
+        }
+    }
+
     /**
      * Checks if the given step is null.
      *
@@ -48,19 +79,14 @@ public abstract class AbstractStepExecution<R, T extends AbstractStep> extends S
     /**
      * Returns the desired instance of a service. E.g. an instance of
      * {@link ContentService}
-     * to execute it's methods.
+     * to execute it's methods. The service retries requests according to the retry settings of the step.
      *
      * @param clazz The class of the desired service.
      * @param <S>   The type of the desired service.
      * @return An instance of the desired service.
      */
     protected <S extends BaseService> S getService(final Class<S> clazz) {
-        switch (clazz.getSimpleName()) {
-            case "ContentService":
-                return clazz.cast(new ContentService());
-            default:
-                throw new IllegalArgumentException(String.format("\"%s\" is not a valid service", clazz.getSimpleName()));
-        }
+        return ExecutionSupport.getService(clazz, getStep(), getContext(), timings);
     }
 
     /**
@@ -69,30 +95,17 @@ public abstract class AbstractStepExecution<R, T extends AbstractStep> extends S
      * @param step The step which gets validated.
      */
     protected void validate(T step) {
-        if (isNull(step)) {
-            throw new IllegalStateException("Given step is null");
-        }
-
-        if (step.getGitlabUrl() == null) {
-            throw new IllegalStateException("Gitlab URL is null");
-        }
-
-        if (step.getAuthToken() == null) {
-            throw new IllegalStateException("Credential is not specified");
-        } else if (retrieveAuthToken(step.getAuthToken()) == null) {
-            throw new IllegalStateException("Credential is not found or a wrong type");
-        }
-
-        String project = step.getProject();
-        String repoSlug = step.getRepoSlug();
-
-        if (project == null || project.isEmpty()) {
-            throw new IllegalArgumentException("Gitlab project is null or empty!");
-        }
+        ExecutionSupport.validate(step, getContext(), requiresRepository(), timings);
+    }
 
-        if (repoSlug == null || repoSlug.isEmpty()) {
-            throw new IllegalArgumentException("Repository slug is null or empty!");
-        }
+    /**
+     * Tells whether the step works on the repository given by its project and repository slug, which are then
+     * required. Steps working on several repositories override this.
+     *
+     * @return True if project and repository slug are required.
+     */
+    protected boolean requiresRepository() {
+        return true;
     }
 
     /**
@@ -105,22 +118,6 @@ public abstract class AbstractStepExecution<R, T extends AbstractStep> extends S
     }
 
     protected String retrieveAuthToken(String authCred) {
-        try {
-            Run run = getContext().get(Run.class);
-            if (run == null) {
-                throw new RuntimeException("Unable to read config file - invalid run");
-            }
-
-            StringCredentials credential = CredentialsProvider.findCredentialById(
-                    authCred,
-                    StringCredentials.class,
-                    run,
-                    Collections.emptyList()
-            );
-
-            return credential == null ? null : credential.getSecret().getPlainText();
-        } catch (Exception ex) {
-            throw new RuntimeException("Unable to retrieve client certificate", ex);
-        }
+        return ExecutionSupport.retrieveAuthToken(getContext(), authCred, timings);
     }
-}
\ No newline at end of file
+}
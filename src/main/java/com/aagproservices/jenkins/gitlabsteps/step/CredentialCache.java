@@ -0,0 +1,159 @@
+package com.aagproservices.jenkins.gitlabsteps.step;
+
+import com.cloudbees.plugins.credentials.CredentialsProvider;
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.ItemGroup;
+import hudson.model.Run;
+import hudson.model.Saveable;
+import hudson.model.TaskListener;
+import hudson.model.User;
+import hudson.model.listeners.RunListener;
+import hudson.model.listeners.SaveableListener;
+import org.jenkinsci.plugins.plaincredentials.StringCredentials;
+
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Credentials resolved for a run, so that a build looks each credential up once instead of twice per step. Entries
+ * are dropped when the run completes or gets deleted, and all of them as soon as credentials may have changed
+ * (global, folder or user credentials being saved). Credentials which were not found are not cached.
+ * Credential stores which are not saved by Jenkins (e.g. the ones of providers keeping credentials in an external
+ * vault) do not announce their changes, so an entry may outlive the credential it was resolved from. Steps refused
+ * by Gitlab with a 401 response therefore drop their credential and look it up again, see
+ * {@link ExecutionSupport#refreshAuthToken}.
+ */
+final class CredentialCache {
+
+    private static final CredentialCache INSTANCE = new CredentialCache();
+
+    private final ConcurrentMap<String, ConcurrentMap<String, StringCredentials>> runs = new ConcurrentHashMap<>();
+
+    /**
+     * Private constructor.
+     */
+    private CredentialCache() {
+    }
+
+    static CredentialCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the string credential with the given id as seen by the given run.
+     *
+     * @param run          The run.
+     * @param credentialId The credential id.
+     * @return The credential, null if it is not found or of another type.
+     */
+    StringCredentials get(final Run<?, ?> run, final String credentialId) {
+        return get(run.getExternalizableId(), credentialId, () -> CredentialsProvider.findCredentialById(credentialId,
+                StringCredentials.class, run, Collections.emptyList()));
+    }
+
+    /**
+     * Returns the credential with the given id resolved for the run with the given id.
+     *
+     * @param runId        The externalizable id of the run.
+     * @param credentialId The credential id.
+     * @param lookup       Looks the credential up if it is not cached.
+     * @return The credential, null if it is not found.
+     */
+    StringCredentials get(final String runId, final String credentialId, final Supplier<StringCredentials> lookup) {
+        ConcurrentMap<String, StringCredentials> resolved = runs.computeIfAbsent(runId, id -> new ConcurrentHashMap<>());
+        StringCredentials credential = resolved.get(credentialId);
+        if (credential == null) {
+            credential = lookup.get();
+            if (credential != null) {
+                resolved.put(credentialId, credential);
+            }
+        }
+        return credential;
+    }
+
+    /**
+     * Drops the credentials of the given run.
+     *
+     * @param run The run.
+     */
+    void invalidate(final Run<?, ?> run) {
+        invalidate(run.getExternalizableId());
+    }
+
+    /**
+     * Drops the credentials of the run with the given id.
+     *
+     * @param runId The externalizable id of the run.
+     */
+    void invalidate(final String runId) {
+        runs.remove(runId);
+    }
+
+    /**
+     * Drops a single credential of the given run, e.g. because Gitlab refused it.
+     *
+     * @param run          The run.
+     * @param credentialId The credential id.
+     */
+    void invalidate(final Run<?, ?> run, final String credentialId) {
+        invalidate(run.getExternalizableId(), credentialId);
+    }
+
+    /**
+     * Drops a single credential of the run with the given id.
+     *
+     * @param runId        The externalizable id of the run.
+     * @param credentialId The credential id.
+     */
+    void invalidate(final String runId, final String credentialId) {
+        ConcurrentMap<String, StringCredentials> resolved = runs.get(runId);
+        if (resolved != null) {
+            resolved.remove(credentialId);
+        }
+    }
+
+    /**
+     * Drops the credentials of all the runs.
+     */
+    void invalidateAll() {
+        runs.clear();
+    }
+
+    /**
+     * Drops the credentials of finished runs.
+     */
+    @Extension
+    public static final class RunFinishedListener extends RunListener<Run<?, ?>> {
+
+        @Override
+        public void onCompleted(final Run<?, ?> run, final TaskListener listener) {
+            INSTANCE.invalidate(run);
+        }
+
+        @Override
+        public void onDeleted(final Run<?, ?> run) {
+            INSTANCE.invalidate(run);
+        }
+    }
+
+    /**
+     * Drops all the credentials when a credential store may have changed: global credentials, folders (which hold
+     * folder scoped credentials) and users (which hold user scoped credentials).
+     */
+    @Extension
+    public static final class CredentialsChangeListener extends SaveableListener {
+
+        @Override
+        public void onChange(final Saveable saveable, final XmlFile file) {
+            if (saveable instanceof SystemCredentialsProvider || saveable instanceof ItemGroup || saveable instanceof User) {
+                INSTANCE.invalidateAll();
+            }
+        }
+    }
+}
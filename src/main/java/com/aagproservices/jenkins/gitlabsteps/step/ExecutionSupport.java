@@ -0,0 +1,174 @@
+package com.aagproservices.jenkins.gitlabsteps.step;
+
+import com.aagproservices.jenkins.gitlabsteps.api.TimedResult;
+import com.aagproservices.jenkins.gitlabsteps.service.BaseService;
+import com.aagproservices.jenkins.gitlabsteps.service.ContentService;
+import com.aagproservices.jenkins.gitlabsteps.service.StepTimings;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import org.jenkinsci.plugins.plaincredentials.StringCredentials;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Logic shared by the synchronous and the asynchronous executions.
+ */
+final class ExecutionSupport {
+
+    /**
+     * Private constructor.
+     */
+    private ExecutionSupport() {
+    }
+
+    static <S extends BaseService> S getService(final Class<S> clazz, final AbstractStep step, final StepContext context,
+                                                final StepTimings timings) {
+        S service;
+        switch (clazz.getSimpleName()) {
+            case "ContentService":
+                service = clazz.cast(new ContentService());
+                break;
+            default:
+                throw new IllegalArgumentException(String.format("\"%s\" is not a valid service", clazz.getSimpleName()));
+        }
+        service.setRetryPolicy(step.getRetryPolicy());
+        if (step.getDescriptor() != null) {
+            service.setFunctionName(step.getDescriptor().getFunctionName());
+        }
+        service.setTimings(timings);
+        try {
+            // The rate limiter takes turns between the runs
+            Run run = context.get(Run.class);
+            service.setJobId(run == null ? null : run.getExternalizableId());
+        } catch (Exception ex) {
+            // Queued with the requests of no particular run
+        }
+        return service;
+    }
+
+    static void validate(final AbstractStep step, final StepContext context, final boolean requiresRepository,
+                         final StepTimings timings) {
+        if (step == null) {
+            throw new IllegalStateException("Given step is null");
+        }
+
+        if (step.getGitlabUrl() == null) {
+            throw new IllegalStateException("Gitlab URL is null");
+        }
+
+        if (step.getAuthToken() == null) {
+            throw new IllegalStateException("Credential is not specified");
+        } else if (retrieveAuthToken(context, step.getAuthToken(), timings) == null) {
+            throw new IllegalStateException("Credential is not found or a wrong type");
+        }
+
+        try {
+            step.getRetryPolicy();
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalStateException("Invalid retry settings: " + ex.getMessage(), ex);
+        }
+
+        if (!requiresRepository) {
+            return;
+        }
+
+        String project = step.getProject();
+        String repoSlug = step.getRepoSlug();
+
+        if (project == null || project.isEmpty()) {
+            throw new IllegalArgumentException("Gitlab project is null or empty!");
+        }
+
+        if (repoSlug == null || repoSlug.isEmpty()) {
+            throw new IllegalArgumentException("Repository slug is null or empty!");
+        }
+    }
+
+    static String retrieveAuthToken(final StepContext context, final String authCred, final StepTimings timings) {
+        long started = System.nanoTime();
+        try {
+            Run run = context.get(Run.class);
+            if (run == null) {
+                throw new RuntimeException("Unable to read config file - invalid run");
+            }
+
+            // Resolved once per run, validation and execution of all the steps of a build share the lookup
+            StringCredentials credential = CredentialCache.getInstance().get(run, authCred);
+
+            return credential == null ? null : credential.getSecret().getPlainText();
+        } catch (Exception ex) {
+            throw new RuntimeException("Unable to retrieve client certificate", ex);
+        } finally {
+            if (timings != null) {
+                timings.add(StepTimings.Phase.CREDENTIALS, System.nanoTime() - started);
+            }
+        }
+    }
+
+    /**
+     * Drops the cached credential of a run whose token Gitlab refused and looks it up again, see
+     * {@link CredentialCache}. A step whose requests were all refused may then be run once more.
+     *
+     * @param context  The context of the step.
+     * @param authCred The credential id.
+     * @param timings  The timings of the step, may be null.
+     * @return True if the token changed since it was cached, i.e. the step is worth running again.
+     */
+    static boolean refreshAuthToken(final StepContext context, final String authCred, final StepTimings timings) {
+        String refused = retrieveAuthToken(context, authCred, timings);
+        try {
+            Run run = context.get(Run.class);
+            if (run == null) {
+                return false;
+            }
+            CredentialCache.getInstance().invalidate(run, authCred);
+        } catch (Exception ex) {
+            return false;
+        }
+        String current = retrieveAuthToken(context, authCred, timings);
+        boolean changed = current != null && !current.equals(refused);
+        if (changed) {
+            try {
+                TaskListener listener = context.get(TaskListener.class);
+                if (listener != null) {
+                    listener.getLogger().println("Gitlab refused the credential " + authCred
+                            + ", which changed in the meantime; running the step again with the current one");
+                }
+            } catch (Exception ex) {
+                // Only informational
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Completes the timings of a step, prints them to the build log and attaches them to the result.
+     *
+     * @param step    The step.
+     * @param context The context of the step.
+     * @param timings The timings, null if the step does not report them.
+     * @param started Start of the step as returned by {@link System#nanoTime()}.
+     * @param result  The result of the step, null if it failed.
+     */
+    static void reportTimings(final AbstractStep step, final StepContext context, final StepTimings timings,
+                              final long started, final Object result) {
+        if (timings == null) {
+            return;
+        }
+        timings.add(StepTimings.Phase.TOTAL, System.nanoTime() - started);
+        if (result instanceof TimedResult) {
+            ((TimedResult) result).setTimings(timings.toMap());
+        }
+
+        try {
+            TaskListener listener = context.get(TaskListener.class);
+            if (listener != null) {
+                String functionName = step.getDescriptor() == null ? "Gitlab" : step.getDescriptor().getFunctionName();
+                listener.getLogger().println("[" + functionName + "] Timings: " + timings.format());
+            }
+        } catch (Exception ex) {
+            // The timings are informational, the step must not fail because of them
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.aagproservices.jenkins.gitlabsteps.step.descriptor;
+
+import com.aagproservices.jenkins.gitlabsteps.api.CommitAction;
+import com.aagproservices.jenkins.gitlabsteps.step.AbstractStep;
+import com.aagproservices.jenkins.gitlabsteps.step.AbstractStepDescriptor;
+import com.aagproservices.jenkins.gitlabsteps.step.execution.CommitFilesExecution;
+import com.google.common.collect.ImmutableSet;
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import javax.annotation.Nonnull;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ *          Descriptor and definition of the step "commitFiles" which allows the user to create, update, move and
+ *          delete several files in a single commit.
+ */
+public class CommitFilesStep extends AbstractStep {
+
+    private static final long serialVersionUID = 3958102746673912485L;
+
+    private final String branch;
+    private final String message;
+    private final List<String> files;
+    private final String glob;
+    private final List<CommitAction> actions;
+
+    /**
+     * Constructor which takes the necessary information to create the commit.
+     *
+     * @param project
+     *        Project or username where the repo is located
+     * @param repoSlug
+     *        Repository slug
+     * @param branch
+     *        Branch to commit to
+     * @param message
+     *        Commit message
+     * @param files
+     *        Workspace paths of files to create or update, at the same path in the repository
+     * @param glob
+     *        Ant pattern of workspace files to create or update, at the same path in the repository
+     * @param actions
+     *        Further file actions, e.g. deletes and moves
+     */
+    @DataBoundConstructor
+    public CommitFilesStep(final String gitlabUrl, final String authToken, final String project, final String repoSlug,
+                           final String branch, final String message, final List<String> files, final String glob,
+                           final List<CommitAction> actions,
+                           final int timeout, final boolean debugMode, final boolean trustAllCertificates) {
+        super(gitlabUrl, authToken, project, repoSlug, timeout, debugMode, trustAllCertificates);
+        this.branch = branch;
+        this.message = message;
+        this.files = files == null ? Collections.emptyList() : files;
+        this.glob = glob;
+        this.actions = actions == null ? Collections.emptyList() : actions;
+    }
+
+    @Override
+    public StepExecution start(final StepContext context) throws Exception {
+        return new CommitFilesExecution(this, context);
+    }
+
+    /**
+     * Returns the branch to commit to
+     *
+     * @return The branch
+     */
+    public String getBranch() {
+        return branch;
+    }
+
+    /**
+     * Returns the commit message
+     *
+     * @return The commit message
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Returns the workspace paths of the files to create or update
+     *
+     * @return The paths
+     */
+    public List<String> getFiles() {
+        return files;
+    }
+
+    /**
+     * Returns the Ant pattern of the workspace files to create or update
+     *
+     * @return The pattern, null if not used
+     */
+    public String getGlob() {
+        return glob;
+    }
+
+    /**
+     * Returns the further file actions
+     *
+     * @return The actions
+     */
+    public List<CommitAction> getActions() {
+        return actions;
+    }
+
+    @Extension
+    public static class Descriptor extends AbstractStepDescriptor {
+
+        @Nonnull
+        @Override
+        public String getDisplayName() {
+            return "Commits several file changes to the specified branch at once";
+        }
+
+        @Override
+        public String getFunctionName() {
+            return "gitlabCommitFiles";
+        }
+
+        @Override
+        public Set<? extends Class<?>> getRequiredContext() {
+            return ImmutableSet.of(Run.class, TaskListener.class, EnvVars.class, FilePath.class);
+        }
+
+    }
+}
@@ -0,0 +1,105 @@
+package com.aagproservices.jenkins.gitlabsteps.step.descriptor;
+
+import com.aagproservices.jenkins.gitlabsteps.api.RefSpec;
+import com.aagproservices.jenkins.gitlabsteps.step.AbstractStep;
+import com.aagproservices.jenkins.gitlabsteps.step.AbstractStepDescriptor;
+import com.aagproservices.jenkins.gitlabsteps.step.execution.CreateBranchesExecution;
+import hudson.Extension;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import javax.annotation.Nonnull;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ *          Descriptor and definition of the step "createBranches" which allows the user to create branches in several
+ *          repositories at once.
+ */
+public class CreateBranchesStep extends AbstractStep {
+
+    private static final long serialVersionUID = 5172930465813692277L;
+
+    private final List<RefSpec> branches;
+    private final int concurrency;
+    private boolean dryRun;
+
+    /**
+     * Constructor which takes the necessary information to create the branches.
+     *
+     * @param project
+     *        Default project or username for the branches which do not specify one
+     * @param repoSlug
+     *        Default repository slug for the branches which do not specify one
+     * @param branches
+     *        Branches to create
+     * @param concurrency
+     *        Maximum number of branches created at the same time, 0 for the default
+     */
+    @DataBoundConstructor
+    public CreateBranchesStep(final String gitlabUrl, final String authToken, final String project, final String repoSlug,
+                              final List<RefSpec> branches, final int concurrency,
+                              final int timeout, final boolean debugMode, final boolean trustAllCertificates) {
+        super(gitlabUrl, authToken, project, repoSlug, timeout, debugMode, trustAllCertificates);
+        this.branches = branches == null ? Collections.emptyList() : branches;
+        this.concurrency = concurrency;
+    }
+
+    @Override
+    public StepExecution start(final StepContext context) throws Exception {
+        return new CreateBranchesExecution(this, context);
+    }
+
+    /**
+     * Returns the branches that will be created
+     *
+     * @return The branches
+     */
+    public List<RefSpec> getBranches() {
+        return branches;
+    }
+
+    /**
+     * Returns the maximum number of branches created at the same time
+     *
+     * @return Concurrency, 0 for the default
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    /**
+     * Sets whether the branches are only checked (they must not exist yet, their start points must) instead of
+     * created.
+     *
+     * @param dryRun True to create nothing.
+     */
+    @DataBoundSetter
+    public void setDryRun(final boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    @Extension
+    public static class Descriptor extends AbstractStepDescriptor {
+
+        @Nonnull
+        @Override
+        public String getDisplayName() {
+            return "Creates several branches, possibly in different repositories, in parallel";
+        }
+
+        @Override
+        public String getFunctionName() {
+            return "gitlabCreateBranches";
+        }
+
+    }
+}
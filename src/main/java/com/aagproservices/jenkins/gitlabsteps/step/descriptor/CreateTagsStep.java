@@ -0,0 +1,88 @@
+package com.aagproservices.jenkins.gitlabsteps.step.descriptor;
+
+import com.aagproservices.jenkins.gitlabsteps.api.RefSpec;
+import com.aagproservices.jenkins.gitlabsteps.step.AbstractStep;
+import com.aagproservices.jenkins.gitlabsteps.step.AbstractStepDescriptor;
+import com.aagproservices.jenkins.gitlabsteps.step.execution.CreateTagsExecution;
+import hudson.Extension;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import javax.annotation.Nonnull;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ *          Descriptor and definition of the step "createTags" which allows the user to create tags in several
+ *          repositories at once.
+ */
+public class CreateTagsStep extends AbstractStep {
+
+    private static final long serialVersionUID = -2106893475119250813L;
+
+    private final List<RefSpec> tags;
+    private final int concurrency;
+
+    /**
+     * Constructor which takes the necessary information to create the tags.
+     *
+     * @param project
+     *        Default project or username for the tags which do not specify one
+     * @param repoSlug
+     *        Default repository slug for the tags which do not specify one
+     * @param tags
+     *        Tags to create
+     * @param concurrency
+     *        Maximum number of tags created at the same time, 0 for the default
+     */
+    @DataBoundConstructor
+    public CreateTagsStep(final String gitlabUrl, final String authToken, final String project, final String repoSlug,
+                          final List<RefSpec> tags, final int concurrency,
+                          final int timeout, final boolean debugMode, final boolean trustAllCertificates) {
+        super(gitlabUrl, authToken, project, repoSlug, timeout, debugMode, trustAllCertificates);
+        this.tags = tags == null ? Collections.emptyList() : tags;
+        this.concurrency = concurrency;
+    }
+
+    @Override
+    public StepExecution start(final StepContext context) throws Exception {
+        return new CreateTagsExecution(this, context);
+    }
+
+    /**
+     * Returns the tags that will be created
+     *
+     * @return The tags
+     */
+    public List<RefSpec> getTags() {
+        return tags;
+    }
+
+    /**
+     * Returns the maximum number of tags created at the same time
+     *
+     * @return Concurrency, 0 for the default
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    @Extension
+    public static class Descriptor extends AbstractStepDescriptor {
+
+        @Nonnull
+        @Override
+        public String getDisplayName() {
+            return "Creates several tags, possibly in different repositories, in parallel";
+        }
+
+        @Override
+        public String getFunctionName() {
+            return "gitlabCreateTags";
+        }
+
+    }
+}
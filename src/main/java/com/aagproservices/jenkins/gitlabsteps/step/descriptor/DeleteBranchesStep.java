@@ -0,0 +1,136 @@
+package com.aagproservices.jenkins.gitlabsteps.step.descriptor;
+
+import com.aagproservices.jenkins.gitlabsteps.api.RefSpec;
+import com.aagproservices.jenkins.gitlabsteps.step.AbstractStep;
+import com.aagproservices.jenkins.gitlabsteps.step.AbstractStepDescriptor;
+import com.aagproservices.jenkins.gitlabsteps.step.execution.DeleteBranchesExecution;
+import hudson.Extension;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import javax.annotation.Nonnull;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ *          Descriptor and definition of the step "deleteBranches" which allows the user to delete branches in several
+ *          repositories at once, either by name or all the merged ones.
+ */
+public class DeleteBranchesStep extends AbstractStep {
+
+    private static final long serialVersionUID = -861530247719384425L;
+
+    private final List<RefSpec> branches;
+    private final int concurrency;
+    private boolean deleteMerged;
+    private List<String> repositories = Collections.emptyList();
+    private boolean dryRun;
+
+    /**
+     * Constructor which takes the necessary information to delete the branches.
+     *
+     * @param project
+     *        Default project or username for the branches which do not specify one
+     * @param repoSlug
+     *        Default repository slug for the branches which do not specify one
+     * @param branches
+     *        Branches to delete, only their project, repository slug and name are used
+     * @param concurrency
+     *        Maximum number of requests in flight, 0 for the default
+     */
+    @DataBoundConstructor
+    public DeleteBranchesStep(final String gitlabUrl, final String authToken, final String project, final String repoSlug,
+                              final List<RefSpec> branches, final int concurrency,
+                              final int timeout, final boolean debugMode, final boolean trustAllCertificates) {
+        super(gitlabUrl, authToken, project, repoSlug, timeout, debugMode, trustAllCertificates);
+        this.branches = branches == null ? Collections.emptyList() : branches;
+        this.concurrency = concurrency;
+    }
+
+    @Override
+    public StepExecution start(final StepContext context) throws Exception {
+        return new DeleteBranchesExecution(this, context);
+    }
+
+    /**
+     * Returns the branches that will be deleted
+     *
+     * @return The branches
+     */
+    public List<RefSpec> getBranches() {
+        return branches;
+    }
+
+    /**
+     * Returns the maximum number of requests in flight
+     *
+     * @return Concurrency, 0 for the default
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public boolean isDeleteMerged() {
+        return deleteMerged;
+    }
+
+    /**
+     * Sets whether all the branches merged into the default branch get deleted, with a single request per repository.
+     * Protected branches are kept.
+     *
+     * @param deleteMerged True to delete the merged branches of the {@link #getRepositories() repositories}, or of the
+     *                     repository of the step if none are given.
+     */
+    @DataBoundSetter
+    public void setDeleteMerged(final boolean deleteMerged) {
+        this.deleteMerged = deleteMerged;
+    }
+
+    public List<String> getRepositories() {
+        return repositories;
+    }
+
+    /**
+     * Sets the repositories whose merged branches get deleted.
+     *
+     * @param repositories Full paths of the repositories, e.g. "group/subgroup/repo".
+     */
+    @DataBoundSetter
+    public void setRepositories(final List<String> repositories) {
+        this.repositories = repositories == null ? Collections.emptyList() : repositories;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    /**
+     * Sets whether the branches which would be deleted are only listed instead of deleted.
+     *
+     * @param dryRun True to delete nothing.
+     */
+    @DataBoundSetter
+    public void setDryRun(final boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    @Extension
+    public static class Descriptor extends AbstractStepDescriptor {
+
+        @Nonnull
+        @Override
+        public String getDisplayName() {
+            return "Deletes several branches, possibly in different repositories, in parallel";
+        }
+
+        @Override
+        public String getFunctionName() {
+            return "gitlabDeleteBranches";
+        }
+
+    }
+}
@@ -0,0 +1,185 @@
+package com.aagproservices.jenkins.gitlabsteps.step.descriptor;
+
+import com.aagproservices.jenkins.gitlabsteps.step.AbstractStep;
+import com.aagproservices.jenkins.gitlabsteps.step.AbstractStepDescriptor;
+import com.aagproservices.jenkins.gitlabsteps.step.execution.GetTagsMultiExecution;
+import hudson.Extension;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ *          Descriptor and definition of the step "getTagsMulti" which allows the user to retrieve the tags of many
+ *          repositories at once.
+ */
+public class GetTagsMultiStep extends AbstractStep {
+
+    private static final long serialVersionUID = 3358120471762914053L;
+
+    private final List<String> repositories;
+    private final String group;
+    private final String filter;
+    private final int maxResults;
+    private final int pageSize;
+    private final String orderBy;
+    private final String sort;
+    private final int latest;
+    private final List<String> fields;
+    private final int concurrency;
+    private boolean ignoreErrors;
+
+    /**
+     * Constructor which takes the necessary information to retrieve the tags.
+     *
+     * @param repositories
+     *        Full paths of the repositories, e.g. "group/subgroup/repo"
+     * @param group
+     *        Full path of a group whose projects (including those of subgroups) are added to the repositories
+     * @param filter
+     *        Substring to match tags to
+     * @param maxResults
+     *        Maximum number of tags to retrieve per repository, 0 for all
+     * @param pageSize
+     *        Number of tags requested per page (up to 100), 0 for the maximum
+     * @param orderBy
+     *        Order of the tags: name, updated or version
+     * @param sort
+     *        Sort direction: asc or desc
+     * @param latest
+     *        If positive, only the first N tags of each repository in the requested order are retrieved
+     * @param fields
+     *        If given, only these fields (dotted paths such as "commit.id") of each tag are retrieved
+     * @param concurrency
+     *        Maximum number of repositories queried at the same time, 0 for the default
+     */
+    @DataBoundConstructor
+    public GetTagsMultiStep(final String gitlabUrl, final String authToken, final List<String> repositories, final String group,
+                            final String filter, final int maxResults, final int pageSize, final String orderBy, final String sort,
+                            final int latest, final List<String> fields, final int concurrency,
+                            final int timeout, final boolean debugMode, final boolean trustAllCertificates) {
+        super(gitlabUrl, authToken, null, null, timeout, debugMode, trustAllCertificates);
+        this.repositories = repositories;
+        this.group = group;
+        this.filter = filter;
+        this.maxResults = maxResults;
+        this.pageSize = pageSize;
+        this.orderBy = orderBy;
+        this.sort = sort;
+        this.latest = latest;
+        this.fields = fields;
+        this.concurrency = concurrency;
+    }
+
+    @Override
+    public StepExecution start(final StepContext context) throws Exception {
+        return new GetTagsMultiExecution(this, context);
+    }
+
+    public List<String> getRepositories() {
+        return repositories;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public String getFilter() {
+        return filter;
+    }
+
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public String getOrderBy() {
+        return orderBy;
+    }
+
+    public String getSort() {
+        return sort;
+    }
+
+    public int getLatest() {
+        return latest;
+    }
+
+    public List<String> getFields() {
+        return fields;
+    }
+
+    /**
+     * Returns the maximum number of repositories queried at the same time
+     *
+     * @return Concurrency, 0 for the default
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public boolean isIgnoreErrors() {
+        return ignoreErrors;
+    }
+
+    /**
+     * Sets whether repositories which cannot be queried are left out of the result instead of failing the step.
+     *
+     * @param ignoreErrors True to leave them out, they are listed in the build log.
+     */
+    @DataBoundSetter
+    public void setIgnoreErrors(final boolean ignoreErrors) {
+        this.ignoreErrors = ignoreErrors;
+    }
+
+    /**
+     * Returns the effective maximum number of tags, see {@link GetTagsStep#getEffectiveMaxResults()}
+     *
+     * @return Maximum number of tags, 0 for all
+     */
+    public int getEffectiveMaxResults() {
+        return latest > 0 ? latest : maxResults;
+    }
+
+    /**
+     * Returns the effective order of the tags, see {@link GetTagsStep#getEffectiveOrderBy()}
+     *
+     * @return Order field, null for the Gitlab default
+     */
+    public String getEffectiveOrderBy() {
+        return latest > 0 && (orderBy == null || orderBy.isEmpty()) ? "updated" : orderBy;
+    }
+
+    /**
+     * Returns the effective sort direction, see {@link GetTagsStep#getEffectiveSort()}
+     *
+     * @return Sort direction, null for the Gitlab default
+     */
+    public String getEffectiveSort() {
+        return latest > 0 && (sort == null || sort.isEmpty()) ? "desc" : sort;
+    }
+
+    @Extension
+    public static class Descriptor extends AbstractStepDescriptor {
+
+        @Nonnull
+        @Override
+        public String getDisplayName() {
+            return "Retrieve the tags of many repositories in parallel";
+        }
+
+        @Override
+        public String getFunctionName() {
+            return "gitlabGetTagsMulti";
+        }
+
+    }
+}
@@ -9,6 +9,7 @@ import org.jenkinsci.plugins.workflow.steps.StepExecution;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 import javax.annotation.Nonnull;
+import java.util.List;
 
 /**
  * @author Aleks Gekht
@@ -20,6 +21,13 @@ public class GetTagsStep extends AbstractStep {
     private static final long serialVersionUID = -7249517566925473127L;
 
     private String filter;
+    private int maxResults;
+    private int pageSize;
+    private String orderBy;
+    private String sort;
+    private int latest;
+    private List<String> fields;
+
     /**
      * Constructor which takes the necessary information to create a page.
      *
@@ -29,12 +37,31 @@ public class GetTagsStep extends AbstractStep {
      *        Repository slug
      * @param filter
      *        Substring to match tags to
+     * @param maxResults
+     *        Maximum number of tags to retrieve, 0 for all
+     * @param pageSize
+     *        Number of tags requested per page (up to 100), 0 for the maximum
+     * @param orderBy
+     *        Order of the tags: name, updated or version
+     * @param sort
+     *        Sort direction: asc or desc
+     * @param latest
+     *        If positive, only the first N tags in the requested order (by default the most recently updated ones) are retrieved
+     * @param fields
+     *        If given, only these fields (dotted paths such as "commit.id") of each tag are retrieved
      */
     @DataBoundConstructor
     public GetTagsStep(final String gitlabUrl, final String authToken, final String project, final String repoSlug, String filter,
+                       final int maxResults, final int pageSize, final String orderBy, final String sort, final int latest, final List<String> fields,
                        final int timeout, final boolean debugMode, final boolean trustAllCertificates) {
         super(gitlabUrl, authToken, project, repoSlug, timeout, debugMode, trustAllCertificates);
         this.filter = filter;
+        this.maxResults = maxResults;
+        this.pageSize = pageSize;
+        this.orderBy = orderBy;
+        this.sort = sort;
+        this.latest = latest;
+        this.fields = fields;
     }
 
     @Override
@@ -46,6 +73,87 @@ public class GetTagsStep extends AbstractStep {
         return filter;
     }
 
+    /**
+     * Returns the maximum number of tags to retrieve
+     *
+     * @return Maximum number of tags, 0 for all
+     */
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    /**
+     * Returns the number of tags requested per page
+     *
+     * @return Page size, 0 for the maximum
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Returns the order of the tags
+     *
+     * @return Order field, null for the Gitlab default
+     */
+    public String getOrderBy() {
+        return orderBy;
+    }
+
+    /**
+     * Returns the sort direction
+     *
+     * @return Sort direction, null for the Gitlab default
+     */
+    public String getSort() {
+        return sort;
+    }
+
+    /**
+     * Returns the number of tags retrieved in "latest N" mode
+     *
+     * @return Number of latest tags, 0 if the mode is not used
+     */
+    public int getLatest() {
+        return latest;
+    }
+
+    /**
+     * Returns the fields retrieved of each tag
+     *
+     * @return Field paths, null or empty for the whole tags
+     */
+    public List<String> getFields() {
+        return fields;
+    }
+
+    /**
+     * Returns the effective maximum number of tags, taking the "latest N" mode into account
+     *
+     * @return Maximum number of tags, 0 for all
+     */
+    public int getEffectiveMaxResults() {
+        return latest > 0 ? latest : maxResults;
+    }
+
+    /**
+     * Returns the effective order of the tags; in "latest N" mode tags are ordered by update time unless specified
+     *
+     * @return Order field, null for the Gitlab default
+     */
+    public String getEffectiveOrderBy() {
+        return latest > 0 && (orderBy == null || orderBy.isEmpty()) ? "updated" : orderBy;
+    }
+
+    /**
+     * Returns the effective sort direction; in "latest N" mode tags are sorted descending unless specified
+     *
+     * @return Sort direction, null for the Gitlab default
+     */
+    public String getEffectiveSort() {
+        return latest > 0 && (sort == null || sort.isEmpty()) ? "desc" : sort;
+    }
+
     @Extension
     public static class Descriptor extends AbstractStepDescriptor {
 
@@ -0,0 +1,134 @@
+package com.aagproservices.jenkins.gitlabsteps.step.descriptor;
+
+import com.aagproservices.jenkins.gitlabsteps.step.AbstractStep;
+import com.aagproservices.jenkins.gitlabsteps.step.AbstractStepDescriptor;
+import com.aagproservices.jenkins.gitlabsteps.step.execution.ListBranchesMultiExecution;
+import hudson.Extension;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ *          Descriptor and definition of the step "listBranchesMulti" which allows the user to retrieve the branches of
+ *          many repositories at once.
+ */
+public class ListBranchesMultiStep extends AbstractStep {
+
+    private static final long serialVersionUID = -5190366282574402736L;
+
+    private final List<String> repositories;
+    private final String group;
+    private final String search;
+    private final int maxResults;
+    private final int pageSize;
+    private final List<String> fields;
+    private final int concurrency;
+    private boolean ignoreErrors;
+
+    /**
+     * Constructor which takes the necessary information to retrieve the branches.
+     *
+     * @param repositories
+     *        Full paths of the repositories, e.g. "group/subgroup/repo"
+     * @param group
+     *        Full path of a group whose projects (including those of subgroups) are added to the repositories
+     * @param search
+     *        Search string
+     * @param maxResults
+     *        Maximum number of branches to retrieve per repository, 0 for all
+     * @param pageSize
+     *        Number of branches requested per page (up to 100), 0 for the maximum
+     * @param fields
+     *        If given, only these fields (dotted paths such as "commit.id") of each branch are retrieved
+     * @param concurrency
+     *        Maximum number of repositories queried at the same time, 0 for the default
+     */
+    @DataBoundConstructor
+    public ListBranchesMultiStep(final String gitlabUrl, final String authToken, final List<String> repositories, final String group,
+                                 final String search, final int maxResults, final int pageSize, final List<String> fields,
+                                 final int concurrency,
+                                 final int timeout, final boolean debugMode, final boolean trustAllCertificates) {
+        super(gitlabUrl, authToken, null, null, timeout, debugMode, trustAllCertificates);
+        this.repositories = repositories;
+        this.group = group;
+        this.search = search;
+        this.maxResults = maxResults;
+        this.pageSize = pageSize;
+        this.fields = fields;
+        this.concurrency = concurrency;
+    }
+
+    @Override
+    public StepExecution start(final StepContext context) throws Exception {
+        return new ListBranchesMultiExecution(this, context);
+    }
+
+    public List<String> getRepositories() {
+        return repositories;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public String getSearch() {
+        return search;
+    }
+
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public List<String> getFields() {
+        return fields;
+    }
+
+    /**
+     * Returns the maximum number of repositories queried at the same time
+     *
+     * @return Concurrency, 0 for the default
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public boolean isIgnoreErrors() {
+        return ignoreErrors;
+    }
+
+    /**
+     * Sets whether repositories which cannot be queried are left out of the result instead of failing the step.
+     *
+     * @param ignoreErrors True to leave them out, they are listed in the build log.
+     */
+    @DataBoundSetter
+    public void setIgnoreErrors(final boolean ignoreErrors) {
+        this.ignoreErrors = ignoreErrors;
+    }
+
+    @Extension
+    public static class Descriptor extends AbstractStepDescriptor {
+
+        @Nonnull
+        @Override
+        public String getDisplayName() {
+            return "Retrieves the branches of many repositories in parallel";
+        }
+
+        @Override
+        public String getFunctionName() {
+            return "gitlabListBranchesMulti";
+        }
+
+    }
+}
@@ -9,6 +9,7 @@ import org.jenkinsci.plugins.workflow.steps.StepExecution;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 import javax.annotation.Nonnull;
+import java.util.List;
 
 /**
  * @author Aleks Gekht
@@ -20,6 +21,9 @@ public class ListBranchesStep extends AbstractStep {
     private static final long serialVersionUID = -7249517566964303127L;
 
     final private String search;
+    final private int maxResults;
+    final private int pageSize;
+    final private List<String> fields;
 
     /**
      * Constructor which takes the necessary information to create a page.
@@ -30,13 +34,22 @@ public class ListBranchesStep extends AbstractStep {
      *        Repository slug
      * @param search
      *        Search string
+     * @param maxResults
+     *        Maximum number of branches to retrieve, 0 for all
+     * @param pageSize
+     *        Number of branches requested per page (up to 100), 0 for the maximum
+     * @param fields
+     *        If given, only these fields (dotted paths such as "commit.id") of each branch are retrieved
      */
     @DataBoundConstructor
     public ListBranchesStep(final String gitlabUrl, final String authToken, final String project, final String repoSlug,
-                            final String search,
+                            final String search, final int maxResults, final int pageSize, final List<String> fields,
                             final int timeout, final boolean debugMode, final boolean trustAllCertificates) {
         super(gitlabUrl, authToken, project, repoSlug, timeout, debugMode, trustAllCertificates);
         this.search = search;
+        this.maxResults = maxResults;
+        this.pageSize = pageSize;
+        this.fields = fields;
     }
 
     @Override
@@ -53,6 +66,33 @@ public class ListBranchesStep extends AbstractStep {
         return search;
     }
 
+    /**
+     * Returns the maximum number of branches to retrieve
+     *
+     * @return Maximum number of branches, 0 for all
+     */
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    /**
+     * Returns the number of branches requested per page
+     *
+     * @return Page size, 0 for the maximum
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Returns the fields retrieved of each branch
+     *
+     * @return Field paths, null or empty for the whole branches
+     */
+    public List<String> getFields() {
+        return fields;
+    }
+
     @Extension
     public static class Descriptor extends AbstractStepDescriptor {
 
@@ -7,6 +7,7 @@ import hudson.Extension;
 import org.jenkinsci.plugins.workflow.steps.StepContext;
 import org.jenkinsci.plugins.workflow.steps.StepExecution;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 
 import javax.annotation.Nonnull;
 
@@ -20,6 +21,9 @@ public class MergePullRequestStep extends AbstractStep {
     private static final long serialVersionUID = -72234175661233127L;
 
     private int id;
+    private String sha;
+    private boolean mergeWhenPipelineSucceeds;
+    private int waitTimeout;
 
     /**
      * Constructor which takes the necessary information to create a page.
@@ -52,6 +56,49 @@ public class MergePullRequestStep extends AbstractStep {
         return id;
     }
 
+    public String getSha() {
+        return sha;
+    }
+
+    /**
+     * Sets the expected head commit of the source branch; the merge fails if the branch moved in the meantime.
+     *
+     * @param sha Commit SHA, empty to merge whatever the head is.
+     */
+    @DataBoundSetter
+    public void setSha(final String sha) {
+        this.sha = sha;
+    }
+
+    public boolean isMergeWhenPipelineSucceeds() {
+        return mergeWhenPipelineSucceeds;
+    }
+
+    /**
+     * Sets whether Gitlab merges the pull request once the pipeline of its head commit succeeds.
+     *
+     * @param mergeWhenPipelineSucceeds True to merge when the pipeline succeeds.
+     */
+    @DataBoundSetter
+    public void setMergeWhenPipelineSucceeds(final boolean mergeWhenPipelineSucceeds) {
+        this.mergeWhenPipelineSucceeds = mergeWhenPipelineSucceeds;
+    }
+
+    public int getWaitTimeout() {
+        return waitTimeout;
+    }
+
+    /**
+     * Sets the time to wait for the pull request to be merged. The merge is then only attempted once Gitlab checked
+     * the mergeability, and the step ends when the pull request is merged.
+     *
+     * @param waitTimeout Timeout in seconds, 0 to end the step right after the merge request.
+     */
+    @DataBoundSetter
+    public void setWaitTimeout(final int waitTimeout) {
+        this.waitTimeout = waitTimeout;
+    }
+
     @Extension
     public static class Descriptor extends AbstractStepDescriptor {
 
@@ -4,12 +4,18 @@ import com.aagproservices.jenkins.gitlabsteps.api.FileUpdate;
 import com.aagproservices.jenkins.gitlabsteps.step.AbstractStep;
 import com.aagproservices.jenkins.gitlabsteps.step.AbstractStepDescriptor;
 import com.aagproservices.jenkins.gitlabsteps.step.execution.UpdateFileExecution;
+import com.google.common.collect.ImmutableSet;
+import hudson.EnvVars;
 import hudson.Extension;
+import hudson.FilePath;
+import hudson.model.Run;
+import hudson.model.TaskListener;
 import org.jenkinsci.plugins.workflow.steps.StepContext;
 import org.jenkinsci.plugins.workflow.steps.StepExecution;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 import javax.annotation.Nonnull;
+import java.util.Set;
 
 /**
  * @author Aleks Gekht
@@ -23,6 +29,7 @@ public class UpdateFileStep extends AbstractStep {
     private String file;
     private String message;
     private String branch;
+    private boolean skipUnchanged;
 
     /**
      * Constructor which takes the necessary information to create a page.
@@ -37,15 +44,18 @@ public class UpdateFileStep extends AbstractStep {
      *        Description of pull request
      * @param branch
      *        Source branch of pull request
+     * @param skipUnchanged
+     *        Skip the commit if the file in the branch has the same content
      */
     @DataBoundConstructor
     public UpdateFileStep(final String gitlabUrl, final String authToken, final String project, final String repoSlug,
-                          final String file, final String message, final String branch,
+                          final String file, final String message, final String branch, final boolean skipUnchanged,
                           final int timeout, final boolean debugMode, final boolean trustAllCertificates) {
         super(gitlabUrl, authToken, project, repoSlug, timeout, debugMode, trustAllCertificates);
         this.file = file;
         this.message = message;
         this.branch = branch;
+        this.skipUnchanged = skipUnchanged;
     }
 
     @Override
@@ -80,6 +90,15 @@ public class UpdateFileStep extends AbstractStep {
         return branch;
     }
 
+    /**
+     * Tells whether the commit is skipped if the content did not change
+     *
+     * @return True to skip unchanged files
+     */
+    public boolean isSkipUnchanged() {
+        return skipUnchanged;
+    }
+
     public FileUpdate getFileUpdate() {
         FileUpdate fileUpdate = new FileUpdate();
         fileUpdate.setFile(getFile());
@@ -102,5 +121,10 @@ public class UpdateFileStep extends AbstractStep {
             return "gitlabUpdateFile";
         }
 
+        @Override
+        public Set<? extends Class<?>> getRequiredContext() {
+            return ImmutableSet.of(Run.class, TaskListener.class, EnvVars.class, FilePath.class);
+        }
+
     }
 }
@@ -0,0 +1,134 @@
+package com.aagproservices.jenkins.gitlabsteps.step.descriptor;
+
+import com.aagproservices.jenkins.gitlabsteps.step.AbstractStep;
+import com.aagproservices.jenkins.gitlabsteps.step.AbstractStepDescriptor;
+import com.aagproservices.jenkins.gitlabsteps.step.execution.WaitForPipelineExecution;
+import hudson.Extension;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import javax.annotation.Nonnull;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ *          Descriptor and definition of the step "waitForPipeline" which waits for the pipeline of a ref, a commit or
+ *          a merge request to finish.
+ */
+public class WaitForPipelineStep extends AbstractStep {
+
+    private static final long serialVersionUID = -3358120846617302145L;
+
+    private String ref;
+    private String sha;
+    private int id;
+    private int waitTimeout;
+    private boolean propagate = true;
+
+    /**
+     * Constructor which takes the necessary information to wait for a pipeline.
+     *
+     * @param project
+     *        Project or username where the repo is located
+     * @param repoSlug
+     *        Repository slug
+     */
+    @DataBoundConstructor
+    public WaitForPipelineStep(final String gitlabUrl, final String authToken, final String project, final String repoSlug,
+                               final int timeout, final boolean debugMode, final boolean trustAllCertificates) {
+        super(gitlabUrl, authToken, project, repoSlug, timeout, debugMode, trustAllCertificates);
+    }
+
+    @Override
+    public StepExecution start(final StepContext context) throws Exception {
+        return new WaitForPipelineExecution(this, context);
+    }
+
+    public String getRef() {
+        return ref;
+    }
+
+    /**
+     * Sets the branch or tag whose latest pipeline to wait for.
+     *
+     * @param ref Branch or tag, empty for any.
+     */
+    @DataBoundSetter
+    public void setRef(final String ref) {
+        this.ref = ref;
+    }
+
+    public String getSha() {
+        return sha;
+    }
+
+    /**
+     * Sets the commit whose latest pipeline to wait for.
+     *
+     * @param sha Full commit SHA, empty for any.
+     */
+    @DataBoundSetter
+    public void setSha(final String sha) {
+        this.sha = sha;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Sets the merge request whose head commit's latest pipeline to wait for.
+     *
+     * @param id IID of the merge request, 0 for none.
+     */
+    @DataBoundSetter
+    public void setId(final int id) {
+        this.id = id;
+    }
+
+    public int getWaitTimeout() {
+        return waitTimeout;
+    }
+
+    /**
+     * Sets the time to wait for the pipeline to finish.
+     *
+     * @param waitTimeout Timeout in seconds, 0 for no limit.
+     */
+    @DataBoundSetter
+    public void setWaitTimeout(final int waitTimeout) {
+        this.waitTimeout = waitTimeout;
+    }
+
+    public boolean isPropagate() {
+        return propagate;
+    }
+
+    /**
+     * Sets whether the step fails if the pipeline did not succeed.
+     *
+     * @param propagate True to fail the step unless the pipeline succeeded.
+     */
+    @DataBoundSetter
+    public void setPropagate(final boolean propagate) {
+        this.propagate = propagate;
+    }
+
+    @Extension
+    public static class Descriptor extends AbstractStepDescriptor {
+
+        @Nonnull
+        @Override
+        public String getDisplayName() {
+            return "Wait for the pipeline of a ref, commit or merge request to finish";
+        }
+
+        @Override
+        public String getFunctionName() {
+            return "gitlabWaitForPipeline";
+        }
+
+    }
+}
@@ -0,0 +1,113 @@
+package com.aagproservices.jenkins.gitlabsteps.step.execution;
+
+import com.aagproservices.jenkins.gitlabsteps.api.Commit;
+import com.aagproservices.jenkins.gitlabsteps.api.CommitAction;
+import com.aagproservices.jenkins.gitlabsteps.service.ContentService;
+import com.aagproservices.jenkins.gitlabsteps.step.AbstractStepExecution;
+import com.aagproservices.jenkins.gitlabsteps.step.descriptor.CommitFilesStep;
+import hudson.FilePath;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Execution implementation of the step "commitFiles".
+ */
+public class CommitFilesExecution extends AbstractStepExecution<Commit, CommitFilesStep> {
+
+    private static final long serialVersionUID = 1470238867502264913L;
+
+    /**
+     * Constructor that takes the needed information for the execution of the step.
+     *
+     * @param commitFilesStep The step that is going to be executed.
+     * @param context         The step context.
+     */
+    public CommitFilesExecution(final CommitFilesStep commitFilesStep, final StepContext context) {
+        super(commitFilesStep, context);
+    }
+
+    @Override
+    public void validate(final CommitFilesStep step) {
+        super.validate(step);
+
+        if (step.getBranch() == null || step.getBranch().isEmpty()) {
+            throw new IllegalStateException("The branch is null or empty");
+        }
+
+        if (step.getMessage() == null || step.getMessage().isEmpty()) {
+            throw new IllegalStateException("The commit message is null or empty");
+        }
+
+        if (step.getFiles().isEmpty() && (step.getGlob() == null || step.getGlob().isEmpty()) && step.getActions().isEmpty()) {
+            throw new IllegalStateException("Neither files, a glob nor actions are given");
+        }
+
+        for (CommitAction action : step.getActions()) {
+            if (action.getFilePath() == null || action.getFilePath().isEmpty()) {
+                throw new IllegalStateException("The file path of an action is null or empty");
+            }
+
+            if (!action.isCreateOrUpdate() && !CommitAction.ACTIONS.contains(action.getAction())) {
+                throw new IllegalStateException("The action of " + action.getFilePath() + " must be one of " + CommitAction.ACTIONS);
+            }
+
+            if (CommitAction.MOVE.equals(action.getAction()) && (action.getPreviousPath() == null || action.getPreviousPath().isEmpty())) {
+                throw new IllegalStateException("The previous path of moved file " + action.getFilePath() + " is null or empty");
+            }
+        }
+    }
+
+    @Override
+    protected Commit execute() throws Exception {
+        FilePath workspace = getContext().get(FilePath.class);
+        if (workspace == null) {
+            throw new IllegalStateException("The step needs a workspace");
+        }
+
+        return getService(ContentService.class).commitFiles(
+                getStep().getGitlabUrl(), retrieveAuthToken(getStep().getAuthToken()),
+                getStep().getProject(), getStep().getRepoSlug(), getStep().getBranch(), getStep().getMessage(),
+                collectActions(workspace), workspace,
+                getStep().getTimeout(), getStep().isDebugMode(), getStep().isTrustAllCertificates()
+        );
+    }
+
+    /**
+     * Collects the actions for the listed files, the files matching the glob and the explicit actions. A later
+     * action for the same path replaces an earlier one.
+     */
+    private List<CommitAction> collectActions(final FilePath workspace) throws Exception {
+        Map<String, CommitAction> actions = new LinkedHashMap<>();
+        for (String file : getStep().getFiles()) {
+            String path = normalize(file);
+            actions.put(path, new CommitAction(null, path, null, null));
+        }
+
+        if (getStep().getGlob() != null && !getStep().getGlob().isEmpty()) {
+            String root = workspace.getRemote();
+            for (FilePath match : workspace.list(getStep().getGlob())) {
+                String path = normalize(match.getRemote().substring(root.length()));
+                actions.put(path, new CommitAction(null, path, null, null));
+            }
+        }
+
+        for (CommitAction action : getStep().getActions()) {
+            actions.put(normalize(action.getFilePath()), action);
+        }
+        return new ArrayList<>(actions.values());
+    }
+
+    private static String normalize(final String path) {
+        String normalized = path.replace('\\', '/');
+        while (normalized.startsWith("/")) {
+            normalized = normalized.substring(1);
+        }
+        return normalized;
+    }
+}
@@ -1,17 +1,19 @@
 package com.aagproservices.jenkins.gitlabsteps.step.execution;
 
+import com.aagproservices.jenkins.gitlabsteps.api.Branch;
 import com.aagproservices.jenkins.gitlabsteps.service.ContentService;
-import com.aagproservices.jenkins.gitlabsteps.step.AbstractStepExecution;
+import com.aagproservices.jenkins.gitlabsteps.step.AbstractAsyncStepExecution;
 import com.aagproservices.jenkins.gitlabsteps.step.descriptor.CreateBranchStep;
 import org.jenkinsci.plugins.workflow.steps.StepContext;
-import org.json.JSONObject;
+
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author Aleks Gekht
  * @version 0.1.0
  * Execution implementation of the step "createTag".
  */
-public class CreateBranchExecution extends AbstractStepExecution<JSONObject, CreateBranchStep> {
+public class CreateBranchExecution extends AbstractAsyncStepExecution<Branch, CreateBranchStep> {
 
     private static final long serialVersionUID = 7220386183261962984L;
 
@@ -39,16 +41,11 @@ public class CreateBranchExecution extends AbstractStepExecution<JSONObject, Cre
     }
 
     @Override
-    protected JSONObject run() throws Exception {
-        try {
-            return getService(ContentService.class).createBranch(
-                    getStep().getGitlabUrl(), retrieveAuthToken(getStep().getAuthToken()),
-                    getStep().getProject(), getStep().getRepoSlug(), getStep().getBranch(),
-                    getStep().getTimeout(), getStep().isDebugMode(), getStep().isTrustAllCertificates()
-            );
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw e;
-        }
+    protected CompletableFuture<Branch> runAsync() throws Exception {
+        return getService(ContentService.class).createBranchAsync(
+                getStep().getGitlabUrl(), retrieveAuthToken(getStep().getAuthToken()),
+                getStep().getProject(), getStep().getRepoSlug(), getStep().getBranch(),
+                getStep().getTimeout(), getStep().isDebugMode(), getStep().isTrustAllCertificates()
+        );
     }
 }
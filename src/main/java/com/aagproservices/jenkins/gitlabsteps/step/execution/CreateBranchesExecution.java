@@ -0,0 +1,67 @@
+package com.aagproservices.jenkins.gitlabsteps.step.execution;
+
+import com.aagproservices.jenkins.gitlabsteps.api.BatchResult;
+import com.aagproservices.jenkins.gitlabsteps.api.Branch;
+import com.aagproservices.jenkins.gitlabsteps.service.BatchRunner;
+import com.aagproservices.jenkins.gitlabsteps.service.BatchValidation;
+import com.aagproservices.jenkins.gitlabsteps.service.ContentService;
+import com.aagproservices.jenkins.gitlabsteps.step.AbstractAsyncStepExecution;
+import com.aagproservices.jenkins.gitlabsteps.step.descriptor.CreateBranchesStep;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Execution implementation of the step "createBranches".
+ */
+public class CreateBranchesExecution extends AbstractAsyncStepExecution<List<BatchResult<Branch>>, CreateBranchesStep> {
+
+    private static final long serialVersionUID = 2983716409457120386L;
+
+    /**
+     * Constructor that takes the needed information for the execution of the step.
+     *
+     * @param createBranchesStep The step that is going to be executed.
+     * @param context            The step context.
+     */
+    public CreateBranchesExecution(final CreateBranchesStep createBranchesStep, final StepContext context) {
+        super(createBranchesStep, context);
+    }
+
+    @Override
+    protected boolean requiresRepository() {
+        return false;
+    }
+
+    @Override
+    public void validate(final CreateBranchesStep step) {
+        super.validate(step);
+
+        BatchValidation.validateConcurrency(step.getConcurrency());
+        BatchValidation.validateNotEmpty(step.getBranches(), "branches");
+        BatchValidation.validateRefs(step.getBranches(), step.getProject(), step.getRepoSlug(), "branch", true);
+    }
+
+    @Override
+    protected CompletableFuture<List<BatchResult<Branch>>> runAsync() throws Exception {
+        ContentService service = getService(ContentService.class);
+        String authToken = retrieveAuthToken(getStep().getAuthToken());
+        return BatchRunner.run(
+                getStep().getBranches(),
+                getStep().getConcurrency(),
+                branch -> branch.getProject(getStep().getProject()) + "/" + branch.getRepoSlug(getStep().getRepoSlug()) + ":" + branch.getName(),
+                branch -> getStep().isDryRun()
+                        ? service.checkCreateBranchAsync(
+                                getStep().getGitlabUrl(), authToken,
+                                branch.getProject(getStep().getProject()), branch.getRepoSlug(getStep().getRepoSlug()), branch.toBranch(),
+                                getStep().getTimeout(), getStep().isDebugMode(), getStep().isTrustAllCertificates())
+                        : service.createBranchAsync(
+                                getStep().getGitlabUrl(), authToken,
+                                branch.getProject(getStep().getProject()), branch.getRepoSlug(getStep().getRepoSlug()), branch.toBranch(),
+                                getStep().getTimeout(), getStep().isDebugMode(), getStep().isTrustAllCertificates())
+        );
+    }
+}
@@ -1,17 +1,20 @@
 package com.aagproservices.jenkins.gitlabsteps.step.execution;
 
+import com.aagproservices.jenkins.gitlabsteps.api.PullRequest;
 import com.aagproservices.jenkins.gitlabsteps.service.ContentService;
-import com.aagproservices.jenkins.gitlabsteps.step.AbstractStepExecution;
+import com.aagproservices.jenkins.gitlabsteps.step.AbstractAsyncStepExecution;
 import com.aagproservices.jenkins.gitlabsteps.step.descriptor.CreatePullRequestStep;
 import org.jenkinsci.plugins.workflow.steps.StepContext;
-import org.json.JSONObject;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author Aleks Gekht
  * @version 0.1.0
  * Execution implementation of the step "createTag".
  */
-public class CreatePullRequestExecution extends AbstractStepExecution<Integer, CreatePullRequestStep> {
+public class CreatePullRequestExecution extends AbstractAsyncStepExecution<Integer, CreatePullRequestStep> {
 
     private static final long serialVersionUID = 7220386183041962984L;
 
@@ -43,17 +46,19 @@ public class CreatePullRequestExecution extends AbstractStepExecution<Integer, C
     }
 
     @Override
-    protected Integer run() throws Exception {
-        try {
-            JSONObject result = getService(ContentService.class).createPullRequest(
-                    getStep().getGitlabUrl(), retrieveAuthToken(getStep().getAuthToken()),
-                    getStep().getProject(), getStep().getRepoSlug(), getStep().getPullRequest(),
-                    getStep().getTimeout(), getStep().isDebugMode(), getStep().isTrustAllCertificates()
-            );
-            return result.getInt("iid");
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw e;
-        }
+    protected CompletableFuture<Integer> runAsync() throws Exception {
+        CompletableFuture<PullRequest> request = getService(ContentService.class).createPullRequestAsync(
+                getStep().getGitlabUrl(), retrieveAuthToken(getStep().getAuthToken()),
+                getStep().getProject(), getStep().getRepoSlug(), getStep().getPullRequest(),
+                getStep().getTimeout(), getStep().isDebugMode(), getStep().isTrustAllCertificates()
+        );
+        CompletableFuture<Integer> result = request.thenApply(PullRequest::getIid);
+        // Cancelling the derived future has to cancel the HTTP call as well
+        result.whenComplete((iid, failure) -> {
+            if (failure instanceof CancellationException) {
+                request.cancel(true);
+            }
+        });
+        return result;
     }
 }
@@ -1,17 +1,19 @@
 package com.aagproservices.jenkins.gitlabsteps.step.execution;
 
+import com.aagproservices.jenkins.gitlabsteps.api.Tag;
 import com.aagproservices.jenkins.gitlabsteps.service.ContentService;
-import com.aagproservices.jenkins.gitlabsteps.step.AbstractStepExecution;
+import com.aagproservices.jenkins.gitlabsteps.step.AbstractAsyncStepExecution;
 import com.aagproservices.jenkins.gitlabsteps.step.descriptor.CreateTagStep;
 import org.jenkinsci.plugins.workflow.steps.StepContext;
-import org.json.JSONObject;
+
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author Aleks Gekht
  * @version 0.1.0
  * Execution implementation of the step "createTag".
  */
-public class CreateTagExecution extends AbstractStepExecution<JSONObject, CreateTagStep> {
+public class CreateTagExecution extends AbstractAsyncStepExecution<Tag, CreateTagStep> {
 
     private static final long serialVersionUID = 7220386183041962984L;
 
@@ -39,16 +41,11 @@ public class CreateTagExecution extends AbstractStepExecution<JSONObject, Create
     }
 
     @Override
-    protected JSONObject run() throws Exception {
-        try {
-            return getService(ContentService.class).createTag(
-                    getStep().getGitlabUrl(), retrieveAuthToken(getStep().getAuthToken()),
-                    getStep().getProject(), getStep().getRepoSlug(), getStep().getTag(),
-                    getStep().getTimeout(), getStep().isDebugMode(), getStep().isTrustAllCertificates()
-            );
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw e;
-        }
+    protected CompletableFuture<Tag> runAsync() throws Exception {
+        return getService(ContentService.class).createTagAsync(
+                getStep().getGitlabUrl(), retrieveAuthToken(getStep().getAuthToken()),
+                getStep().getProject(), getStep().getRepoSlug(), getStep().getTag(),
+                getStep().getTimeout(), getStep().isDebugMode(), getStep().isTrustAllCertificates()
+        );
     }
 }
@@ -0,0 +1,63 @@
+package com.aagproservices.jenkins.gitlabsteps.step.execution;
+
+import com.aagproservices.jenkins.gitlabsteps.api.BatchResult;
+import com.aagproservices.jenkins.gitlabsteps.api.Tag;
+import com.aagproservices.jenkins.gitlabsteps.service.BatchRunner;
+import com.aagproservices.jenkins.gitlabsteps.service.BatchValidation;
+import com.aagproservices.jenkins.gitlabsteps.service.ContentService;
+import com.aagproservices.jenkins.gitlabsteps.step.AbstractAsyncStepExecution;
+import com.aagproservices.jenkins.gitlabsteps.step.descriptor.CreateTagsStep;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Execution implementation of the step "createTags".
+ */
+public class CreateTagsExecution extends AbstractAsyncStepExecution<List<BatchResult<Tag>>, CreateTagsStep> {
+
+    private static final long serialVersionUID = -5630170468542960817L;
+
+    /**
+     * Constructor that takes the needed information for the execution of the step.
+     *
+     * @param createTagsStep The step that is going to be executed.
+     * @param context        The step context.
+     */
+    public CreateTagsExecution(final CreateTagsStep createTagsStep, final StepContext context) {
+        super(createTagsStep, context);
+    }
+
+    @Override
+    protected boolean requiresRepository() {
+        return false;
+    }
+
+    @Override
+    public void validate(final CreateTagsStep step) {
+        super.validate(step);
+
+        BatchValidation.validateConcurrency(step.getConcurrency());
+        BatchValidation.validateNotEmpty(step.getTags(), "tags");
+        BatchValidation.validateRefs(step.getTags(), step.getProject(), step.getRepoSlug(), "tag", true);
+    }
+
+    @Override
+    protected CompletableFuture<List<BatchResult<Tag>>> runAsync() throws Exception {
+        ContentService service = getService(ContentService.class);
+        String authToken = retrieveAuthToken(getStep().getAuthToken());
+        return BatchRunner.run(
+                getStep().getTags(),
+                getStep().getConcurrency(),
+                tag -> tag.getProject(getStep().getProject()) + "/" + tag.getRepoSlug(getStep().getRepoSlug()) + ":" + tag.getName(),
+                tag -> service.createTagAsync(
+                        getStep().getGitlabUrl(), authToken,
+                        tag.getProject(getStep().getProject()), tag.getRepoSlug(getStep().getRepoSlug()), tag.toTag(),
+                        getStep().getTimeout(), getStep().isDebugMode(), getStep().isTrustAllCertificates()
+                )
+        );
+    }
+}
@@ -0,0 +1,119 @@
+package com.aagproservices.jenkins.gitlabsteps.step.execution;
+
+import com.aagproservices.jenkins.gitlabsteps.api.BatchResult;
+import com.aagproservices.jenkins.gitlabsteps.api.RefSpec;
+import com.aagproservices.jenkins.gitlabsteps.service.BatchRunner;
+import com.aagproservices.jenkins.gitlabsteps.service.BatchValidation;
+import com.aagproservices.jenkins.gitlabsteps.service.ContentService;
+import com.aagproservices.jenkins.gitlabsteps.step.AbstractAsyncStepExecution;
+import com.aagproservices.jenkins.gitlabsteps.step.descriptor.DeleteBranchesStep;
+import org.apache.commons.lang.StringUtils;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Execution implementation of the step "deleteBranches". Each result lists the names of the deleted branches, or of
+ * the branches a dry run would delete. The merged branches of a repository are deleted by Gitlab in the background,
+ * their result lists no names unless it is a dry run.
+ */
+public class DeleteBranchesExecution extends AbstractAsyncStepExecution<List<BatchResult<ArrayList<String>>>, DeleteBranchesStep> {
+
+    private static final long serialVersionUID = 4401675281930652317L;
+
+    /**
+     * Constructor that takes the needed information for the execution of the step.
+     *
+     * @param deleteBranchesStep The step that is going to be executed.
+     * @param context            The step context.
+     */
+    public DeleteBranchesExecution(final DeleteBranchesStep deleteBranchesStep, final StepContext context) {
+        super(deleteBranchesStep, context);
+    }
+
+    @Override
+    protected boolean requiresRepository() {
+        return false;
+    }
+
+    @Override
+    public void validate(final DeleteBranchesStep step) {
+        super.validate(step);
+
+        BatchValidation.validateConcurrency(step.getConcurrency());
+
+        if (step.getBranches().isEmpty() && !step.isDeleteMerged()) {
+            throw new IllegalStateException("Neither branches nor deleteMerged given");
+        }
+
+        BatchValidation.validateRefs(step.getBranches(), step.getProject(), step.getRepoSlug(), "branch", false);
+
+        if (step.isDeleteMerged()) {
+            if (step.getRepositories().isEmpty()
+                    && (StringUtils.isEmpty(step.getProject()) || StringUtils.isEmpty(step.getRepoSlug()))) {
+                throw new IllegalStateException("No repositories given to delete the merged branches of");
+            }
+
+            BatchValidation.validateRepositories(step.getRepositories());
+        }
+    }
+
+    @Override
+    protected CompletableFuture<List<BatchResult<ArrayList<String>>>> runAsync() throws Exception {
+        ContentService service = getService(ContentService.class);
+        String authToken = retrieveAuthToken(getStep().getAuthToken());
+        DeleteBranchesStep step = getStep();
+
+        List<Deletion> deletions = new ArrayList<>();
+        for (RefSpec branch : step.getBranches()) {
+            String project = branch.getProject(step.getProject());
+            String repoSlug = branch.getRepoSlug(step.getRepoSlug());
+            deletions.add(new Deletion(project + "/" + repoSlug + ":" + branch.getName(), () -> (step.isDryRun()
+                    ? service.checkDeleteBranchAsync(step.getGitlabUrl(), authToken, project, repoSlug, branch.getName(),
+                            step.getTimeout(), step.isDebugMode(), step.isTrustAllCertificates())
+                    : service.deleteBranchAsync(step.getGitlabUrl(), authToken, project, repoSlug, branch.getName(),
+                            step.getTimeout(), step.isDebugMode(), step.isTrustAllCertificates()))
+                    .thenApply(name -> new ArrayList<>(Collections.singletonList(name)))));
+        }
+
+        if (step.isDeleteMerged()) {
+            List<String> repositories = step.getRepositories().isEmpty()
+                    ? Collections.singletonList(step.getProject() + "/" + step.getRepoSlug())
+                    : step.getRepositories();
+            for (String repository : repositories) {
+                // Project and repository slug are joined again into the full path anyway
+                int slash = repository.lastIndexOf('/');
+                String project = repository.substring(0, slash);
+                String repoSlug = repository.substring(slash + 1);
+                deletions.add(new Deletion(repository + ":merged", () -> step.isDryRun()
+                        ? service.listMergedBranchesAsync(step.getGitlabUrl(), authToken, project, repoSlug,
+                                step.getTimeout(), step.isDebugMode(), step.isTrustAllCertificates())
+                                .thenApply(ArrayList::new)
+                        : service.deleteMergedBranchesAsync(step.getGitlabUrl(), authToken, project, repoSlug,
+                                step.getTimeout(), step.isDebugMode(), step.isTrustAllCertificates())
+                                .thenApply(accepted -> (ArrayList<String>) null)));
+            }
+        }
+
+        return BatchRunner.run(deletions, step.getConcurrency(), deletion -> deletion.key, deletion -> deletion.work.get());
+    }
+
+    /**
+     * A branch, or all the merged branches of a repository, to delete.
+     */
+    private static final class Deletion {
+        private final String key;
+        private final Supplier<CompletableFuture<ArrayList<String>>> work;
+
+        private Deletion(final String key, final Supplier<CompletableFuture<ArrayList<String>>> work) {
+            this.key = key;
+            this.work = work;
+        }
+    }
+}
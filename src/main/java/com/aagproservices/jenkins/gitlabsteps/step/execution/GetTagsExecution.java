@@ -1,17 +1,20 @@
 package com.aagproservices.jenkins.gitlabsteps.step.execution;
 
 import com.aagproservices.jenkins.gitlabsteps.service.ContentService;
+import com.aagproservices.jenkins.gitlabsteps.service.ListingValidation;
 import com.aagproservices.jenkins.gitlabsteps.step.AbstractStepExecution;
 import com.aagproservices.jenkins.gitlabsteps.step.descriptor.GetTagsStep;
+import com.aagproservices.jenkins.gitlabsteps.util.Projection;
 import org.jenkinsci.plugins.workflow.steps.StepContext;
-import org.json.JSONArray;
+
+import java.util.List;
 
 /**
  * @author Aleks Gekht
  * @version 0.1.0
  * Execution implementation of the step "getTags".
  */
-public class GetTagsExecution extends AbstractStepExecution<JSONArray, GetTagsStep> {
+public class GetTagsExecution extends AbstractStepExecution<List<?>, GetTagsStep> {
 
     private static final long serialVersionUID = 7220386183068962984L;
 
@@ -28,14 +31,31 @@ public class GetTagsExecution extends AbstractStepExecution<JSONArray, GetTagsSt
     @Override
     public void validate(final GetTagsStep step) {
         super.validate(step);
+
+        ListingValidation.validateListing(step.getMaxResults(), step.getPageSize(), step.getFields());
+        ListingValidation.validateTagOrder(step.getLatest(), step.getOrderBy(), step.getSort());
     }
 
     @Override
-    protected JSONArray run() throws Exception {
+    protected List<?> execute() throws Exception {
         try {
-            return getService(ContentService.class).getTags(
-                    getStep().getGitlabUrl(), retrieveAuthToken(getStep().getAuthToken()),
+            ContentService service = getService(ContentService.class);
+            String authToken = retrieveAuthToken(getStep().getAuthToken());
+            if (Projection.isRequested(getStep().getFields())) {
+                return service.getTags(
+                        getStep().getGitlabUrl(), authToken,
+                        getStep().getProject(), getStep().getRepoSlug(), getStep().getFilter(),
+                        getStep().getEffectiveOrderBy(), getStep().getEffectiveSort(),
+                        getStep().getPageSize(), getStep().getEffectiveMaxResults(),
+                        new Projection(getStep().getFields()),
+                        getStep().getTimeout(), getStep().isDebugMode(), getStep().isTrustAllCertificates()
+                );
+            }
+            return service.getTags(
+                    getStep().getGitlabUrl(), authToken,
                     getStep().getProject(), getStep().getRepoSlug(), getStep().getFilter(),
+                    getStep().getEffectiveOrderBy(), getStep().getEffectiveSort(),
+                    getStep().getPageSize(), getStep().getEffectiveMaxResults(),
                     getStep().getTimeout(), getStep().isDebugMode(), getStep().isTrustAllCertificates()
             );
         } catch (Exception e) {
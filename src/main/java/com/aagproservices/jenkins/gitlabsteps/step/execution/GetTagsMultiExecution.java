@@ -0,0 +1,66 @@
+package com.aagproservices.jenkins.gitlabsteps.step.execution;
+
+import com.aagproservices.jenkins.gitlabsteps.service.ContentService;
+import com.aagproservices.jenkins.gitlabsteps.service.ListingValidation;
+import com.aagproservices.jenkins.gitlabsteps.step.AbstractAsyncStepExecution;
+import com.aagproservices.jenkins.gitlabsteps.step.descriptor.GetTagsMultiStep;
+import com.aagproservices.jenkins.gitlabsteps.util.Projection;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Execution implementation of the step "getTagsMulti". The result maps the full path of each repository to its tags.
+ */
+public class GetTagsMultiExecution extends AbstractAsyncStepExecution<Map<String, List<Object>>, GetTagsMultiStep> {
+
+    private static final long serialVersionUID = -2907514392613650158L;
+
+    /**
+     * Constructor that takes the needed information for the execution of the step.
+     *
+     * @param getTagsMultiStep The step that is going to be executed.
+     * @param context          The step context.
+     */
+    public GetTagsMultiExecution(final GetTagsMultiStep getTagsMultiStep, final StepContext context) {
+        super(getTagsMultiStep, context);
+    }
+
+    @Override
+    protected boolean requiresRepository() {
+        return false;
+    }
+
+    @Override
+    public void validate(final GetTagsMultiStep step) {
+        super.validate(step);
+
+        MultiRepositoryQuery.validate(step.getRepositories(), step.getGroup(), step.getConcurrency());
+
+        ListingValidation.validateListing(step.getMaxResults(), step.getPageSize(), step.getFields());
+        ListingValidation.validateTagOrder(step.getLatest(), step.getOrderBy(), step.getSort());
+    }
+
+    @Override
+    protected CompletableFuture<Map<String, List<Object>>> runAsync() throws Exception {
+        ContentService service = getService(ContentService.class);
+        String authToken = retrieveAuthToken(getStep().getAuthToken());
+        GetTagsMultiStep step = getStep();
+        Projection projection = Projection.isRequested(step.getFields()) ? new Projection(step.getFields()) : null;
+        return MultiRepositoryQuery.run(step, getContext(), service, authToken,
+                step.getRepositories(), step.getGroup(), step.getConcurrency(), step.isIgnoreErrors(),
+                (project, repoSlug) -> projection != null
+                        ? service.getTagsAsync(step.getGitlabUrl(), authToken, project, repoSlug, step.getFilter(),
+                                step.getEffectiveOrderBy(), step.getEffectiveSort(),
+                                step.getPageSize(), step.getEffectiveMaxResults(), projection,
+                                step.getTimeout(), step.isDebugMode(), step.isTrustAllCertificates())
+                        : service.getTagsAsync(step.getGitlabUrl(), authToken, project, repoSlug, step.getFilter(),
+                                step.getEffectiveOrderBy(), step.getEffectiveSort(),
+                                step.getPageSize(), step.getEffectiveMaxResults(),
+                                step.getTimeout(), step.isDebugMode(), step.isTrustAllCertificates()));
+    }
+}
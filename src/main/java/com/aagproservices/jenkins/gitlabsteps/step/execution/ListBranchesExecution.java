@@ -1,18 +1,20 @@
 package com.aagproservices.jenkins.gitlabsteps.step.execution;
 
 import com.aagproservices.jenkins.gitlabsteps.service.ContentService;
+import com.aagproservices.jenkins.gitlabsteps.service.ListingValidation;
 import com.aagproservices.jenkins.gitlabsteps.step.AbstractStepExecution;
 import com.aagproservices.jenkins.gitlabsteps.step.descriptor.ListBranchesStep;
+import com.aagproservices.jenkins.gitlabsteps.util.Projection;
 import org.jenkinsci.plugins.workflow.steps.StepContext;
-import org.json.JSONArray;
-import org.json.JSONObject;
+
+import java.util.List;
 
 /**
  * @author Aleks Gekht
  * @version 0.1.0
  * Execution implementation of the step "createTag".
  */
-public class ListBranchesExecution extends AbstractStepExecution<JSONArray, ListBranchesStep> {
+public class ListBranchesExecution extends AbstractStepExecution<List<?>, ListBranchesStep> {
 
     private static final long serialVersionUID = 7220386181261962984L;
 
@@ -27,11 +29,30 @@ public class ListBranchesExecution extends AbstractStepExecution<JSONArray, List
     }
 
     @Override
-    protected JSONArray run() throws Exception {
+    public void validate(final ListBranchesStep step) {
+        super.validate(step);
+
+        ListingValidation.validateListing(step.getMaxResults(), step.getPageSize(), step.getFields());
+    }
+
+    @Override
+    protected List<?> execute() throws Exception {
         try {
-            return getService(ContentService.class).listBranches(
-                    getStep().getGitlabUrl(), retrieveAuthToken(getStep().getAuthToken()),
+            ContentService service = getService(ContentService.class);
+            String authToken = retrieveAuthToken(getStep().getAuthToken());
+            if (Projection.isRequested(getStep().getFields())) {
+                return service.listBranches(
+                        getStep().getGitlabUrl(), authToken,
+                        getStep().getProject(), getStep().getRepoSlug(), getStep().getSearch(),
+                        getStep().getPageSize(), getStep().getMaxResults(),
+                        new Projection(getStep().getFields()),
+                        getStep().getTimeout(), getStep().isDebugMode(), getStep().isTrustAllCertificates()
+                );
+            }
+            return service.listBranches(
+                    getStep().getGitlabUrl(), authToken,
                     getStep().getProject(), getStep().getRepoSlug(), getStep().getSearch(),
+                    getStep().getPageSize(), getStep().getMaxResults(),
                     getStep().getTimeout(), getStep().isDebugMode(), getStep().isTrustAllCertificates()
             );
         } catch (Exception e) {
@@ -0,0 +1,64 @@
+package com.aagproservices.jenkins.gitlabsteps.step.execution;
+
+import com.aagproservices.jenkins.gitlabsteps.service.ContentService;
+import com.aagproservices.jenkins.gitlabsteps.service.ListingValidation;
+import com.aagproservices.jenkins.gitlabsteps.step.AbstractAsyncStepExecution;
+import com.aagproservices.jenkins.gitlabsteps.step.descriptor.ListBranchesMultiStep;
+import com.aagproservices.jenkins.gitlabsteps.util.Projection;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Execution implementation of the step "listBranchesMulti". The result maps the full path of each repository to its
+ * branches.
+ */
+public class ListBranchesMultiExecution extends AbstractAsyncStepExecution<Map<String, List<Object>>, ListBranchesMultiStep> {
+
+    private static final long serialVersionUID = 6120793481554732191L;
+
+    /**
+     * Constructor that takes the needed information for the execution of the step.
+     *
+     * @param listBranchesMultiStep The step that is going to be executed.
+     * @param context               The step context.
+     */
+    public ListBranchesMultiExecution(final ListBranchesMultiStep listBranchesMultiStep, final StepContext context) {
+        super(listBranchesMultiStep, context);
+    }
+
+    @Override
+    protected boolean requiresRepository() {
+        return false;
+    }
+
+    @Override
+    public void validate(final ListBranchesMultiStep step) {
+        super.validate(step);
+
+        MultiRepositoryQuery.validate(step.getRepositories(), step.getGroup(), step.getConcurrency());
+
+        ListingValidation.validateListing(step.getMaxResults(), step.getPageSize(), step.getFields());
+    }
+
+    @Override
+    protected CompletableFuture<Map<String, List<Object>>> runAsync() throws Exception {
+        ContentService service = getService(ContentService.class);
+        String authToken = retrieveAuthToken(getStep().getAuthToken());
+        ListBranchesMultiStep step = getStep();
+        Projection projection = Projection.isRequested(step.getFields()) ? new Projection(step.getFields()) : null;
+        return MultiRepositoryQuery.run(step, getContext(), service, authToken,
+                step.getRepositories(), step.getGroup(), step.getConcurrency(), step.isIgnoreErrors(),
+                (project, repoSlug) -> projection != null
+                        ? service.listBranchesAsync(step.getGitlabUrl(), authToken, project, repoSlug, step.getSearch(),
+                                step.getPageSize(), step.getMaxResults(), projection,
+                                step.getTimeout(), step.isDebugMode(), step.isTrustAllCertificates())
+                        : service.listBranchesAsync(step.getGitlabUrl(), authToken, project, repoSlug, step.getSearch(),
+                                step.getPageSize(), step.getMaxResults(),
+                                step.getTimeout(), step.isDebugMode(), step.isTrustAllCertificates()));
+    }
+}
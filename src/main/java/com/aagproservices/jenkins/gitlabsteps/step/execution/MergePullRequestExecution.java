@@ -1,20 +1,26 @@
 package com.aagproservices.jenkins.gitlabsteps.step.execution;
 
+import com.aagproservices.jenkins.gitlabsteps.api.PullRequest;
 import com.aagproservices.jenkins.gitlabsteps.service.ContentService;
-import com.aagproservices.jenkins.gitlabsteps.step.AbstractStepExecution;
+import com.aagproservices.jenkins.gitlabsteps.step.AbstractAsyncStepExecution;
 import com.aagproservices.jenkins.gitlabsteps.step.descriptor.MergePullRequestStep;
 import org.jenkinsci.plugins.workflow.steps.StepContext;
-import org.json.JSONObject;
+
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author Aleks Gekht
  * @version 0.1.0
- * Execution implementation of the step "createTag".
+ * Execution implementation of the step "mergePullRequest". When it waits for the merge, it keeps its step across a
+ * restart of Jenkins and starts waiting again with the full wait timeout: the state of the merge request is looked up
+ * first, so a merge which went ahead in the meantime completes the step.
  */
-public class MergePullRequestExecution extends AbstractStepExecution<JSONObject, MergePullRequestStep> {
+public class MergePullRequestExecution extends AbstractAsyncStepExecution<PullRequest, MergePullRequestStep> {
 
     private static final long serialVersionUID = 7223466183041962984L;
 
+    private final MergePullRequestStep mergePullRequestStep;
+
     /**
      * Constructor that takes the needed information for the execution of the step.
      *
@@ -23,6 +29,7 @@ public class MergePullRequestExecution extends AbstractStepExecution<JSONObject,
      */
     public MergePullRequestExecution(final MergePullRequestStep mergePullRequestStep, final StepContext context) {
         super(mergePullRequestStep, context);
+        this.mergePullRequestStep = mergePullRequestStep;
     }
 
     @Override
@@ -32,19 +39,37 @@ public class MergePullRequestExecution extends AbstractStepExecution<JSONObject,
         if (step.getId() == 0) {
             throw new IllegalStateException("Pull request is 0");
         }
+
+        if (step.getWaitTimeout() < 0) {
+            throw new IllegalStateException("Wait timeout must not be negative");
+        }
     }
 
     @Override
-    protected JSONObject run() throws Exception {
+    protected CompletableFuture<PullRequest> runAsync() throws Exception {
+        return getService(ContentService.class).mergePullRequestAsync(
+                getStep().getGitlabUrl(), retrieveAuthToken(getStep().getAuthToken()),
+                getStep().getProject(), getStep().getRepoSlug(), getStep().getId(),
+                getStep().getSha(), getStep().isMergeWhenPipelineSucceeds(), getStep().getWaitTimeout(),
+                getStep().getTimeout(), getStep().isDebugMode(), getStep().isTrustAllCertificates()
+        );
+    }
+
+    @Override
+    public void onResume() {
+        if (getStep() == null || getStep().getWaitTimeout() <= 0) {
+            super.onResume();
+            return;
+        }
         try {
-            return getService(ContentService.class).mergePullRequest(
-                    getStep().getGitlabUrl(), retrieveAuthToken(getStep().getAuthToken()),
-                    getStep().getProject(), getStep().getRepoSlug(), getStep().getId(),
-                    getStep().getTimeout(), getStep().isDebugMode(), getStep().isTrustAllCertificates()
-            );
+            start();
         } catch (Exception e) {
-            e.printStackTrace();
-            throw e;
+            getContext().onFailure(e);
         }
     }
+
+    @Override
+    public MergePullRequestStep getStep() {
+        return mergePullRequestStep;
+    }
 }
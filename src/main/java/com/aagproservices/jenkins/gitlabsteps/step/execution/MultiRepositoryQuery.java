@@ -0,0 +1,158 @@
+package com.aagproservices.jenkins.gitlabsteps.step.execution;
+
+import com.aagproservices.jenkins.gitlabsteps.api.BatchResult;
+import com.aagproservices.jenkins.gitlabsteps.service.BatchRunner;
+import com.aagproservices.jenkins.gitlabsteps.service.BatchValidation;
+import com.aagproservices.jenkins.gitlabsteps.service.ContentService;
+import com.aagproservices.jenkins.gitlabsteps.step.AbstractStep;
+import hudson.model.TaskListener;
+import org.apache.commons.lang.StringUtils;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Runs the same listing (tags, branches) against many repositories at once for the "...Multi" steps. The repositories
+ * are given by their full paths and/or by a group whose projects are listed first; the listings then run through a
+ * {@link BatchRunner}, so the step takes about as long as the slowest repository rather than the sum of all of them.
+ */
+final class MultiRepositoryQuery {
+
+    /**
+     * Private constructor.
+     */
+    private MultiRepositoryQuery() {
+    }
+
+    /**
+     * Validates the repositories and the group of a step.
+     *
+     * @param repositories Full paths of the repositories, may be null.
+     * @param group        Full path of the group, may be null.
+     * @param concurrency  Maximum number of listings in flight.
+     */
+    static void validate(final List<String> repositories, final String group, final int concurrency) {
+        if ((repositories == null || repositories.isEmpty()) && StringUtils.isEmpty(group)) {
+            throw new IllegalStateException("Neither repositories nor group given");
+        }
+
+        if (repositories != null) {
+            BatchValidation.validateRepositories(repositories);
+        }
+
+        BatchValidation.validateConcurrency(concurrency);
+    }
+
+    /**
+     * Runs a listing against all the repositories.
+     *
+     * @param step         The step.
+     * @param context      The context of the step, used to report skipped repositories.
+     * @param service      The service to list the projects of the group with.
+     * @param authToken    The resolved token.
+     * @param repositories Full paths of the repositories, may be null.
+     * @param group        Full path of the group whose projects are added to the repositories, may be null.
+     * @param concurrency  Maximum number of listings in flight, 0 for the default.
+     * @param ignoreErrors True to leave out the repositories which fail instead of failing the step.
+     * @param listing      Starts the listing of a repository, given its project and repository slug.
+     * @return Future of the listings by full path of the repository, in the order of the repositories. Cancelling it
+     *         cancels the requests in flight.
+     */
+    static CompletableFuture<Map<String, List<Object>>> run(
+            final AbstractStep step, final StepContext context, final ContentService service, final String authToken,
+            final List<String> repositories, final String group, final int concurrency, final boolean ignoreErrors,
+            final BiFunction<String, String, CompletableFuture<? extends List<?>>> listing) {
+        CompletableFuture<List<String>> paths = StringUtils.isEmpty(group)
+                ? CompletableFuture.completedFuture(new ArrayList<>())
+                : service.listGroupProjectsAsync(step.getGitlabUrl(), authToken, group,
+                        step.getTimeout(), step.isDebugMode(), step.isTrustAllCertificates());
+
+        CompletableFuture<Map<String, List<Object>>> result = new CompletableFuture<>();
+        AtomicReference<Future<?>> running = new AtomicReference<>(paths);
+        paths.whenComplete((projects, failure) -> {
+            if (failure != null) {
+                result.completeExceptionally(failure);
+                return;
+            }
+
+            Set<String> all = new LinkedHashSet<>();
+            if (repositories != null) {
+                all.addAll(repositories);
+            }
+            all.addAll(projects);
+            CompletableFuture<List<BatchResult<ArrayList<Object>>>> batch = BatchRunner.run(
+                    new ArrayList<>(all), concurrency, path -> path,
+                    path -> {
+                        int slash = path.lastIndexOf('/');
+                        return listing.apply(path.substring(0, slash), path.substring(slash + 1))
+                                .thenApply(ArrayList<Object>::new);
+                    });
+            running.set(batch);
+            if (result.isDone()) {
+                batch.cancel(true);
+            }
+            batch.whenComplete((results, batchFailure) -> {
+                if (batchFailure != null) {
+                    result.completeExceptionally(batchFailure);
+                } else {
+                    collect(step, context, results, ignoreErrors, result);
+                }
+            });
+        });
+        // Cancelling the step has to cancel the requests in flight as well
+        result.whenComplete((listings, failure) -> {
+            if (failure instanceof CancellationException) {
+                running.get().cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private static void collect(final AbstractStep step, final StepContext context,
+                                final List<BatchResult<ArrayList<Object>>> results, final boolean ignoreErrors,
+                                final CompletableFuture<Map<String, List<Object>>> result) {
+        Map<String, List<Object>> listings = new LinkedHashMap<>();
+        List<String> errors = new ArrayList<>();
+        for (BatchResult<ArrayList<Object>> batchResult : results) {
+            if (batchResult.isSuccess()) {
+                listings.put(batchResult.getKey(), batchResult.getValue());
+            } else {
+                errors.add(batchResult.getKey() + ": " + batchResult.getError());
+            }
+        }
+
+        if (errors.isEmpty()) {
+            result.complete(listings);
+        } else if (ignoreErrors) {
+            log(step, context, "Skipped " + errors.size() + " of " + results.size() + " repositories: " + String.join("; ", errors));
+            result.complete(listings);
+        } else {
+            result.completeExceptionally(new IllegalStateException("Failed for " + errors.size() + " of " + results.size()
+                    + " repositories: " + String.join("; ", errors)));
+        }
+    }
+
+    private static void log(final AbstractStep step, final StepContext context, final String message) {
+        try {
+            TaskListener listener = context.get(TaskListener.class);
+            if (listener != null) {
+                String functionName = step.getDescriptor() == null ? "Gitlab" : step.getDescriptor().getFunctionName();
+                listener.getLogger().println("[" + functionName + "] " + message);
+            }
+        } catch (Exception ex) {
+            // Losing the message must not fail the step
+        }
+    }
+}
@@ -1,18 +1,18 @@
 package com.aagproservices.jenkins.gitlabsteps.step.execution;
 
+import com.aagproservices.jenkins.gitlabsteps.api.FileUpdate;
 import com.aagproservices.jenkins.gitlabsteps.service.ContentService;
 import com.aagproservices.jenkins.gitlabsteps.step.AbstractStepExecution;
 import com.aagproservices.jenkins.gitlabsteps.step.descriptor.UpdateFileStep;
 import hudson.FilePath;
 import org.jenkinsci.plugins.workflow.steps.StepContext;
-import org.json.JSONObject;
 
 /**
  * @author Aleks Gekht
  * @version 0.1.0
  * Execution implementation of the step "createTag".
  */
-public class UpdateFileExecution extends AbstractStepExecution<JSONObject, UpdateFileStep> {
+public class UpdateFileExecution extends AbstractStepExecution<FileUpdate, UpdateFileStep> {
 
     private static final long serialVersionUID = 7220386183041962984L;
 
@@ -44,12 +44,15 @@ public class UpdateFileExecution extends AbstractStepExecution<JSONObject, Updat
     }
 
     @Override
-    protected JSONObject run() throws Exception {
+    protected FileUpdate execute() throws Exception {
         try {
-            FilePath path = getContext().get(FilePath.class);
+            FilePath workspace = getContext().get(FilePath.class);
+            if (workspace == null) {
+                throw new IllegalStateException("The step needs a workspace");
+            }
             return getService(ContentService.class).updateFile(
                     getStep().getGitlabUrl(), retrieveAuthToken(getStep().getAuthToken()),
-                    getStep().getProject(), getStep().getRepoSlug(), getStep().getFileUpdate(), path.getRemote(),
+                    getStep().getProject(), getStep().getRepoSlug(), getStep().getFileUpdate(), workspace, getStep().isSkipUnchanged(),
                     getStep().getTimeout(), getStep().isDebugMode(), getStep().isTrustAllCertificates()
             );
         } catch (Exception e) {
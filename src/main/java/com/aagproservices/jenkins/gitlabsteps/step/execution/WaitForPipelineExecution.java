@@ -0,0 +1,92 @@
+package com.aagproservices.jenkins.gitlabsteps.step.execution;
+
+import com.aagproservices.jenkins.gitlabsteps.api.Pipeline;
+import com.aagproservices.jenkins.gitlabsteps.service.ContentService;
+import com.aagproservices.jenkins.gitlabsteps.step.AbstractAsyncStepExecution;
+import com.aagproservices.jenkins.gitlabsteps.step.descriptor.WaitForPipelineStep;
+import org.apache.commons.lang.StringUtils;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Execution implementation of the step "waitForPipeline". Unlike the other steps it keeps its step across a restart
+ * of Jenkins and starts waiting again, with the full wait timeout.
+ */
+public class WaitForPipelineExecution extends AbstractAsyncStepExecution<Pipeline, WaitForPipelineStep> {
+
+    private static final long serialVersionUID = -6418835020731925519L;
+
+    private static final String SUCCESS = "success";
+
+    private final WaitForPipelineStep waitForPipelineStep;
+
+    /**
+     * Constructor that takes the needed information for the execution of the step.
+     *
+     * @param waitForPipelineStep The step that is going to be executed.
+     * @param context             The step context.
+     */
+    public WaitForPipelineExecution(final WaitForPipelineStep waitForPipelineStep, final StepContext context) {
+        super(waitForPipelineStep, context);
+        this.waitForPipelineStep = waitForPipelineStep;
+    }
+
+    @Override
+    public void validate(final WaitForPipelineStep step) {
+        super.validate(step);
+
+        if (StringUtils.isBlank(step.getRef()) && StringUtils.isBlank(step.getSha()) && step.getId() <= 0) {
+            throw new IllegalStateException("One of ref, sha and id is required");
+        }
+
+        if (StringUtils.isNotBlank(step.getSha()) && step.getId() > 0) {
+            throw new IllegalStateException("Either sha or id can be given, the id stands for the head commit of the merge request");
+        }
+
+        if (step.getWaitTimeout() < 0) {
+            throw new IllegalStateException("Wait timeout must not be negative");
+        }
+    }
+
+    @Override
+    protected CompletableFuture<Pipeline> runAsync() throws Exception {
+        CompletableFuture<Pipeline> waiting = getService(ContentService.class).waitForPipelineAsync(
+                getStep().getGitlabUrl(), retrieveAuthToken(getStep().getAuthToken()),
+                getStep().getProject(), getStep().getRepoSlug(),
+                getStep().getRef(), getStep().getSha(), getStep().getId(), getStep().getWaitTimeout(),
+                getStep().getTimeout(), getStep().isDebugMode(), getStep().isTrustAllCertificates()
+        );
+        CompletableFuture<Pipeline> result = waiting.thenApply(pipeline -> {
+            if (getStep().isPropagate() && !SUCCESS.equals(pipeline.getStatus())) {
+                throw new IllegalStateException("Pipeline " + pipeline.getId() + " is " + pipeline.getStatus() + ": "
+                        + pipeline.getWebUrl());
+            }
+            return pipeline;
+        });
+        result.whenComplete((pipeline, failure) -> {
+            if (failure instanceof CancellationException) {
+                waiting.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void onResume() {
+        // Nothing is lost but the polls, which are shared anyway
+        try {
+            start();
+        } catch (Exception e) {
+            getContext().onFailure(e);
+        }
+    }
+
+    @Override
+    public WaitForPipelineStep getStep() {
+        return waitForPipelineStep;
+    }
+}
@@ -1,5 +1,6 @@
 package com.aagproservices.jenkins.gitlabsteps.util;
 
+import okhttp3.HttpUrl;
 import org.apache.commons.validator.routines.UrlValidator;
 
 import javax.net.ssl.TrustManager;
@@ -8,6 +9,10 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.URL;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * @author Aleks Gekht
@@ -16,6 +21,12 @@ import java.net.URL;
  */
 public final class HttpUtil {
 
+    /**
+     * Resources whose path segment is followed by the id or name of an element.
+     */
+    private static final Set<String> COLLECTIONS = new HashSet<>(Arrays.asList(
+            "projects", "tags", "branches", "files", "merge_requests", "pipelines", "commits", "jobs"));
+
     /**
      * Private constructor.
      */
@@ -57,6 +68,72 @@ public final class HttpUtil {
         }
     }
 
+    /**
+     * Extracts the URL of the next page from a RFC 5988 "Link" header as sent by Gitlab for paginated resources.
+     *
+     * @param linkHeader The value of the "Link" header, may be null.
+     * @return The URL of the next page or null if there is none.
+     */
+    public static String parseNextLink(final String linkHeader) {
+        if (linkHeader == null || linkHeader.isEmpty()) {
+            return null;
+        }
+        for (String link : linkHeader.split(",")) {
+            String[] segments = link.split(";");
+            if (segments.length < 2) {
+                continue;
+            }
+            String url = segments[0].trim();
+            if (!url.startsWith("<") || !url.endsWith(">")) {
+                continue;
+            }
+            for (int i = 1; i < segments.length; i++) {
+                String param = segments[i].trim().replace(" ", "");
+                if (param.equalsIgnoreCase("rel=\"next\"") || param.equalsIgnoreCase("rel=next")) {
+                    return url.substring(1, url.length() - 1);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the endpoint of a Gitlab API URL with the variable path segments replaced by placeholders, e.g.
+     * "projects/:project/merge_requests/:id/merge", so that requests to the same endpoint can be grouped.
+     *
+     * @param url The URL.
+     * @return The endpoint template, relative to "api/v4".
+     */
+    public static String endpointTemplate(final HttpUrl url) {
+        List<String> segments = url.pathSegments();
+        int start = 0;
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if ("api".equals(segments.get(i)) && "v4".equals(segments.get(i + 1))) {
+                start = i + 2;
+                break;
+            }
+        }
+
+        StringBuilder template = new StringBuilder();
+        for (int i = start; i < segments.size(); i++) {
+            String segment = segments.get(i);
+            if (segment.isEmpty()) {
+                continue;
+            }
+            String previous = i > start ? segments.get(i - 1) : null;
+            if ("projects".equals(previous)) {
+                segment = ":project";
+            } else if (COLLECTIONS.contains(previous) || segment.matches("\\d+")) {
+                segment = ":id";
+            }
+            if (template.length() > 0) {
+                template.append('/');
+            }
+            template.append(segment);
+        }
+        return template.toString();
+    }
+
     /**
      * Checks if a given URL is reachable is within a given timeout.
      *
@@ -0,0 +1,30 @@
+package com.aagproservices.jenkins.gitlabsteps.util;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Utility class holding the JSON mapper shared by the whole plugin.
+ */
+public final class JsonUtil {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    /**
+     * Private constructor.
+     */
+    private JsonUtil() {
+    }
+
+    /**
+     * Returns the shared, thread-safe mapper. It must not be reconfigured by callers.
+     *
+     * @return The mapper.
+     */
+    public static ObjectMapper getMapper() {
+        return MAPPER;
+    }
+}
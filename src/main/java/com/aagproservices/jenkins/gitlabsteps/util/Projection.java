@@ -0,0 +1,112 @@
+package com.aagproservices.jenkins.gitlabsteps.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Projection of JSON elements onto a list of fields. Nested attributes are addressed with a dotted path, e.g.
+ * "commit.id". With a single field each element is projected onto the value of that field, otherwise onto a map
+ * from the field paths to their values. Only plain, serializable values are kept.
+ */
+public final class Projection {
+
+    private final List<String> fields;
+    private final List<String> pointers;
+
+    /**
+     * Constructor.
+     *
+     * @param fields The fields to keep, must not be empty.
+     */
+    public Projection(final List<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            throw new IllegalArgumentException("No fields to project onto");
+        }
+        this.fields = Collections.unmodifiableList(new ArrayList<>(fields));
+        this.pointers = new ArrayList<>(fields.size());
+        for (String field : fields) {
+            pointers.add("/" + field.trim().replace("~", "~0").replace("/", "~1").replace('.', '/'));
+        }
+    }
+
+    /**
+     * Returns true if the given field list asks for a projection.
+     *
+     * @param fields The fields, may be null.
+     * @return True if at least one field is given.
+     */
+    public static boolean isRequested(final List<String> fields) {
+        return fields != null && !fields.isEmpty();
+    }
+
+    public List<String> getFields() {
+        return fields;
+    }
+
+    /**
+     * Projects a single element.
+     *
+     * @param node The element.
+     * @return The value of the field if only one field is projected, otherwise a map of the field values.
+     */
+    public Object apply(final JsonNode node) {
+        if (pointers.size() == 1) {
+            return toText(node.at(pointers.get(0)));
+        }
+
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            values.put(fields.get(i), toValue(node.at(pointers.get(i))));
+        }
+        return values;
+    }
+
+    /**
+     * Projects all the elements of the given iterator. Elements are consumed one by one so that only the projected
+     * values are retained.
+     *
+     * @param elements The elements.
+     * @return The projected elements.
+     */
+    public List<Object> apply(final Iterator<JsonNode> elements) {
+        List<Object> result = new ArrayList<>();
+        while (elements.hasNext()) {
+            result.add(apply(elements.next()));
+        }
+        return result;
+    }
+
+    private static String toText(final JsonNode value) {
+        if (value.isMissingNode() || value.isNull()) {
+            return null;
+        }
+        return value.isValueNode() ? value.asText() : value.toString();
+    }
+
+    private static Object toValue(final JsonNode value) {
+        if (value.isMissingNode() || value.isNull()) {
+            return null;
+        }
+        if (value.isBoolean()) {
+            return value.booleanValue();
+        }
+        if (value.isIntegralNumber()) {
+            return value.canConvertToLong() ? (Object) value.longValue() : value.bigIntegerValue();
+        }
+        if (value.isNumber()) {
+            return value.doubleValue();
+        }
+        if (value.isValueNode()) {
+            return value.asText();
+        }
+        return JsonUtil.getMapper().convertValue(value, Object.class);
+    }
+}
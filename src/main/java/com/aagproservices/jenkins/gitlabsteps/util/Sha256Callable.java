@@ -0,0 +1,47 @@
+package com.aagproservices.jenkins.gitlabsteps.util;
+
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * @author Aleks Gekht
+ * @version 0.4.0
+ * Computes the SHA-256 hash of a file where the file is, so that only the hash is transferred from an agent. The hash
+ * is returned as lower case hex string, as sent by Gitlab in the "X-Gitlab-Content-Sha256" header.
+ */
+public final class Sha256Callable extends MasterToSlaveFileCallable<String> {
+
+    private static final long serialVersionUID = 6093215737640811562L;
+
+    @Override
+    public String invoke(final File file, final VirtualChannel channel) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
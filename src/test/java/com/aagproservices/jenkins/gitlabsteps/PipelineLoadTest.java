@@ -0,0 +1,302 @@
+package com.aagproservices.jenkins.gitlabsteps;
+
+import static org.junit.Assert.assertTrue;
+
+import com.aagproservices.jenkins.gitlabsteps.service.GitlabClientRegistry;
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hudson.model.Result;
+import hudson.util.Secret;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.jenkinsci.plugins.plaincredentials.impl.StringCredentialsImpl;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+/**
+ * Load test running many pipelines at once against a mock Gitlab, each calling the main steps. Reports throughput,
+ * threads, connections, file descriptors and heap usage. Only runs with the "load-test" profile
+ * ({@code mvn -P load-test test}); the load is set with system properties:
+ * <ul>
+ * <li>{@code gitlabSteps.loadTest.pipelines}: concurrent pipelines (100)</li>
+ * <li>{@code gitlabSteps.loadTest.latencyMillis}: latency of every Gitlab response (50)</li>
+ * <li>{@code gitlabSteps.loadTest.errorRate}: share of requests answered with a 502 (0.02)</li>
+ * <li>{@code gitlabSteps.loadTest.maxFailureRate}: share of pipelines allowed to fail (0.01)</li>
+ * </ul>
+ *
+ * @author Aleks Gekht
+ *
+ */
+public class PipelineLoadTest {
+
+    private static final String PROPERTY_PREFIX = "gitlabSteps.loadTest";
+    private static final String CREDENTIALS_ID = "gitlab-token";
+    private static final int STEP_TIMEOUT = 60;
+
+    private static final String SCRIPT = ""
+            + "def args = [gitlabUrl: '%1$s', authToken: '" + CREDENTIALS_ID + "', project: 'group', repoSlug: 'repo-%2$d',"
+            + " timeout: " + STEP_TIMEOUT + ", retryDelay: 100]\n"
+            + "gitlabCreateBranch(args + [name: 'feature-%2$d', startPoint: 'main'])\n"
+            + "def tags = gitlabGetTags(args + [maxResults: 50, fields: ['name']])\n"
+            + "def branches = gitlabListBranches(args + [search: 'feature', fields: ['name']])\n"
+            + "def iid = gitlabCreatePullRequest(args + [title: 'Load test %2$d', fromRef: 'feature-%2$d', toRef: 'main'])\n"
+            + "gitlabMergePullRequest(args + [id: iid])\n"
+            + "gitlabCreateTag(args + [name: 'v1.0.%2$d', message: 'Release', startPoint: 'main'])\n"
+            + "echo \"${tags.size()} tags, ${branches.size()} branches\"\n";
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private final int pipelines = Integer.getInteger(PROPERTY_PREFIX + ".pipelines", 100);
+    private final long latencyMillis = Long.getLong(PROPERTY_PREFIX + ".latencyMillis", 50L);
+    private final double errorRate = Double.parseDouble(System.getProperty(PROPERTY_PREFIX + ".errorRate", "0.02"));
+    private final double maxFailureRate = Double.parseDouble(System.getProperty(PROPERTY_PREFIX + ".maxFailureRate", "0.01"));
+
+    private MockWebServer server;
+    private MockGitlab gitlab;
+
+    @BeforeClass
+    public static void enabled() {
+        Assume.assumeTrue("Load test disabled, run it with -P load-test", Boolean.getBoolean(PROPERTY_PREFIX));
+    }
+
+    @Before
+    public void startGitlab() throws IOException {
+        gitlab = new MockGitlab(latencyMillis, errorRate);
+        server = new MockWebServer();
+        server.setDispatcher(gitlab);
+        server.start();
+
+        SystemCredentialsProvider.getInstance().getCredentials().add(new StringCredentialsImpl(
+                CredentialsScope.GLOBAL, CREDENTIALS_ID, "Gitlab token", Secret.fromString("secret")));
+        SystemCredentialsProvider.getInstance().save();
+    }
+
+    @After
+    public void stopGitlab() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void testConcurrentPipelines() throws Exception {
+        HttpUrl gitlabUrl = server.url("/");
+        List<WorkflowJob> jobs = new ArrayList<>();
+        for (int i = 0; i < pipelines; i++) {
+            WorkflowJob job = j.jenkins.createProject(WorkflowJob.class, "load-" + i);
+            job.setDefinition(new CpsFlowDefinition(String.format(SCRIPT, gitlabUrl.toString().replaceAll("/$", ""), i), false));
+            jobs.add(job);
+        }
+
+        Sampler sampler = new Sampler(gitlabUrl);
+        sampler.start();
+        long started = System.nanoTime();
+        List<Future<WorkflowRun>> runs = new ArrayList<>();
+        for (WorkflowJob job : jobs) {
+            runs.add(job.scheduleBuild2(0));
+        }
+
+        int failed = 0;
+        for (Future<WorkflowRun> run : runs) {
+            WorkflowRun build = run.get();
+            if (build.getResult() != Result.SUCCESS) {
+                failed++;
+                System.out.println(build.getFullDisplayName() + ": " + build.getResult() + "\n" + build.getLog());
+            }
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        sampler.stop();
+
+        System.out.println(String.format("Load test: %d pipelines (latency %d ms, error rate %.2f) in %.1f s%n"
+                        + "  throughput:  %.1f pipelines/s, %.1f requests/s (%d requests, %d errors injected)%n"
+                        + "  failed:      %d pipelines%n"
+                        + "  threads:     %d before, %d peak%n"
+                        + "  connections: %d peak pooled, %d accepted by Gitlab%n"
+                        + "  files:       %s peak open file descriptors%n"
+                        + "  heap:        %d MB before, %d MB peak",
+                pipelines, latencyMillis, errorRate, seconds,
+                pipelines / seconds, server.getRequestCount() / seconds, server.getRequestCount(), gitlab.errors.get(),
+                failed,
+                sampler.threadsBefore, sampler.peakThreads,
+                sampler.peakConnections.get(), gitlab.connections.get(),
+                sampler.peakFileDescriptors.get() < 0 ? "n/a" : Long.toString(sampler.peakFileDescriptors.get()),
+                sampler.heapBefore >> 20, sampler.peakHeap.get() >> 20));
+
+        assertTrue(failed + " of " + pipelines + " pipelines failed", failed <= pipelines * maxFailureRate);
+    }
+
+    /**
+     * Samples the resource usage of the controller while the pipelines run.
+     */
+    private static final class Sampler {
+        private final HttpUrl gitlabUrl;
+        private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        private final AtomicLong peakHeap = new AtomicLong();
+        private final AtomicLong peakConnections = new AtomicLong();
+        private final AtomicLong peakFileDescriptors = new AtomicLong(-1);
+        private int threadsBefore;
+        private long heapBefore;
+        private int peakThreads;
+
+        private Sampler(final HttpUrl gitlabUrl) {
+            this.gitlabUrl = gitlabUrl;
+        }
+
+        private void start() {
+            threadsBefore = threads.getThreadCount();
+            heapBefore = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            threads.resetPeakThreadCount();
+            executor.scheduleAtFixedRate(this::sample, 0, 100, TimeUnit.MILLISECONDS);
+        }
+
+        private void stop() throws InterruptedException {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+            peakThreads = threads.getPeakThreadCount();
+        }
+
+        private void sample() {
+            peakHeap.accumulateAndGet(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(), Math::max);
+            // All the clients share one connection pool
+            peakConnections.accumulateAndGet(GitlabClientRegistry.getInstance()
+                    .getClient(gitlabUrl, STEP_TIMEOUT, false).connectionPool().connectionCount(), Math::max);
+            OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+            if (os instanceof com.sun.management.UnixOperatingSystemMXBean) {
+                peakFileDescriptors.accumulateAndGet(
+                        ((com.sun.management.UnixOperatingSystemMXBean) os).getOpenFileDescriptorCount(), Math::max);
+            }
+        }
+    }
+
+    /**
+     * Answers the requests of the steps like Gitlab would, after the configured latency. A share of the requests
+     * fails with a 502 before taking effect.
+     */
+    private static final class MockGitlab extends Dispatcher {
+        private static final ObjectMapper MAPPER = new ObjectMapper();
+        private static final String API_PREFIX = "/api/v4/projects/";
+
+        private final long latencyMillis;
+        private final double errorRate;
+        private final AtomicInteger errors = new AtomicInteger();
+        private final AtomicInteger nextId = new AtomicInteger(1);
+        private final AtomicInteger connections = new AtomicInteger();
+        private final ConcurrentHashMap<String, Integer> projectIds = new ConcurrentHashMap<>();
+        private final Set<String> created = ConcurrentHashMap.newKeySet();
+
+        private MockGitlab(final long latencyMillis, final double errorRate) {
+            this.latencyMillis = latencyMillis;
+            this.errorRate = errorRate;
+        }
+
+        @Override
+        public MockResponse dispatch(final RecordedRequest request) throws InterruptedException {
+            if (request.getSequenceNumber() == 0) {
+                // First request on its connection
+                connections.incrementAndGet();
+            }
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                errors.incrementAndGet();
+                return new MockResponse().setResponseCode(502).setBody("Bad Gateway");
+            }
+
+            String path = request.getPath();
+            int query = path.indexOf('?');
+            path = query < 0 ? path : path.substring(0, query);
+            if (!path.startsWith(API_PREFIX)) {
+                return new MockResponse().setResponseCode(404);
+            }
+            String[] segments = path.substring(API_PREFIX.length()).split("/", 2);
+            // Projects get addressed by path until the steps know their id
+            String project = segments[0].matches("\\d+") ? segments[0]
+                    : Integer.toString(projectIds.computeIfAbsent(segments[0], key -> nextId.getAndIncrement()));
+            String resource = segments.length > 1 ? segments[1] : "";
+            String method = request.getMethod();
+            try {
+                return respond(method, project, resource, request);
+            } catch (IOException e) {
+                return new MockResponse().setResponseCode(400).setBody(e.toString());
+            }
+        }
+
+        private MockResponse respond(final String method, final String project, final String resource,
+                                     final RecordedRequest request) throws IOException {
+            if (resource.isEmpty()) {
+                return json(200, "{\"id\":" + project + "}");
+            }
+            switch (method + " " + resource.replaceAll("/[^/]+$", "/*")) {
+                case "POST repository/branches":
+                case "POST repository/tags": {
+                    JsonNode body = MAPPER.readTree(request.getBody().readUtf8());
+                    String name = body.path(resource.endsWith("branches") ? "branch" : "tag_name").asText();
+                    created.add(project + "/" + resource + "/" + name);
+                    return json(201, "{\"name\":\"" + name + "\",\"target\":\"0123456789abcdef\"}");
+                }
+                case "GET repository/branches/*":
+                case "GET repository/tags/*":
+                    return created.contains(project + "/" + resource)
+                            ? json(200, "{\"name\":\"" + resource.substring(resource.lastIndexOf('/') + 1) + "\"}")
+                            : json(404, "{\"message\":\"404 Not found\"}");
+                case "GET repository/branches":
+                case "GET repository/tags":
+                    return json(200, list(20));
+                case "POST merge_requests":
+                    return json(201, "{\"id\":1,\"iid\":1,\"state\":\"opened\"}");
+                case "GET merge_requests":
+                    return json(200, "[]");
+                case "GET merge_requests/*":
+                    return json(200, "{\"id\":1,\"iid\":1,\"state\":\""
+                            + (created.contains(project + "/merged") ? "merged" : "opened") + "\"}");
+                case "PUT merge_requests/1/*":
+                    created.add(project + "/merged");
+                    return json(200, "{\"id\":1,\"iid\":1,\"state\":\"merged\"}");
+                default:
+                    return json(404, "{\"message\":\"404 Not found\"}");
+            }
+        }
+
+        private static String list(final int size) {
+            StringBuilder list = new StringBuilder("[");
+            for (int i = 0; i < size; i++) {
+                list.append(i == 0 ? "" : ",").append("{\"name\":\"feature-").append(i)
+                        .append("\",\"commit\":{\"id\":\"0123456789abcdef\"}}");
+            }
+            return list.append(']').toString();
+        }
+
+        private static MockResponse json(final int code, final String body) {
+            return new MockResponse().setResponseCode(code).addHeader("Content-Type", "application/json").setBody(body);
+        }
+    }
+}
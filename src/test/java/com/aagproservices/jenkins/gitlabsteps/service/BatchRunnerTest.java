@@ -0,0 +1,120 @@
+package com.aagproservices.jenkins.gitlabsteps.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.aagproservices.jenkins.gitlabsteps.api.BatchResult;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.Test;
+
+/**
+ * Tests of the batch runner: the bound on the items in flight, the order of the results, failing items and the
+ * cancellation of a batch.
+ *
+ * @author Aleks Gekht
+ *
+ */
+public class BatchRunnerTest {
+
+    private final Map<Integer, CompletableFuture<String>> started = new ConcurrentHashMap<>();
+
+    @Test
+    public void testResultsInOrderOfItems() throws Exception {
+        CompletableFuture<List<BatchResult<String>>> batch = run(items(6), 3);
+        assertEquals(3, started.size());
+
+        // Completing in reverse order starts the next items one by one
+        started.get(2).complete("two");
+        assertEquals(4, started.size());
+        started.get(3).complete("three");
+        started.get(1).complete("one");
+        started.get(0).complete("zero");
+        assertEquals(6, started.size());
+        started.get(5).complete("five");
+        assertFalse(batch.isDone());
+        started.get(4).complete("four");
+
+        List<BatchResult<String>> results = batch.get();
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            assertTrue(results.get(i).isSuccess());
+            assertEquals("item" + i, results.get(i).getKey());
+            values.add(results.get(i).getValue());
+        }
+        assertEquals(Arrays.asList("zero", "one", "two", "three", "four", "five"), values);
+    }
+
+    @Test
+    public void testFailureDoesNotAbortBatch() throws Exception {
+        CompletableFuture<List<BatchResult<String>>> batch = BatchRunner.run(items(3), 0, item -> "item" + item, item -> {
+            if (item == 1) {
+                throw new IllegalStateException("Not started");
+            }
+            CompletableFuture<String> future = new CompletableFuture<>();
+            if (item == 0) {
+                future.completeExceptionally(new CompletionException(new IllegalArgumentException("Broken")));
+            } else {
+                future.complete("ok");
+            }
+            return future;
+        });
+
+        List<BatchResult<String>> results = batch.get();
+        assertFalse(results.get(0).isSuccess());
+        assertEquals("Broken", results.get(0).getError());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("Not started", results.get(1).getError());
+        assertTrue(results.get(2).isSuccess());
+        assertEquals("ok", results.get(2).getValue());
+    }
+
+    @Test
+    public void testCancelStopsBatch() {
+        CompletableFuture<List<BatchResult<String>>> batch = run(items(5), 2);
+        started.get(0).complete("zero");
+        assertEquals(3, started.size());
+
+        assertTrue(batch.cancel(true));
+        // The items in flight are cancelled, the remaining ones never start
+        assertTrue(started.get(1).isCancelled());
+        assertTrue(started.get(2).isCancelled());
+        assertEquals(3, started.size());
+        assertTrue(batch.isCancelled());
+    }
+
+    @Test
+    public void testDefaultConcurrency() {
+        run(items(20), 0);
+        assertEquals(BatchRunner.DEFAULT_CONCURRENCY, started.size());
+    }
+
+    @Test
+    public void testEmptyBatch() throws Exception {
+        assertTrue(run(Collections.<Integer>emptyList(), 2).get().isEmpty());
+        assertTrue(started.isEmpty());
+    }
+
+    private CompletableFuture<List<BatchResult<String>>> run(final List<Integer> items, final int concurrency) {
+        return BatchRunner.run(items, concurrency, item -> "item" + item, item -> {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            started.put(item, future);
+            return future;
+        });
+    }
+
+    private static List<Integer> items(final int count) {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(i);
+        }
+        return items;
+    }
+}
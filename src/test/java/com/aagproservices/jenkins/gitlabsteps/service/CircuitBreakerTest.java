@@ -0,0 +1,177 @@
+package com.aagproservices.jenkins.gitlabsteps.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.aagproservices.jenkins.gitlabsteps.GitlabStepsConfiguration;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of the circuit breaker: the sliding window of outcomes, the minimum number of requests before it opens, the
+ * cool-down and the single probe request while half-open.
+ *
+ * @author Aleks Gekht
+ *
+ */
+public class CircuitBreakerTest {
+
+    private static final long COOL_DOWN_MILLIS = 1_000;
+
+    private final GitlabStepsConfiguration configuration = GitlabStepsConfiguration.defaults();
+    private final CircuitBreaker breaker = new CircuitBreaker("http://gitlab.test:80", () -> configuration);
+
+    @Before
+    public void setUp() {
+        configuration.setCircuitBreakerThreshold(50);
+        configuration.setCircuitBreakerWindowSize(10);
+        configuration.setCircuitBreakerCoolDownSeconds(1);
+    }
+
+    @Test
+    public void testStaysClosedBelowMinimumCalls() {
+        // Half of the window must be recorded before the failure rate counts
+        for (int i = 0; i < 4; i++) {
+            fail(breaker.tryAcquire());
+        }
+        assertEquals(100, breaker.getFailureRate());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        fail(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertNull(breaker.tryAcquire());
+    }
+
+    @Test
+    public void testWindowRollsOver() {
+        for (int i = 0; i < 10; i++) {
+            breaker.onSuccess(breaker.tryAcquire());
+        }
+        assertEquals(10, breaker.getRecorded());
+        for (int i = 0; i < 4; i++) {
+            fail(breaker.tryAcquire());
+        }
+        // The failures replaced the oldest successes, the window keeps its size
+        assertEquals(10, breaker.getRecorded());
+        assertEquals(40, breaker.getFailureRate());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        fail(breaker.tryAcquire());
+        assertEquals(50, breaker.getFailureRate());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testDisabledWithoutThreshold() {
+        configuration.setCircuitBreakerThreshold(0);
+        for (int i = 0; i < 20; i++) {
+            fail(breaker.tryAcquire());
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertNotNull(breaker.tryAcquire());
+    }
+
+    @Test
+    public void testCoolDown() throws InterruptedException {
+        open();
+        assertNull(breaker.tryAcquire());
+        assertTrue(breaker.getRemainingCoolDownSeconds() > 0);
+
+        Thread.sleep(COOL_DOWN_MILLIS + 100);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertEquals(0, breaker.getRemainingCoolDownSeconds());
+        CircuitBreaker.Permit probe = breaker.tryAcquire();
+        assertNotNull(probe);
+        // Only a single probe at a time
+        assertNull(breaker.tryAcquire());
+    }
+
+    @Test
+    public void testSingleProbeWhileHalfOpen() throws InterruptedException {
+        open();
+        Thread.sleep(COOL_DOWN_MILLIS + 100);
+
+        CircuitBreaker.Permit probe = breaker.tryAcquire();
+        assertNotNull(probe);
+        assertNull(breaker.tryAcquire());
+        assertNull(breaker.tryAcquire());
+
+        breaker.onSuccess(probe);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getRecorded());
+        assertNotNull(breaker.tryAcquire());
+        assertNotNull(breaker.tryAcquire());
+    }
+
+    @Test
+    public void testFailedProbeOpensAgain() throws InterruptedException {
+        open();
+        Thread.sleep(COOL_DOWN_MILLIS + 100);
+
+        breaker.onFailure(breaker.tryAcquire(), "502 Bad Gateway");
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertNull(breaker.tryAcquire());
+        assertEquals("502 Bad Gateway", breaker.getLastFailure());
+    }
+
+    @Test
+    public void testOnlyProbeClosesBreaker() throws InterruptedException {
+        // Sent while the breaker was closed, answered once it is half-open
+        CircuitBreaker.Permit late = breaker.tryAcquire();
+        open();
+        Thread.sleep(COOL_DOWN_MILLIS + 100);
+
+        CircuitBreaker.Permit probe = breaker.tryAcquire();
+        breaker.onSuccess(late);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertNull(breaker.tryAcquire());
+        breaker.onFailure(late, "503 Service Unavailable");
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        breaker.onSuccess(probe);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testCancelReleasesProbe() throws InterruptedException {
+        open();
+        Thread.sleep(COOL_DOWN_MILLIS + 100);
+
+        CircuitBreaker.Permit probe = breaker.tryAcquire();
+        assertNull(breaker.tryAcquire());
+        breaker.onCancel(probe);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        CircuitBreaker.Permit next = breaker.tryAcquire();
+        assertNotNull(next);
+        assertNull(breaker.tryAcquire());
+        // The outcome of the cancelled probe no longer counts
+        breaker.onSuccess(probe);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onSuccess(next);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testReset() {
+        open();
+        breaker.reset();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getRecorded());
+        assertNull(breaker.getLastFailure());
+        assertNotNull(breaker.tryAcquire());
+    }
+
+    private void open() {
+        for (int i = 0; i < 5; i++) {
+            fail(breaker.tryAcquire());
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private void fail(final CircuitBreaker.Permit permit) {
+        breaker.onFailure(permit, "500 Internal Server Error");
+    }
+}
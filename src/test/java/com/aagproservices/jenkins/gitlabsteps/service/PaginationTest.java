@@ -0,0 +1,60 @@
+package com.aagproservices.jenkins.gitlabsteps.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import okhttp3.Headers;
+import okhttp3.Request;
+import org.junit.Test;
+
+/**
+ * Tests of the pagination: the "Link" header is only followed to the origin of the request, otherwise the page
+ * number of the "X-Next-Page" header is used.
+ *
+ * @author Aleks Gekht
+ *
+ */
+public class PaginationTest {
+
+    private static final String FIRST_PAGE = "https://gitlab.example.com/api/v4/projects/8/repository/tags?per_page=3";
+
+    private final Request request = new Request.Builder().url(FIRST_PAGE).header("Authorization", "Bearer token").build();
+
+    @Test
+    public void testLinkOnSameOriginFollowed() {
+        Request next = BaseService.nextPage(request, headers(
+                "<https://gitlab.example.com/api/v4/projects/8/repository/tags?page=2&per_page=3>; rel=\"next\"", "5"));
+        assertEquals("https://gitlab.example.com/api/v4/projects/8/repository/tags?page=2&per_page=3", next.url().toString());
+        assertEquals("Bearer token", next.header("Authorization"));
+    }
+
+    @Test
+    public void testLinkToOtherHostIgnored() {
+        Request next = BaseService.nextPage(request, headers(
+                "<https://attacker.example.com/api/v4/projects/8/repository/tags?page=2>; rel=\"next\"", "2"));
+        assertEquals("https://gitlab.example.com/api/v4/projects/8/repository/tags?per_page=3&page=2", next.url().toString());
+    }
+
+    @Test
+    public void testLinkWithOtherSchemeOrPortIgnored() {
+        Request next = BaseService.nextPage(request, headers(
+                "<http://gitlab.example.com/api/v4/projects/8/repository/tags?page=2>; rel=\"next\"", "2"));
+        assertEquals("https://gitlab.example.com/api/v4/projects/8/repository/tags?per_page=3&page=2", next.url().toString());
+
+        next = BaseService.nextPage(request, headers(
+                "<https://gitlab.example.com:8443/api/v4/projects/8/repository/tags?page=2>; rel=\"next\"", "2"));
+        assertEquals("https://gitlab.example.com/api/v4/projects/8/repository/tags?per_page=3&page=2", next.url().toString());
+    }
+
+    @Test
+    public void testLastPage() {
+        // A foreign link without a page number ends the listing
+        assertNull(BaseService.nextPage(request, headers(
+                "<https://attacker.example.com/api/v4/projects/8/repository/tags?page=2>; rel=\"next\"", "")));
+        assertNull(BaseService.nextPage(request, new Headers.Builder().build()));
+    }
+
+    private static Headers headers(final String link, final String nextPage) {
+        return new Headers.Builder().add("Link", link).add("X-Next-Page", nextPage).build();
+    }
+}
@@ -0,0 +1,203 @@
+package com.aagproservices.jenkins.gitlabsteps.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.aagproservices.jenkins.gitlabsteps.GitlabStepsConfiguration;
+import com.aagproservices.jenkins.gitlabsteps.api.Pipeline;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of the pipeline watcher: the cursor of the change feed, the order in which the lookup of a waiter and the
+ * feed answer, the timeout of a waiter and the ticks, which only run while builds are waiting.
+ *
+ * @author Aleks Gekht
+ *
+ */
+public class PipelineWatcherTest {
+
+    private static final Instant NOW = Instant.parse("2026-10-05T10:00:00Z");
+
+    private final GitlabStepsConfiguration configuration = GitlabStepsConfiguration.defaults();
+    private final PipelineWatcher watcher = new PipelineWatcher(() -> configuration);
+    private final Map<String, Queue<MockResponse>> lookups = new ConcurrentHashMap<>();
+    private final Queue<MockResponse> feed = new ConcurrentLinkedQueue<>();
+    private final List<String> feedCursors = Collections.synchronizedList(new ArrayList<>());
+    private final List<CompletableFuture<Pipeline>> waiters = new ArrayList<>();
+    private volatile CountDownLatch fed;
+    private volatile CountDownLatch lookupHeld;
+    private MockWebServer server;
+    private String gitlabUrl;
+
+    @Before
+    public void startGitlab() throws IOException {
+        configuration.setPipelinePollSeconds(1);
+        ProjectIdResolver.getInstance().reset();
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(final RecordedRequest request) throws InterruptedException {
+                HttpUrl url = HttpUrl.parse("http://gitlab" + request.getPath());
+                if (!url.encodedPath().endsWith("/pipelines")) {
+                    return json("{\"id\":9}", NOW);
+                }
+                if ("updated_at".equals(url.queryParameter("order_by"))) {
+                    feedCursors.add(url.queryParameter("updated_after"));
+                    MockResponse page = feed.poll();
+                    if (page != null && fed != null) {
+                        fed.countDown();
+                    }
+                    return page == null ? json("[]", Instant.now()) : page;
+                }
+
+                String ref = url.queryParameter("ref");
+                if (lookupHeld != null && "main".equals(ref)) {
+                    // Answers once the feed handed out a newer state
+                    lookupHeld.countDown();
+                    fed.await(10, TimeUnit.SECONDS);
+                    Thread.sleep(300);
+                }
+                Queue<MockResponse> answers = lookups.get(ref);
+                MockResponse answer = answers == null ? null : answers.poll();
+                return answer == null ? json("[]", NOW) : answer;
+            }
+        });
+        server.start();
+        gitlabUrl = server.url("/").toString();
+    }
+
+    @After
+    public void stopGitlab() throws IOException {
+        waiters.forEach(waiter -> waiter.cancel(true));
+        server.shutdown();
+        ProjectIdResolver.getInstance().reset();
+    }
+
+    @Test
+    public void testFullPageContinuedFromLastPipeline() throws Exception {
+        lookups.put("main", queue(json("[" + pipeline(1, "main", "running", NOW.minusSeconds(60)) + "]", NOW)));
+        StringBuilder full = new StringBuilder("[");
+        for (int i = 0; i < BaseService.MAX_PAGE_SIZE; i++) {
+            full.append(i == 0 ? "" : ",").append(pipeline(100 + i, "other", "running", NOW.plusSeconds(i + 1)));
+        }
+        feed.add(json(full.append("]").toString(), NOW.plusSeconds(200)));
+        feed.add(json("[" + pipeline(1, "main", "success", NOW.plusSeconds(150)) + "]", NOW.plusSeconds(200)));
+
+        Pipeline pipeline = watch("main", 0).get(10, TimeUnit.SECONDS);
+        assertEquals("success", pipeline.getStatus());
+
+        // The feed starts shortly before the lookup and goes on right after the last pipeline of the full page
+        assertEquals("2026-10-05T09:59:50Z", feedCursors.get(0));
+        assertEquals("2026-10-05T10:01:39.999Z", feedCursors.get(1));
+    }
+
+    @Test
+    public void testLookupOlderThanFeed() throws Exception {
+        // The first waiter starts the change feed
+        watch("other", 0);
+        awaitFeed();
+
+        fed = new CountDownLatch(1);
+        lookupHeld = new CountDownLatch(1);
+        lookups.put("main", queue(json("[" + pipeline(5, "main", "running", NOW.plusSeconds(10)) + "]", NOW)));
+        CompletableFuture<Pipeline> waiter = watch("main", 0);
+        assertTrue(lookupHeld.await(10, TimeUnit.SECONDS));
+        feed.add(json("[" + pipeline(5, "main", "success", NOW.plusSeconds(20)) + "]", Instant.now()));
+
+        // The late answer of the lookup does not replace the newer state
+        assertEquals("success", waiter.get(10, TimeUnit.SECONDS).getStatus());
+    }
+
+    @Test
+    public void testWaiterTimesOut() throws Exception {
+        lookups.put("main", queue(json("[" + pipeline(1, "main", "running", NOW) + "]", NOW)));
+        CompletableFuture<Pipeline> waiter = watch("main", 200);
+        try {
+            waiter.get(10, TimeUnit.SECONDS);
+            fail("Expected the waiter to time out");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            assertEquals("Timed out waiting for the pipeline of main in group/repo on " + gitlabUrl
+                    + " (pipeline 1 is running)", e.getCause().getMessage());
+        }
+        assertEquals(0, watcher.getWaiting());
+        assertFalse(watcher.isTicking());
+    }
+
+    @Test
+    public void testTickerStopsWithLastWaiter() throws Exception {
+        CompletableFuture<Pipeline> first = watch("a", 0);
+        CompletableFuture<Pipeline> second = watch("b", 0);
+        assertEquals(2, watcher.getWaiting());
+        assertTrue(watcher.isTicking());
+        awaitFeed();
+
+        first.cancel(true);
+        assertEquals(1, watcher.getWaiting());
+        assertTrue(watcher.isTicking());
+        second.cancel(true);
+        assertEquals(0, watcher.getWaiting());
+        assertFalse(watcher.isTicking());
+
+        // Nothing is polled any more
+        int requests = server.getRequestCount();
+        Thread.sleep(1500);
+        assertEquals(requests, server.getRequestCount());
+    }
+
+    private CompletableFuture<Pipeline> watch(final String ref, final long timeoutMillis) {
+        CompletableFuture<Pipeline> waiter = watcher.watch(gitlabUrl, "token", "group", "repo", ref, null, timeoutMillis,
+                10, false, false);
+        waiters.add(waiter);
+        return waiter;
+    }
+
+    private void awaitFeed() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (feedCursors.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(feedCursors.isEmpty());
+    }
+
+    private static Queue<MockResponse> queue(final MockResponse... responses) {
+        Queue<MockResponse> queue = new ConcurrentLinkedQueue<>();
+        Collections.addAll(queue, responses);
+        return queue;
+    }
+
+    private static String pipeline(final long id, final String ref, final String status, final Instant updatedAt) {
+        return "{\"id\":" + id + ",\"ref\":\"" + ref + "\",\"sha\":\"abc\",\"status\":\"" + status
+                + "\",\"updated_at\":\"" + updatedAt + "\"}";
+    }
+
+    private static MockResponse json(final String body, final Instant date) {
+        return new MockResponse().setResponseCode(200).setHeader("Content-Type", "application/json")
+                .setHeader("Date", DateTimeFormatter.RFC_1123_DATE_TIME.format(date.atOffset(ZoneOffset.UTC)))
+                .setBody(body);
+    }
+}
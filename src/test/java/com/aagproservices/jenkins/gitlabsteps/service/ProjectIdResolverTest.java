@@ -0,0 +1,141 @@
+package com.aagproservices.jenkins.gitlabsteps.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.aagproservices.jenkins.gitlabsteps.api.Branch;
+import com.aagproservices.jenkins.gitlabsteps.api.Tag;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.ws.rs.HttpMethod;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of the requests addressing a project by its numeric id: a missing resource costs a single request, only a
+ * missing project makes the request get sent again by path.
+ *
+ * @author Aleks Gekht
+ *
+ */
+public class ProjectIdResolverTest {
+
+    private static final String PROJECT = "/api/v4/projects/group%2Frepo";
+
+    private final AtomicLong projectId = new AtomicLong(42);
+    private MockWebServer server;
+    private String gitlabUrl;
+    private ContentService service;
+
+    @Before
+    public void startGitlab() throws IOException {
+        ProjectIdResolver.getInstance().reset();
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(final RecordedRequest request) {
+                String path = request.getPath();
+                String byId = "/api/v4/projects/" + projectId.get();
+                if (path.equals(PROJECT)) {
+                    return json(200, "{\"id\":" + projectId.get() + "}");
+                }
+                if (path.startsWith(byId + "/repository/branches/main") || path.startsWith(PROJECT + "/repository/branches/main")) {
+                    return json(200, "{\"name\":\"main\"}");
+                }
+                if (path.startsWith(byId + "/") || path.startsWith(PROJECT + "/")) {
+                    return json(404, "{\"message\":\"404 Not found\"}");
+                }
+                return json(404, "{\"message\":\"404 Project Not Found\"}");
+            }
+        });
+        server.start();
+        gitlabUrl = server.url("/").toString();
+        service = new ContentService();
+    }
+
+    @After
+    public void stopGitlab() throws IOException {
+        server.shutdown();
+        ProjectIdResolver.getInstance().reset();
+    }
+
+    @Test
+    public void testMissingBranchCostsOneRequest() throws Exception {
+        resolveId();
+
+        int before = server.getRequestCount();
+        try {
+            service.checkDeleteBranchAsync(gitlabUrl, "token", "group", "repo", "missing", 10, false, false).get(10, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            assertEquals("Branch missing not found", e.getCause().getMessage());
+        }
+        assertEquals(1, server.getRequestCount() - before);
+    }
+
+    @Test
+    public void testMissingTagCostsOneRequest() throws Exception {
+        resolveId();
+
+        int before = server.getRequestCount();
+        Tag tag = service.<Tag>findAsync(service.buildRequest(gitlabUrl, "token", "group", "repo", "repository/tags/v9", HttpMethod.GET, null, null),
+                BaseService.MAPPER.constructType(Tag.class), 10, false, false).get(10, TimeUnit.SECONDS);
+        assertNull(tag);
+        assertEquals(1, server.getRequestCount() - before);
+    }
+
+    @Test
+    public void testMissingFileChecksIdOnce() throws Exception {
+        resolveId();
+
+        int before = server.getRequestCount();
+        assertFalse(service.fileHeadAsync(gitlabUrl, "token", "group", "repo", "a.txt", "main", 10, false, false)
+                .get(10, TimeUnit.SECONDS).exists());
+        // The HEAD answer plus the check of the id
+        assertEquals(2, server.getRequestCount() - before);
+
+        before = server.getRequestCount();
+        assertFalse(service.fileHeadAsync(gitlabUrl, "token", "group", "repo", "b.txt", "main", 10, false, false)
+                .get(10, TimeUnit.SECONDS).exists());
+        assertEquals(1, server.getRequestCount() - before);
+    }
+
+    @Test
+    public void testStaleIdFallsBackToPath() throws Exception {
+        resolveId();
+        // The project was deleted and created again under the same path
+        projectId.set(43);
+
+        Branch branch = service.<Branch>findAsync(service.buildRequest(gitlabUrl, "token", "group", "repo", "repository/branches/main", HttpMethod.GET, null, null),
+                BaseService.MAPPER.constructType(Branch.class), 10, false, false).get(10, TimeUnit.SECONDS);
+        assertNotNull(branch);
+        assertEquals("main", branch.getName());
+        assertNull(ProjectIdResolver.getInstance().getId(new RequestTarget(gitlabUrl, "group/repo")));
+    }
+
+    /**
+     * Sends a first request, which makes the id of the project get looked up in the background, and waits for it.
+     */
+    private void resolveId() throws Exception {
+        service.checkDeleteBranchAsync(gitlabUrl, "token", "group", "repo", "main", 10, false, false).get(10, TimeUnit.SECONDS);
+        RequestTarget target = new RequestTarget(gitlabUrl, "group/repo");
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (ProjectIdResolver.getInstance().getId(target) == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(ProjectIdResolver.getInstance().getId(target) != null);
+    }
+
+    private static MockResponse json(final int code, final String body) {
+        return new MockResponse().setResponseCode(code).addHeader("Content-Type", "application/json").setBody(body);
+    }
+}
@@ -0,0 +1,230 @@
+package com.aagproservices.jenkins.gitlabsteps.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.Test;
+
+/**
+ * Tests of the throttling of the requests per host: the token bucket following the "RateLimit-*" headers, the pauses
+ * on 429 and 503 responses, the order in which queued requests are sent, the turns the jobs take and the number of
+ * times a rate limited request is queued again.
+ *
+ * @author Aleks Gekht
+ *
+ */
+public class RateLimitSchedulerTest {
+
+    private static final long WAIT_MILLIS = 10_000;
+
+    private final RateLimitScheduler scheduler = RateLimitScheduler.getInstance();
+    private final List<Integer> sent = Collections.synchronizedList(new ArrayList<>());
+    private int submitted;
+
+    @Test
+    public void testUnlimitedWithoutHeaders() {
+        HttpUrl url = host("unlimited");
+        submit(url, 20);
+        // Nothing to wait for, every request is sent right away on the calling thread
+        assertEquals(20, sent.size());
+    }
+
+    @Test
+    public void testQuotaIsSpreadUntilReset() throws InterruptedException {
+        HttpUrl url = host("quota");
+        submit(url, 1);
+        long resetInSeconds = 2;
+        assertFalse(scheduler.onResponse(url, response(url, 200, new Headers.Builder()
+                .add("RateLimit-Remaining", "10")
+                .add("RateLimit-Reset", String.valueOf(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + resetInSeconds))
+                .build())));
+
+        submit(url, 30);
+        // The burst is capped at a second's worth of the remaining quota
+        int burst = sent.size() - 1;
+        assertTrue("Sent right away: " + burst, burst >= 1 && burst <= 10);
+
+        awaitSent(31);
+        assertInOrder(31);
+    }
+
+    @Test
+    public void testNoRemainingQuotaPausesUntilReset() throws InterruptedException {
+        HttpUrl url = host("exhausted");
+        submit(url, 1);
+        long reset = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + 2;
+        scheduler.onResponse(url, response(url, 200, new Headers.Builder()
+                .add("RateLimit-Remaining", "0")
+                .add("RateLimit-Reset", String.valueOf(reset))
+                .build()));
+
+        submit(url, 3);
+        assertEquals(1, sent.size());
+        awaitSent(4);
+        assertTrue(System.currentTimeMillis() >= TimeUnit.SECONDS.toMillis(reset) - 50);
+        assertInOrder(4);
+    }
+
+    @Test
+    public void testTooManyRequestsPausesForRetryAfter() throws InterruptedException {
+        HttpUrl url = host("retry-after");
+        submit(url, 1);
+        long paused = System.nanoTime();
+        assertTrue(scheduler.onResponse(url, response(url, 429, Headers.of("Retry-After", "1"))));
+
+        submit(url, 5);
+        assertEquals(1, sent.size());
+        awaitSent(6);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - paused) >= 900);
+        assertInOrder(6);
+    }
+
+    @Test
+    public void testJobsTakeTurns() throws InterruptedException {
+        HttpUrl url = host("fair");
+        submit(url, 1);
+        scheduler.onResponse(url, response(url, 200, new Headers.Builder()
+                .add("RateLimit-Remaining", "20")
+                .add("RateLimit-Reset", String.valueOf(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + 2))
+                .build()));
+
+        // A batch of one job queues far more requests than the host accepts in a second
+        submit(url, "batch", 100);
+        int burst = sent.size();
+        int single = submitted;
+        submit(url, "other", 1);
+
+        // The request of the other job is sent with the next token rather than after the backlog
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (!sent.contains(single) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        int position = sent.indexOf(single);
+        assertTrue("Sent at " + position + " after a burst of " + burst, position >= 0 && position <= burst + 1);
+        assertTrue(sent.size() < 50);
+    }
+
+    @Test
+    public void testServiceUnavailable() throws InterruptedException {
+        HttpUrl url = host("unavailable");
+        submit(url, 1);
+        // An outage is not throttling, the request is not queued again
+        assertFalse(scheduler.onResponse(url, response(url, 503, Headers.of())));
+        submit(url, 1);
+        assertEquals(2, sent.size());
+
+        assertTrue(scheduler.onResponse(url, response(url, 503, Headers.of("Retry-After", "1"))));
+        submit(url, 1);
+        assertEquals(2, sent.size());
+        awaitSent(3);
+    }
+
+    @Test
+    public void testRateLimitedRequestIsQueuedAgain() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        MockWebServer server = gitlab(attempts, 2);
+        try {
+            new ContentService().checkDeleteBranchAsync(server.url("/").toString(), "token", "group", "repo", "main",
+                    10, false, false).get(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            assertEquals(3, attempts.get());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testRateLimitedAttemptsAreCapped() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        MockWebServer server = gitlab(attempts, Integer.MAX_VALUE);
+        try {
+            new ContentService().checkDeleteBranchAsync(server.url("/").toString(), "token", "group", "repo", "main",
+                    10, false, false).get(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            // The last 429 is handed to the caller
+        } finally {
+            server.shutdown();
+        }
+        assertEquals(RateLimitScheduler.MAX_RATE_LIMITED_ATTEMPTS, attempts.get());
+    }
+
+    /**
+     * Starts a Gitlab answering the requests for the branch "main" with 429 the given number of times.
+     */
+    private static MockWebServer gitlab(final AtomicInteger attempts, final int rateLimited) throws IOException {
+        MockWebServer server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(final RecordedRequest request) {
+                if (!request.getPath().endsWith("/repository/branches/main")) {
+                    return new MockResponse().setResponseCode(404).setBody("{\"message\":\"404 Project Not Found\"}");
+                }
+                if (attempts.incrementAndGet() <= rateLimited) {
+                    return new MockResponse().setResponseCode(429).addHeader("Retry-After", "0")
+                            .setBody("{\"message\":\"Too Many Requests\"}");
+                }
+                return new MockResponse().addHeader("Content-Type", "application/json").setBody("{\"name\":\"main\"}");
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private void submit(final HttpUrl url, final int count) {
+        submit(url, null, count);
+    }
+
+    private void submit(final HttpUrl url, final String job, final int count) {
+        for (int i = 0; i < count; i++) {
+            int index = submitted++;
+            scheduler.submit(url, job, () -> sent.add(index));
+        }
+    }
+
+    private void awaitSent(final int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (sent.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, sent.size());
+    }
+
+    private void assertInOrder(final int count) {
+        for (int i = 0; i < count; i++) {
+            assertEquals(Integer.valueOf(i), sent.get(i));
+        }
+    }
+
+    /**
+     * Returns a URL of a host of its own, the scheduler keeps its state per host.
+     */
+    private static HttpUrl host(final String name) {
+        return HttpUrl.parse("https://" + name + "-" + System.nanoTime() + ".example.com/api/v4/projects");
+    }
+
+    private static Response response(final HttpUrl url, final int code, final Headers headers) {
+        return new Response.Builder()
+                .request(new Request.Builder().url(url).build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message("")
+                .headers(headers)
+                .build();
+    }
+}
@@ -0,0 +1,240 @@
+package com.aagproservices.jenkins.gitlabsteps.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.aagproservices.jenkins.gitlabsteps.GitlabStepsConfiguration;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.CacheControl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of the response cache: fresh entries are served without a request, stale ones are revalidated with their
+ * ETag, large bodies are not stored, the least recently used entry is evicted, entries are only served to the same
+ * token, and writes to a project drop its entries however the project is addressed.
+ *
+ * @author Aleks Gekht
+ *
+ */
+public class ResponseCacheTest {
+
+    private static final String ETAG = "\"v1\"";
+
+    private final GitlabStepsConfiguration configuration = GitlabStepsConfiguration.defaults();
+    private final ResponseCache cache = new ResponseCache(() -> configuration);
+    private final OkHttpClient client = new OkHttpClient();
+    private final Map<String, AtomicInteger> received = new ConcurrentHashMap<>();
+    private MockWebServer server;
+    private String gitlabUrl;
+
+    @Before
+    public void startGitlab() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(final RecordedRequest request) {
+                String path = request.getPath();
+                int query = path.indexOf('?');
+                path = query < 0 ? path : path.substring(0, query);
+                received.computeIfAbsent(request.getMethod() + " " + path, key -> new AtomicInteger()).incrementAndGet();
+                if (path.endsWith("/large")) {
+                    return json("{\"content\":\"" + new String(new char[100]).replace('\0', 'x') + "\"}");
+                }
+                if (path.endsWith("/etag")) {
+                    return ETAG.equals(request.getHeader("If-None-Match"))
+                            ? new MockResponse().setResponseCode(304).setHeader("ETag", ETAG)
+                            : json("{\"name\":\"v1\"}").setHeader("ETag", ETAG);
+                }
+                if ("DELETE".equals(request.getMethod())) {
+                    return new MockResponse().setResponseCode(204);
+                }
+                return json("{\"path\":\"" + path + "\",\"token\":\"" + request.getHeader("Authorization") + "\"}");
+            }
+        });
+        server.start();
+        gitlabUrl = server.url("/").toString();
+    }
+
+    @After
+    public void stopGitlab() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void testFreshEntryServedWithoutRequest() throws IOException {
+        assertEquals(get("/api/v4/projects/7/a", "token"), get("/api/v4/projects/7/a", "token"));
+        assertEquals(1, count("GET /api/v4/projects/7/a"));
+    }
+
+    @Test
+    public void testStaleEntryRevalidated() throws IOException {
+        configuration.setCacheTtlSeconds(0);
+        String body = get("/api/v4/projects/7/etag", "token");
+        // The 304 serves the cached body again
+        assertEquals(body, get("/api/v4/projects/7/etag", "token"));
+        assertEquals(2, count("GET /api/v4/projects/7/etag"));
+
+        // The revalidated entry is fresh again
+        configuration.setCacheTtlSeconds(10);
+        assertEquals(body, get("/api/v4/projects/7/etag", "token"));
+        assertEquals(2, count("GET /api/v4/projects/7/etag"));
+    }
+
+    @Test
+    public void testNoCacheRequestSent() throws IOException {
+        get("/api/v4/projects/7/etag", "token");
+        Request request = new Request.Builder().url(gitlabUrl + "api/v4/projects/7/etag")
+                .header("Authorization", "Bearer token").cacheControl(CacheControl.FORCE_NETWORK).build();
+        ResponseCache.Lookup lookup = cache.lookup(request);
+        assertNull(cache.fresh(request, lookup, false));
+        // It is still sent as conditional request
+        assertEquals(ETAG, cache.conditional(request, lookup).header("If-None-Match"));
+    }
+
+    @Test
+    public void testLargeBodyNotStored() throws IOException {
+        configuration.setCacheMaxEntryBytes(32);
+        String body = get("/api/v4/projects/7/large", "token");
+        // Streamed to the caller in full
+        assertEquals(114, body.length());
+        assertEquals(body, get("/api/v4/projects/7/large", "token"));
+        assertEquals(2, count("GET /api/v4/projects/7/large"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() throws IOException {
+        configuration.setCacheMaxEntries(2);
+        get("/api/v4/projects/7/a", "token");
+        get("/api/v4/projects/7/b", "token");
+        // Makes b the least recently used entry
+        get("/api/v4/projects/7/a", "token");
+        get("/api/v4/projects/7/c", "token");
+
+        get("/api/v4/projects/7/a", "token");
+        assertEquals(1, count("GET /api/v4/projects/7/a"));
+        get("/api/v4/projects/7/b", "token");
+        assertEquals(2, count("GET /api/v4/projects/7/b"));
+    }
+
+    @Test
+    public void testDisabledWithoutEntries() throws IOException {
+        configuration.setCacheMaxEntries(0);
+        get("/api/v4/projects/7/a", "token");
+        get("/api/v4/projects/7/a", "token");
+        assertEquals(2, count("GET /api/v4/projects/7/a"));
+    }
+
+    @Test
+    public void testEntriesIsolatedByToken() throws IOException {
+        String first = get("/api/v4/projects/7/a", "first");
+        String second = get("/api/v4/projects/7/a", "second");
+        assertEquals(2, count("GET /api/v4/projects/7/a"));
+        assertEquals("{\"path\":\"/api/v4/projects/7/a\",\"token\":\"Bearer first\"}", first);
+        assertEquals("{\"path\":\"/api/v4/projects/7/a\",\"token\":\"Bearer second\"}", second);
+
+        assertEquals(first, get("/api/v4/projects/7/a", "first"));
+        assertEquals(second, get("/api/v4/projects/7/a", "second"));
+        assertEquals(2, count("GET /api/v4/projects/7/a"));
+    }
+
+    @Test
+    public void testWriteInvalidatesProject() throws IOException {
+        get("/api/v4/projects/7/a", "token");
+        get("/api/v4/projects/8/a", "token");
+        send("DELETE", "/api/v4/projects/7/repository/branches/old", null);
+
+        get("/api/v4/projects/7/a", "token");
+        assertEquals(2, count("GET /api/v4/projects/7/a"));
+        // Other projects keep their entries
+        get("/api/v4/projects/8/a", "token");
+        assertEquals(1, count("GET /api/v4/projects/8/a"));
+    }
+
+    @Test
+    public void testWriteInvalidatesProjectByIdAndPath() throws IOException {
+        // The services tag the requests with their project, whether they address it by path or by id
+        RequestTarget target = new RequestTarget(gitlabUrl, "group/repo");
+        get("/api/v4/projects/group%2Frepo/a", "token", target);
+        get("/api/v4/projects/7/a", "other", target);
+        get("/api/v4/projects/group%2Frepo/a", "token", target);
+        get("/api/v4/projects/7/a", "other", target);
+        assertEquals(1, count("GET /api/v4/projects/group%2Frepo/a"));
+        assertEquals(1, count("GET /api/v4/projects/7/a"));
+        send("DELETE", "/api/v4/projects/7/repository/branches/old", target);
+
+        // Both spellings were dropped, for all tokens
+        get("/api/v4/projects/group%2Frepo/a", "token", target);
+        get("/api/v4/projects/7/a", "other", target);
+        assertEquals(2, count("GET /api/v4/projects/group%2Frepo/a"));
+        assertEquals(2, count("GET /api/v4/projects/7/a"));
+    }
+
+    @Test
+    public void testEventInvalidatesProject() throws IOException {
+        RequestTarget target = new RequestTarget(gitlabUrl, "group/repo");
+        get("/api/v4/projects/group%2Frepo/a", "token", target);
+        get("/api/v4/projects/7/a", "token", target);
+        get("/api/v4/projects/8/a", "token", new RequestTarget(gitlabUrl, "group/other"));
+
+        // Webhooks name the project by its path, spelled as in Gitlab
+        cache.invalidate(server.getHostName(), "Group/Repo");
+        get("/api/v4/projects/group%2Frepo/a", "token", target);
+        get("/api/v4/projects/7/a", "token", target);
+        get("/api/v4/projects/8/a", "token", new RequestTarget(gitlabUrl, "group/other"));
+        assertEquals(2, count("GET /api/v4/projects/group%2Frepo/a"));
+        assertEquals(2, count("GET /api/v4/projects/7/a"));
+        assertEquals(1, count("GET /api/v4/projects/8/a"));
+    }
+
+    private String get(final String path, final String token) throws IOException {
+        return get(path, token, null);
+    }
+
+    /**
+     * Sends a GET request through the cache the way the services do.
+     */
+    private String get(final String path, final String token, final RequestTarget target) throws IOException {
+        Request request = new Request.Builder().url(gitlabUrl + path.substring(1))
+                .header("Authorization", "Bearer " + token).tag(target).build();
+        ResponseCache.Lookup lookup = cache.lookup(request);
+        Response fresh = cache.fresh(request, lookup, false);
+        if (fresh != null) {
+            try (Response response = fresh) {
+                return response.body().string();
+            }
+        }
+        try (Response response = cache.onResponse(request, lookup,
+                client.newCall(cache.conditional(request, lookup)).execute(), false)) {
+            assertEquals(200, response.code());
+            return response.body().string();
+        }
+    }
+
+    private void send(final String method, final String path, final RequestTarget target) throws IOException {
+        Request request = new Request.Builder().url(gitlabUrl + path.substring(1))
+                .header("Authorization", "Bearer token").method(method, null).tag(target).build();
+        assertNull(cache.lookup(request));
+        cache.onResponse(request, null, client.newCall(request).execute(), false).close();
+    }
+
+    private int count(final String request) {
+        AtomicInteger count = received.get(request);
+        return count == null ? 0 : count.get();
+    }
+
+    private static MockResponse json(final String body) {
+        return new MockResponse().setResponseCode(200).setHeader("Content-Type", "application/json").setBody(body);
+    }
+}
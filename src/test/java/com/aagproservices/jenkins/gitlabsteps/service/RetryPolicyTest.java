@@ -0,0 +1,247 @@
+package com.aagproservices.jenkins.gitlabsteps.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.aagproservices.jenkins.gitlabsteps.api.Tag;
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.HttpMethod;
+import okhttp3.RequestBody;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of the retry policy and of the retries of failed requests: idempotent requests are sent again, the others
+ * only if their recovery finds that the failed attempt did not take effect.
+ *
+ * @author Aleks Gekht
+ *
+ */
+public class RetryPolicyTest {
+
+    private static final String BAD_GATEWAY = "{\"message\":\"502 Bad Gateway\"}";
+    private static final RetryPolicy POLICY = new RetryPolicy(3, 10, 0, new HashSet<>(Arrays.asList(502, 503)));
+
+    private final Map<String, Queue<MockResponse>> responses = new ConcurrentHashMap<>();
+    private final List<String> received = Collections.synchronizedList(new ArrayList<>());
+    private MockWebServer server;
+    private String gitlabUrl;
+
+    @Before
+    public void startGitlab() throws IOException {
+        ProjectIdResolver.getInstance().reset();
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(final RecordedRequest request) {
+                String path = request.getPath();
+                int query = path.indexOf('?');
+                path = query < 0 ? path : path.substring(0, query);
+                if (path.equals("/api/v4/projects/group%2Frepo")) {
+                    return json(200, "{\"id\":42}");
+                }
+                // The requests may address the project by path or by id
+                String resource = request.getMethod() + " " + path.substring(path.indexOf("/repository/"));
+                received.add(resource);
+                Queue<MockResponse> queue = responses.get(resource);
+                MockResponse response = queue == null ? null : queue.poll();
+                return response == null ? json(500, "{\"message\":\"Unexpected " + resource + "\"}") : response;
+            }
+        });
+        server.start();
+        gitlabUrl = server.url("/").toString();
+    }
+
+    @After
+    public void stopGitlab() throws IOException {
+        server.shutdown();
+        ProjectIdResolver.getInstance().reset();
+    }
+
+    @Test
+    public void testParseStatusCodes() {
+        assertEquals(new HashSet<>(Arrays.asList(502, 503, 504)), RetryPolicy.parseStatusCodes(RetryPolicy.DEFAULT_STATUS_CODES));
+        assertEquals(new HashSet<>(Arrays.asList(429, 500)), RetryPolicy.parseStatusCodes("429 500,"));
+        assertTrue(RetryPolicy.parseStatusCodes(null).isEmpty());
+        try {
+            RetryPolicy.parseStatusCodes("502, 99");
+            fail("Expected an invalid status code");
+        } catch (IllegalArgumentException e) {
+            assertEquals("\"99\" is not a valid HTTP status code", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testAttemptsAndStatusCodes() {
+        assertTrue(POLICY.hasAttemptsLeft(2));
+        assertFalse(POLICY.hasAttemptsLeft(3));
+        assertFalse(RetryPolicy.NONE.hasAttemptsLeft(1));
+        assertTrue(POLICY.isRetryable(502));
+        assertFalse(POLICY.isRetryable(500));
+        // Nonsensical values are clamped
+        RetryPolicy clamped = new RetryPolicy(0, -1, 2, new HashSet<>());
+        assertEquals(1, clamped.getMaxAttempts());
+        assertEquals(0, clamped.getDelayMillis());
+        assertEquals(1, clamped.getJitter(), 0);
+    }
+
+    @Test
+    public void testDelayDoublesUpToLimit() {
+        RetryPolicy policy = new RetryPolicy(10, 1000, 0, new HashSet<>());
+        assertEquals(1000, policy.delayMillis(1));
+        assertEquals(2000, policy.delayMillis(2));
+        assertEquals(4000, policy.delayMillis(3));
+        assertEquals(60_000, policy.delayMillis(8));
+        assertEquals(60_000, policy.delayMillis(100));
+    }
+
+    @Test
+    public void testJitterShortensDelay() {
+        RetryPolicy policy = new RetryPolicy(3, 1000, 0.5, new HashSet<>());
+        for (int i = 0; i < 100; i++) {
+            long delay = policy.delayMillis(2);
+            assertTrue(delay > 1000 && delay <= 2000);
+        }
+    }
+
+    @Test
+    public void testGetRetriedOnBadGateway() throws Exception {
+        answer("GET /repository/tags", json(502, BAD_GATEWAY), json(502, BAD_GATEWAY), json(200, "[{\"name\":\"v1\"}]"));
+        ContentService service = new ContentService();
+        service.setRetryPolicy(POLICY);
+
+        List<Tag> tags = service.getTagsAsync(gitlabUrl, "token", "group", "repo", null, null, null, 20, 0,
+                10, false, false).get(10, TimeUnit.SECONDS);
+        assertEquals(1, tags.size());
+        assertEquals("v1", tags.get(0).getName());
+        assertEquals(3, count("GET /repository/tags"));
+    }
+
+    @Test
+    public void testPostWithoutRecoveryNotRetried() throws Exception {
+        answer("POST /repository/tags", json(502, BAD_GATEWAY), json(201, "{}"));
+        TestService service = new TestService();
+        service.setRetryPolicy(POLICY);
+
+        try {
+            service.post(gitlabUrl).get(10, TimeUnit.SECONDS);
+            fail("Expected the 502 to fail the request");
+        } catch (ExecutionException e) {
+            assertNotNull(e.getCause());
+        }
+        assertEquals(1, count("POST /repository/tags"));
+    }
+
+    @Test
+    public void testRecoveryCompletesWithoutResending() throws Exception {
+        answer("POST /repository/tags", json(502, BAD_GATEWAY), json(201, "{\"name\":\"v2\"}"));
+        // The tag was created before the gateway gave up
+        answer("GET /repository/tags/v2", json(200, "{\"name\":\"v2\",\"message\":\"Release\"}"));
+        ContentService service = new ContentService();
+        service.setRetryPolicy(POLICY);
+
+        Tag tag = service.createTagAsync(gitlabUrl, "token", "group", "repo", tag("v2"), 10, false, false)
+                .get(10, TimeUnit.SECONDS);
+        assertEquals("v2", tag.getName());
+        assertEquals(1, count("POST /repository/tags"));
+        assertEquals(1, count("GET /repository/tags/v2"));
+    }
+
+    @Test
+    public void testRecoveryResendsIfNoEffect() throws Exception {
+        answer("POST /repository/tags", json(502, BAD_GATEWAY), json(201, "{\"name\":\"v3\"}"));
+        answer("GET /repository/tags/v3", json(404, "{\"message\":\"404 Tag Not Found\"}"));
+        ContentService service = new ContentService();
+        service.setRetryPolicy(POLICY);
+
+        Tag tag = service.createTagAsync(gitlabUrl, "token", "group", "repo", tag("v3"), 10, false, false)
+                .get(10, TimeUnit.SECONDS);
+        assertEquals("v3", tag.getName());
+        assertEquals(2, count("POST /repository/tags"));
+        assertEquals(1, count("GET /repository/tags/v3"));
+    }
+
+    @Test
+    public void testRecoveryBypassesCache() throws Exception {
+        answer("GET /repository/branches/old", json(200, "{\"name\":\"old\"}"), json(200, "{\"name\":\"old\"}"),
+                json(404, "{\"message\":\"404 Branch Not Found\"}"));
+        // The connection breaks after Gitlab deleted the branch
+        MockResponse broken = new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST);
+        answer("DELETE /repository/branches/old", broken, broken, broken);
+        ContentService service = new ContentService();
+        service.setRetryPolicy(POLICY);
+
+        service.checkDeleteBranchAsync(gitlabUrl, "token", "group", "repo", "old", 10, false, false).get(10, TimeUnit.SECONDS);
+        // From now on the requests address the project by id, as does the cached answer of the next check
+        awaitProjectId();
+        service.checkDeleteBranchAsync(gitlabUrl, "token", "group", "repo", "old", 10, false, false).get(10, TimeUnit.SECONDS);
+        String deleted = service.deleteBranchAsync(gitlabUrl, "token", "group", "repo", "old", 10, false, false)
+                .get(10, TimeUnit.SECONDS);
+        assertEquals("old", deleted);
+        // The recovery was answered by Gitlab rather than by the cache
+        assertEquals(3, count("GET /repository/branches/old"));
+    }
+
+    private void awaitProjectId() throws InterruptedException {
+        RequestTarget target = new RequestTarget(gitlabUrl, "group/repo");
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (ProjectIdResolver.getInstance().getId(target) == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertNotNull(ProjectIdResolver.getInstance().getId(target));
+    }
+
+    private void answer(final String resource, final MockResponse... answers) {
+        responses.put(resource, new ConcurrentLinkedQueue<>(Arrays.asList(answers)));
+    }
+
+    private int count(final String resource) {
+        synchronized (received) {
+            return (int) received.stream().filter(resource::equals).count();
+        }
+    }
+
+    private static Tag tag(final String name) {
+        Tag tag = new Tag();
+        tag.setName(name);
+        tag.setMessage("Release");
+        tag.setStartPoint("main");
+        return tag;
+    }
+
+    private static MockResponse json(final int code, final String body) {
+        return new MockResponse().setResponseCode(code).setHeader("Content-Type", "application/json").setBody(body);
+    }
+
+    /**
+     * Service sending a request which is not idempotent, without a recovery.
+     */
+    private static final class TestService extends BaseService {
+        CompletableFuture<JsonNode> post(final String gitlabUrl) {
+            return executeRequestAsync(buildRequest(gitlabUrl, "token", "group", "repo", "repository/tags",
+                    HttpMethod.POST, RequestBody.create(null, "{}"), null), JsonNode.class, null, 10, false, false);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.aagproservices.jenkins.gitlabsteps.step;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.jenkinsci.plugins.plaincredentials.StringCredentials;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of the credentials cached per run: a credential is looked up once per run, misses are not cached, and
+ * entries are dropped per run, per credential or all at once.
+ *
+ * @author Aleks Gekht
+ *
+ */
+public class CredentialCacheTest {
+
+    private final CredentialCache cache = CredentialCache.getInstance();
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        cache.invalidateAll();
+    }
+
+    @Test
+    public void testLookedUpOncePerRun() {
+        StringCredentials credential = credential();
+        assertSame(credential, cache.get("job#1", "token", lookup(credential)));
+        assertSame(credential, cache.get("job#1", "token", lookup(credential)));
+        assertEquals(1, lookups.get());
+
+        // Another run may see other credentials, e.g. of its folder
+        assertSame(credential, cache.get("job#2", "token", lookup(credential)));
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    public void testMissNotCached() {
+        assertNull(cache.get("job#1", "token", lookup(null)));
+        StringCredentials credential = credential();
+        assertSame(credential, cache.get("job#1", "token", lookup(credential)));
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    public void testInvalidateRun() {
+        cache.get("job#1", "token", lookup(credential()));
+        cache.get("job#2", "token", lookup(credential()));
+        cache.invalidate("job#1");
+
+        cache.get("job#1", "token", lookup(credential()));
+        cache.get("job#2", "token", lookup(credential()));
+        assertEquals(3, lookups.get());
+    }
+
+    @Test
+    public void testInvalidateCredential() {
+        StringCredentials refused = credential();
+        StringCredentials other = credential();
+        cache.get("job#1", "token", lookup(refused));
+        cache.get("job#1", "other", lookup(other));
+        cache.invalidate("job#1", "token");
+        // Unknown runs and credentials are ignored
+        cache.invalidate("job#3", "token");
+
+        StringCredentials replaced = credential();
+        assertSame(replaced, cache.get("job#1", "token", lookup(replaced)));
+        assertSame(other, cache.get("job#1", "other", lookup(credential())));
+        assertEquals(3, lookups.get());
+    }
+
+    @Test
+    public void testInvalidateAll() {
+        cache.get("job#1", "token", lookup(credential()));
+        cache.get("job#2", "token", lookup(credential()));
+        cache.invalidateAll();
+
+        cache.get("job#1", "token", lookup(credential()));
+        cache.get("job#2", "token", lookup(credential()));
+        assertEquals(4, lookups.get());
+    }
+
+    private Supplier<StringCredentials> lookup(final StringCredentials credential) {
+        return () -> {
+            lookups.incrementAndGet();
+            return credential;
+        };
+    }
+
+    private static StringCredentials credential() {
+        // Only the identity matters here
+        return (StringCredentials) Proxy.newProxyInstance(CredentialCacheTest.class.getClassLoader(),
+                new Class<?>[] {StringCredentials.class}, (proxy, method, args) -> {
+                    if ("equals".equals(method.getName())) {
+                        return proxy == args[0];
+                    }
+                    if ("hashCode".equals(method.getName())) {
+                        return System.identityHashCode(proxy);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,44 @@
+package com.aagproservices.jenkins.gitlabsteps.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import okhttp3.HttpUrl;
+import org.junit.Test;
+
+/**
+ * Tests of the Link header parsing used for pagination and of the endpoint templates used for metrics.
+ *
+ * @author Aleks Gekht
+ *
+ */
+public class HttpUtilTest {
+
+    @Test
+    public void testNextLink() {
+        String header = "<https://gitlab.example.com/api/v4/projects/8/repository/tags?page=1&per_page=3>; rel=\"prev\", "
+                + "<https://gitlab.example.com/api/v4/projects/8/repository/tags?page=3&per_page=3>; rel=\"next\", "
+                + "<https://gitlab.example.com/api/v4/projects/8/repository/tags?page=1&per_page=3>; rel=\"first\"";
+        assertEquals("https://gitlab.example.com/api/v4/projects/8/repository/tags?page=3&per_page=3", HttpUtil.parseNextLink(header));
+    }
+
+    @Test
+    public void testNoNextLink() {
+        assertNull(HttpUtil.parseNextLink(null));
+        assertNull(HttpUtil.parseNextLink(""));
+        assertNull(HttpUtil.parseNextLink("<https://gitlab.example.com/api/v4/projects/8/repository/tags?page=1>; rel=\"first\""));
+    }
+
+    @Test
+    public void testEndpointTemplate() {
+        assertEquals("projects/:project/repository/tags",
+                HttpUtil.endpointTemplate(HttpUrl.parse("https://gitlab.example.com/api/v4/projects/group%2Frepo/repository/tags?page=2")));
+        assertEquals("projects/:project/merge_requests/:id/merge",
+                HttpUtil.endpointTemplate(HttpUrl.parse("https://gitlab.example.com/api/v4/projects/8/merge_requests/12/merge")));
+        assertEquals("projects/:project/repository/files/:id",
+                HttpUtil.endpointTemplate(HttpUrl.parse("https://gitlab.example.com/gitlab/api/v4/projects/8/repository/files/src%2FMain.java")));
+        assertEquals("projects/:project",
+                HttpUtil.endpointTemplate(HttpUrl.parse("https://gitlab.example.com/api/v4/projects/group%2Frepo")));
+    }
+
+}
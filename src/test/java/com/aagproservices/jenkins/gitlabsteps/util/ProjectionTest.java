@@ -0,0 +1,40 @@
+package com.aagproservices.jenkins.gitlabsteps.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Tests of the projection of list results onto selected fields.
+ *
+ * @author Aleks Gekht
+ *
+ */
+public class ProjectionTest {
+
+    private static final String TAG = "{\"name\":\"v1.0\",\"protected\":false,\"commit\":{\"id\":\"2695effb\",\"message\":\"Release\"}}";
+
+    @Test
+    public void testSingleField() throws Exception {
+        JsonNode tag = JsonUtil.getMapper().readTree(TAG);
+        assertEquals("2695effb", new Projection(Collections.singletonList("commit.id")).apply(tag));
+        assertNull(new Projection(Collections.singletonList("commit.author")).apply(tag));
+    }
+
+    @Test
+    public void testMultipleFields() throws Exception {
+        JsonNode tag = JsonUtil.getMapper().readTree(TAG);
+        Map<?, ?> values = (Map<?, ?>) new Projection(Arrays.asList("name", "protected", "commit.id")).apply(tag);
+        assertEquals(Arrays.asList("name", "protected", "commit.id"), Arrays.asList(values.keySet().toArray()));
+        assertEquals("v1.0", values.get("name"));
+        assertEquals(Boolean.FALSE, values.get("protected"));
+        assertEquals("2695effb", values.get("commit.id"));
+    }
+
+}